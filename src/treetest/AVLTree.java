@@ -1,11 +1,42 @@
 package treetest;
 
-public class AVLTree {
+import treetest.metrics.TreeMetrics;
+import treetest.metrics.TreeShape;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+public class AVLTree implements OrderedIndex<Integer, Object>, TreeShape {
+    // 结点个数不超过int范围时AVL树的高度不超过45
+    private static final int MAX_HEIGHT = 64;
+
     private AVLNode root;
+    private int size; // 结点总数，插入、删除时维护
+    private final AVLNode[] path = new AVLNode[MAX_HEIGHT]; // 插入、删除时从根结点到当前结点的路径
     private final StringBuilder visualizeBuilder; // 二叉树图形化解析的builder
+    private final TreeMetrics metrics; // 未开启统计时为null
 
     public AVLTree() {
+        this(false);
+    }
+
+    /**
+     * @param collectMetrics 是否统计旋转次数和查找经过的结点数
+     */
+    public AVLTree(boolean collectMetrics) {
         visualizeBuilder = new StringBuilder();
+        metrics = collectMetrics ? new TreeMetrics(this) : null;
+    }
+
+    /**
+     * @return 统计信息，构造时未开启统计则为null
+     */
+    @Override
+    public TreeMetrics getMetrics() {
+        return metrics;
     }
 
     /**
@@ -41,6 +72,9 @@ public class AVLTree {
      * 左旋
      */
     private AVLNode leftRevolve(AVLNode avlNode) {
+        if (metrics != null) {
+            metrics.rotation();
+        }
         // 先保存avlNode的右子树
         AVLNode right = avlNode.right;
 
@@ -64,6 +98,9 @@ public class AVLTree {
      * 右旋
      */
     private AVLNode rightRevolve(AVLNode avlNode) {
+        if (metrics != null) {
+            metrics.rotation();
+        }
         // 保存avlNode的左子树
         AVLNode left = avlNode.left;
 
@@ -95,102 +132,105 @@ public class AVLTree {
      * 插入结点
      */
     public void insert(AVLNode newNode) {
-        root = insert(newNode, root);
-    }
-
-    private AVLNode insert(AVLNode newNode, AVLNode root) {
         if (root == null) {
-            // 找到了正确的位置，直接返回新结点
-            return newNode;
+            root = newNode;
+            size++;
+            return;
         }
-        if (root.key > newNode.key) {
-            // 新结点的key比当前结点的小，因此向当前结点的左子树递归
-            root.left = insert(newNode, root.left);
-        } else if (root.key < newNode.key) {
-            // 新结点的key比当前结点的大，因此向当前结点的右子树递归
-            root.right = insert(newNode, root.right);
-        } else {
-            // 两个结点的key相同，因此直接更新value并返回
-            root.value = newNode.value;
-            return root;
+        // 自顶向下查找插入位置，同时记录路径
+        int depth = 0;
+        AVLNode avlNode = root;
+        while (true) {
+            path[depth++] = avlNode;
+            if (avlNode.key > newNode.key) {
+                if (avlNode.left == null) {
+                    avlNode.left = newNode;
+                    break;
+                }
+                avlNode = avlNode.left;
+            } else if (avlNode.key < newNode.key) {
+                if (avlNode.right == null) {
+                    avlNode.right = newNode;
+                    break;
+                }
+                avlNode = avlNode.right;
+            } else {
+                // 两个结点的key相同，因此直接更新value并返回
+                avlNode.value = newNode.value;
+                return;
+            }
         }
-        resetHeight(root); // 在调整之前，更新当前结点的高度
-        return reBalance(root); // 调整并返回
+        size++;
+        reBalancePath(depth);
     }
 
     /**
      * 删除结点
      */
     public boolean delete(int key) {
-        if (root == null) {
+        // 自顶向下查找待删除的结点，同时记录路径
+        int depth = 0;
+        AVLNode avlNode = root;
+        while (avlNode != null && avlNode.key != key) {
+            path[depth++] = avlNode;
+            avlNode = avlNode.key > key ? avlNode.left : avlNode.right;
+        }
+        if (avlNode == null) { // 待删除的结点不存在
             return false;
         }
 
-        // delete方法返回null的情况：待删除的是唯一一个结点
-        AVLNode delete = delete(key, root);
-
-        // 待删除的结点存在
-        if (delete != null || root.left == null && root.right == null && key == root.key) {
-            root = delete;
-            return true;
+        if (avlNode.left != null && avlNode.right != null) { // 待删除的结点有左右子树
+            // 将avlNode的数据更新为左子树的最右结点的数据，转为删除该最右结点，它没有右子树
+            path[depth++] = avlNode;
+            AVLNode mostRightNodeOfLeftTree = avlNode.left;
+            while (mostRightNodeOfLeftTree.right != null) {
+                path[depth++] = mostRightNodeOfLeftTree;
+                mostRightNodeOfLeftTree = mostRightNodeOfLeftTree.right;
+            }
+            avlNode.key = mostRightNodeOfLeftTree.key;
+            avlNode.value = mostRightNodeOfLeftTree.value;
+            avlNode = mostRightNodeOfLeftTree;
         }
 
-        // 待删除的结点不存在
-        return false;
+        // 此时avlNode至多有一个子树，用它接替avlNode
+        AVLNode child = avlNode.left != null ? avlNode.left : avlNode.right;
+        avlNode.left = null;
+        avlNode.right = null;
+        replaceChild(depth - 1, avlNode, child);
+        size--;
+        reBalancePath(depth);
+        return true;
     }
 
-    private AVLNode delete(int key, AVLNode avlNode) {
-        if (avlNode == null) { // 待删除的结点不存在
-            return null;
+    /**
+     * 自底向上更新path[0, depth)上结点的高度并调整<br/>
+     * 某个结点的高度不变且不需要旋转时，它的祖先结点也不受影响，可以提前结束
+     */
+    private void reBalancePath(int depth) {
+        for (int i = depth - 1; i >= 0; i--) {
+            AVLNode avlNode = path[i];
+            int oldHeight = avlNode.height;
+            resetHeight(avlNode); // 在调整之前，更新当前结点的高度
+            AVLNode newRoot = reBalance(avlNode);
+            if (newRoot != avlNode) {
+                replaceChild(i - 1, avlNode, newRoot);
+            } else if (avlNode.height == oldHeight) {
+                return;
+            }
         }
-        if (avlNode.key > key) {
-            // 对avlNode的左子树递归调用方法
-            avlNode.left = delete(key, avlNode.left);
-        } else if (avlNode.key < key) {
-            // 对avlNode的右子树递归调用方法
-            avlNode.right = delete(key, avlNode.right);
+    }
+
+    /**
+     * 用newChild替换path[parentIndex]的子结点oldChild，parentIndex小于0时替换根结点
+     */
+    private void replaceChild(int parentIndex, AVLNode oldChild, AVLNode newChild) {
+        if (parentIndex < 0) {
+            root = newChild;
+        } else if (path[parentIndex].left == oldChild) {
+            path[parentIndex].left = newChild;
         } else {
-            if (avlNode.left == null && avlNode.right == null) { // 待删除的结点没有左右子树
-                // 返回空表示删除当前结点（avlNode）
-                return null;
-            } else if (avlNode.right == null) { // 待删除的结点只有左子树
-                // 保存avlNode的左子树
-                AVLNode left = avlNode.left;
-
-                // 清空avlNode的左指针
-                avlNode.left = null;
-
-                // 用avlNode的左子树接替avlNode
-                return left;
-            } else if (avlNode.left == null) { // 待删除的结点只有右子树
-                // 保存avlNode的右子树
-                AVLNode right = avlNode.right;
-
-                // 清空avlNode的右指针
-                avlNode.right = null;
-
-                // 用avlNode的右子树接替avlNode
-                return right;
-            } else { // 待删除的结点有左右子树
-                // 获取左子树的最右结点
-                AVLNode mostRightNodeOfLeftTree = getMostRightNode(avlNode.left);
-
-                // 删除待删除结点的左子树的最右结点，由于此时最右结点没有右子树，因此只涉及两种返回情况：
-                // 1、只有左子树
-                // 2、没有左右子树
-                // 由于可能会发生旋转，因此newRoot不一定等于avlNode
-                AVLNode newRoot = delete(mostRightNodeOfLeftTree.key, avlNode);
-
-                // 将avlNode的数据更新为左子树的最右结点的数据，此时avlNode的高度已在上一步更新
-                avlNode.key = mostRightNodeOfLeftTree.key;
-                avlNode.value = mostRightNodeOfLeftTree.value;
-
-                // 返回调整之后的以原待删除结点为根结点的AVL树的根结点
-                return newRoot;
-            }
+            path[parentIndex].right = newChild;
         }
-        resetHeight(avlNode); // 在调整之前，更新当前结点的高度
-        return reBalance(avlNode); // 调整并返回
     }
 
     /**
@@ -204,31 +244,24 @@ public class AVLTree {
     }
 
     /**
-     * 获取给定结点的最右子结点
-     */
-    private AVLNode getMostRightNode(AVLNode avlNode) {
-        return avlNode.right == null ? avlNode : getMostRightNode(avlNode.right);
-    }
-
-    /**
-     * 检查AVL树是否平衡
+     * 检查AVL树是否平衡，用显式栈遍历所有结点
      */
     public boolean checkBalance() {
+        Deque<AVLNode> stack = new ArrayDeque<>();
         if (root != null) {
-            if (Math.abs(getAltitudeDiff(root)) > 1) {
-                return false;
-            }
-            return checkBalance(root.left) && checkBalance(root.right);
+            stack.push(root);
         }
-        return true;
-    }
-
-    private boolean checkBalance(AVLNode root) {
-        if (root != null) {
-            if (Math.abs(getAltitudeDiff(root)) > 1) {
+        while (!stack.isEmpty()) {
+            AVLNode avlNode = stack.pop();
+            if (Math.abs(getAltitudeDiff(avlNode)) > 1) {
                 return false;
             }
-            return checkBalance(root.left) && checkBalance(root.right);
+            if (avlNode.left != null) {
+                stack.push(avlNode.left);
+            }
+            if (avlNode.right != null) {
+                stack.push(avlNode.right);
+            }
         }
         return true;
     }
@@ -258,34 +291,212 @@ public class AVLTree {
      * 获取二叉树的结点总数
      */
     public int countNodes() {
-        return countNodes(root);
+        return size;
     }
 
-    private int countNodes(AVLNode avlNode) {
-        if (avlNode == null) {
-            return 0;
-        }
-        return 1 + countNodes(avlNode.left) + countNodes(avlNode.right);
+    @Override
+    public int getHeight() {
+        return root == null ? 0 : root.height;
+    }
+
+    @Override
+    public int getNodeCount() {
+        return size;
+    }
+
+    @Override
+    public double getAverageFill() {
+        return size == 0 ? 0 : 1;
     }
 
     /**
-     * 查找结点值
+     * 查找结点值，开启统计时记录经过的结点数
      */
     public Object get(int key) {
-        return get(key, root);
+        if (metrics == null) {
+            AVLNode avlNode = find(key);
+            return avlNode == null ? null : avlNode.value;
+        }
+        int visits = 0;
+        AVLNode avlNode = root;
+        while (avlNode != null) {
+            visits++;
+            if (avlNode.key < key) {
+                avlNode = avlNode.right;
+            } else if (avlNode.key > key) {
+                avlNode = avlNode.left;
+            } else {
+                break;
+            }
+        }
+        metrics.lookup(visits);
+        return avlNode == null ? null : avlNode.value;
     }
 
-    private Object get(int key, AVLNode root) {
-        if (root == null) {
+    private AVLNode find(int key) {
+        AVLNode avlNode = root;
+        while (avlNode != null) {
+            if (avlNode.key < key) {
+                avlNode = avlNode.right;
+            } else if (avlNode.key > key) {
+                avlNode = avlNode.left;
+            } else {
+                return avlNode;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 批量查找，results[i]为keys[i]对应的值，关键字不存在时为null<br/>
+     * 先对关键字排序，再从根结点向下把有序的关键字区间分给左右子树，
+     * 每个结点只访问一次，多个关键字共享相同的查找路径
+     */
+    public void getAll(int[] keys, Object[] results) {
+        SortedProbes.prepare(keys.length, results);
+        long[] probes = SortedProbes.sort(keys);
+        getAll(root, probes, 0, probes.length, results);
+    }
+
+    /**
+     * 查找probes[from, to)，左子树在循环中处理，只对右子树递归，递归深度不超过树高
+     */
+    private void getAll(AVLNode avlNode, long[] probes, int from, int to, Object[] results) {
+        while (avlNode != null && from < to) {
+            int low = SortedProbes.lowerBound(probes, from, to, avlNode.key);
+            int high = SortedProbes.upperBound(probes, low, to, avlNode.key);
+            for (int i = low; i < high; i++) {
+                results[SortedProbes.index(probes[i])] = avlNode.value;
+            }
+            getAll(avlNode.right, probes, high, to, results);
+            avlNode = avlNode.left;
+            to = low;
+        }
+    }
+
+    @Override
+    public void getAll(Integer[] keys, Object[] results) {
+        getAll(SortedProbes.unbox(keys), results);
+    }
+
+    @Override
+    public Object put(Integer key, Object value) {
+        AVLNode avlNode = find(key);
+        if (avlNode != null) {
+            // 关键字已存在，直接替换value，树的结构不变
+            Object old = avlNode.value;
+            avlNode.value = value;
+            return old;
+        }
+        insert(new AVLNode(key, value));
+        return null;
+    }
+
+    @Override
+    public Object get(Integer key) {
+        return get((int) key);
+    }
+
+    @Override
+    public Object remove(Integer key) {
+        AVLNode avlNode = find(key);
+        if (avlNode == null) {
             return null;
         }
-        if (root.key < key) {
-            return get(key, root.right);
+        // 删除时avlNode可能会被左子树最右结点的数据覆盖，因此先保存
+        Object old = avlNode.value;
+        delete(key);
+        return old;
+    }
+
+    /**
+     * 查找小于等于key的最大关键字
+     */
+    @Override
+    public Integer floor(Integer key) {
+        AVLNode avlNode = root;
+        AVLNode floor = null;
+        while (avlNode != null) {
+            if (avlNode.key > key) {
+                avlNode = avlNode.left;
+            } else if (avlNode.key < key) {
+                // 当前结点是候选，右子树中可能还有更接近key的结点
+                floor = avlNode;
+                avlNode = avlNode.right;
+            } else {
+                return avlNode.key;
+            }
         }
-        if (root.key > key) {
-            return get(key, root.left);
+        return floor == null ? null : floor.key;
+    }
+
+    /**
+     * 查找大于等于key的最小关键字
+     */
+    @Override
+    public Integer ceiling(Integer key) {
+        AVLNode avlNode = root;
+        AVLNode ceiling = null;
+        while (avlNode != null) {
+            if (avlNode.key < key) {
+                avlNode = avlNode.right;
+            } else if (avlNode.key > key) {
+                // 当前结点是候选，左子树中可能还有更接近key的结点
+                ceiling = avlNode;
+                avlNode = avlNode.left;
+            } else {
+                return avlNode.key;
+            }
         }
-        return root.value;
+        return ceiling == null ? null : ceiling.key;
+    }
+
+    /**
+     * 范围查询，只进入可能包含[from, to]中关键字的子树
+     */
+    @Override
+    public List<Object> range(Integer from, Integer to) {
+        List<Object> result = new ArrayList<>();
+        range(root, from, to, result);
+        return result;
+    }
+
+    private void range(AVLNode avlNode, int from, int to, List<Object> result) {
+        if (avlNode == null) {
+            return;
+        }
+        if (avlNode.key > from) {
+            range(avlNode.left, from, to, result);
+        }
+        if (avlNode.key >= from && avlNode.key <= to) {
+            result.add(avlNode.value);
+        }
+        if (avlNode.key < to) {
+            range(avlNode.right, from, to, result);
+        }
+    }
+
+    /**
+     * 中序遍历，用显式栈保存尚未访问的祖先结点
+     */
+    @Override
+    public void forEach(BiConsumer<? super Integer, ? super Object> action) {
+        Deque<AVLNode> stack = new ArrayDeque<>();
+        AVLNode avlNode = root;
+        while (avlNode != null || !stack.isEmpty()) {
+            while (avlNode != null) {
+                stack.push(avlNode);
+                avlNode = avlNode.left;
+            }
+            avlNode = stack.pop();
+            action.accept(avlNode.key, avlNode.value);
+            avlNode = avlNode.right;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
     }
 }
 
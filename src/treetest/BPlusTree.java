@@ -1,15 +1,28 @@
 package treetest;
 
+import treetest.metrics.TreeMetrics;
+import treetest.metrics.TreeShape;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Queue;
+import java.util.SortedMap;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public class BPlusTree<K extends Comparable<? super K>, V> {
+public class BPlusTree<K extends Comparable<? super K>, V> implements OrderedIndex<K, V>, TreeShape {
 
     public static enum RangePolicy {
         EXCLUSIVE, INCLUSIVE
@@ -20,6 +33,11 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
      */
     private static final int DEFAULT_BRANCHING_FACTOR = 128;
 
+    /**
+     * The fill factor used by {@link #bulkLoad(Iterator)}.
+     */
+    private static final double DEFAULT_FILL_FACTOR = 1.0;
+
     /**
      * The branching factor for the B+ tree, that measures the capacity of nodes
      * (i.e., the number of children nodes) for internal nodes in the tree.
@@ -31,16 +49,64 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
      */
     private Node root;
 
+    /**
+     * The number of key-value mappings in the B+ tree.
+     */
+    private int size;
+
+    /**
+     * The work counters, or {@code null} if metrics are not collected.
+     */
+    private final TreeMetrics metrics;
+
     public BPlusTree() {
         this(DEFAULT_BRANCHING_FACTOR);
     }
 
     public BPlusTree(int branchingFactor) {
+        this(branchingFactor, false);
+    }
+
+    /**
+     * @param branchingFactor the maximum number of children of a node
+     * @param collectMetrics  whether to count splits, merges, borrows and the
+     *                        nodes visited by each lookup
+     */
+    public BPlusTree(int branchingFactor, boolean collectMetrics) {
         if (branchingFactor <= 2)
             throw new IllegalArgumentException("Illegal branching factor: "
                     + branchingFactor);
         this.branchingFactor = branchingFactor;
         root = new LeafNode();
+        metrics = collectMetrics ? new TreeMetrics(this) : null;
+    }
+
+    /**
+     * Returns the work counters of this tree, or {@code null} if it was
+     * constructed without metrics.
+     */
+    @Override
+    public TreeMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the branching factor whose key list fits in about
+     * {@code nodeBytes} bytes, counting each key as one reference. A node
+     * holds up to one key per child before it splits, so the branching
+     * factor equals the number of key slots. Nodes presize their lists to
+     * the branching factor, so the backing array of a node's key list is
+     * {@code nodeBytes} whatever its fill.
+     *
+     * @param nodeBytes the target size of a node's keys, e.g. a multiple of
+     *                  {@link NodeSizing#CACHE_LINE_BYTES}
+     * @throws IllegalArgumentException if no valid node fits
+     */
+    public static int branchingFactorFor(int nodeBytes) {
+        int branchingFactor = NodeSizing.slots(nodeBytes, NodeSizing.REFERENCE_BYTES);
+        if (branchingFactor <= 2)
+            throw new IllegalArgumentException("Node size too small: " + nodeBytes);
+        return branchingFactor;
     }
 
     /**
@@ -57,7 +123,61 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
      * {@code null} if this tree contains no association for the key
      */
     public V search(K key) {
-        return root.getValue(key);
+        if (metrics == null)
+            return root.getValue(key);
+        Node node = root;
+        int visits = 1;
+        while (node instanceof BPlusTree.InternalNode) {
+            node = ((InternalNode) node).getChild(key);
+            visits++;
+        }
+        metrics.lookup(visits);
+        return node.getValue(key);
+    }
+
+    /**
+     * Looks up a batch of keys, storing the value associated with
+     * {@code keys[i]} (or {@code null}) in {@code results[i]}.
+     *
+     * <p>
+     * The keys are visited in ascending order while the path from the root
+     * to the current leaf is kept, together with the exclusive upper bound of
+     * the keys routed to each node on it. The next key only climbs back to
+     * the lowest node whose bound still admits it and descends from there, so
+     * keys in the same leaf cost one leaf search and keys in a neighbouring
+     * leaf one extra internal-node search instead of a descent from the root.
+     *
+     * @param keys    the keys to look up
+     * @param results the array receiving the values, at least as long as
+     *                {@code keys}
+     */
+    @Override
+    public void getAll(K[] keys, V[] results) {
+        SortedProbes.prepare(keys.length, results);
+        List<Node> path = new ArrayList<Node>();
+        List<K> bounds = new ArrayList<K>();
+        path.add(root);
+        bounds.add(null);
+        for (int i : SortedProbes.order(keys)) {
+            K key = keys[i];
+            int depth = path.size() - 1;
+            // a null bound means the node lies on the rightmost path
+            while (depth > 0 && bounds.get(depth) != null
+                    && key.compareTo(bounds.get(depth)) >= 0)
+                depth--;
+            path.subList(depth + 1, path.size()).clear();
+            bounds.subList(depth + 1, bounds.size()).clear();
+            Node node = path.get(depth);
+            while (node instanceof BPlusTree.InternalNode) {
+                InternalNode internal = (InternalNode) node;
+                int childIndex = internal.getChildIndex(key);
+                node = internal.children.get(childIndex);
+                path.add(node);
+                bounds.add(childIndex < internal.keyNumber()
+                        ? internal.keys.get(childIndex) : bounds.get(bounds.size() - 1));
+            }
+            results[i] = node.getValue(key);
+        }
     }
 
     /**
@@ -75,7 +195,61 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
      */
     public List<V> searchRange(K key1, RangePolicy policy1, K key2,
                                RangePolicy policy2) {
-        return root.getRange(key1, policy1, key2, policy2);
+        List<V> result = new ArrayList<V>();
+        Cursor cursor = cursor(key1, policy1, key2, policy2);
+        while (cursor.next())
+            result.add(cursor.getValue());
+        return result;
+    }
+
+    /**
+     * Returns a cursor over the entries with keys between {@code key1} and
+     * {@code key2} in ascending key order. A {@code null} bound leaves that
+     * end of the range open.
+     *
+     * <p>
+     * The cursor seeks to the first entry with one descent from the root and
+     * then follows the leaf chain, so it allocates nothing per entry. The tree
+     * must not be modified while the cursor is in use.
+     *
+     * @param key1    the lower bound of the range, or {@code null}
+     * @param policy1 whether the lower bound itself is included
+     * @param key2    the upper bound of the range, or {@code null}
+     * @param policy2 whether the upper bound itself is included
+     */
+    public Cursor cursor(K key1, RangePolicy policy1, K key2, RangePolicy policy2) {
+        return new Cursor(key1, policy1, key2, policy2, false);
+    }
+
+    /**
+     * Returns a cursor over the entries with keys between {@code key1} and
+     * {@code key2} in descending key order, starting from {@code key1}.
+     *
+     * @param key1    the upper bound of the range, or {@code null}
+     * @param policy1 whether the upper bound itself is included
+     * @param key2    the lower bound of the range, or {@code null}
+     * @param policy2 whether the lower bound itself is included
+     * @see #cursor(Comparable, RangePolicy, Comparable, RangePolicy)
+     */
+    public Cursor descendingCursor(K key1, RangePolicy policy1, K key2, RangePolicy policy2) {
+        return new Cursor(key1, policy1, key2, policy2, true);
+    }
+
+    /**
+     * Returns an ordered, non-splitting spliterator over the values of the
+     * range, driven by a {@link #cursor}.
+     */
+    public Spliterator<V> spliterator(K key1, RangePolicy policy1, K key2,
+                                      RangePolicy policy2) {
+        return new RangeSpliterator(cursor(key1, policy1, key2, policy2));
+    }
+
+    /**
+     * Returns a sequential stream over the values of the range, in ascending
+     * key order.
+     */
+    public Stream<V> stream(K key1, RangePolicy policy1, K key2, RangePolicy policy2) {
+        return StreamSupport.stream(spliterator(key1, policy1, key2, policy2), false);
     }
 
     /**
@@ -90,6 +264,61 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
         root.insertValue(key, value);
     }
 
+    /**
+     * Copies all of the mappings from the specified map to this tree,
+     * replacing the values of keys already present.
+     *
+     * <p>
+     * The entries are sorted once (unless the map is already a naturally
+     * ordered {@link SortedMap}) and inserted top-down as sorted runs: each
+     * internal node hands every child the run of keys routed to it, so each
+     * affected node is visited once. A leaf merges a long run with its
+     * existing entries in a single pass (a short one is inserted key by key)
+     * and an overfull node is split into as many siblings as it needs in one
+     * step, so a batch into an empty tree is effectively bulk loaded.
+     *
+     * @param entries the mappings to be stored in this tree
+     */
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        int n = entries.size();
+        if (n == 0)
+            return;
+        // the arrays never leave this method, so their erased element types are never observed
+        @SuppressWarnings("unchecked")
+        K[] batchKeys = (K[]) new Comparable<?>[n];
+        @SuppressWarnings("unchecked")
+        V[] batchValues = (V[]) new Object[n];
+        int i = 0;
+        for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+            batchKeys[i] = entry.getKey();
+            batchValues[i++] = entry.getValue();
+        }
+        List<K> keys;
+        List<V> values;
+        if (entries instanceof SortedMap && ((SortedMap<?, ?>) entries).comparator() == null) {
+            keys = Arrays.asList(batchKeys);
+            values = Arrays.asList(batchValues);
+        } else {
+            keys = new ArrayList<K>(n);
+            values = new ArrayList<V>(n);
+            for (int index : SortedProbes.order(batchKeys)) {
+                keys.add(batchKeys[index]);
+                values.add(batchValues[index]);
+            }
+        }
+        List<Node> siblings = root.insertAll(keys, values, 0, keys.size());
+        while (!siblings.isEmpty()) {
+            InternalNode newRoot = new InternalNode();
+            newRoot.children.add(root);
+            for (Node sibling : siblings) {
+                newRoot.keys.add(sibling.getFirstLeafKey());
+                newRoot.children.add(sibling);
+            }
+            root = newRoot;
+            siblings = newRoot.splitAll();
+        }
+    }
+
     /**
      * Removes the association for the specified key from this tree if present.
      *
@@ -99,6 +328,245 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
         root.deleteValue(key);
     }
 
+    /**
+     * Loads entries sorted by ascending key into this empty tree with full
+     * nodes.
+     *
+     * @see #bulkLoad(Iterator, double)
+     */
+    public void bulkLoad(Iterator<? extends Map.Entry<? extends K, ? extends V>> entries) {
+        bulkLoad(entries, DEFAULT_FILL_FACTOR);
+    }
+
+    /**
+     * Loads entries sorted by ascending key into this empty tree, building it
+     * bottom-up in one pass: leaves are filled left to right and linked as they
+     * are created, then each internal level is built over the one below. Each
+     * node is packed to {@code fillFactor} of its capacity (but never below the
+     * minimum occupancy); only the last node of a level may be rebalanced with
+     * its left neighbour.
+     *
+     * <p>
+     * Consecutive entries with the same key keep the last value, as repeated
+     * {@link #put} calls would.
+     *
+     * @param entries    the entries, sorted by ascending key
+     * @param fillFactor the fraction of each node to fill, in (0, 1]; lower
+     *                   values leave room for later inserts without splits
+     * @throws IllegalStateException    if the tree is not empty
+     * @throws IllegalArgumentException if the keys are not sorted
+     */
+    public void bulkLoad(Iterator<? extends Map.Entry<? extends K, ? extends V>> entries,
+                         double fillFactor) {
+        if (size != 0)
+            throw new IllegalStateException("Bulk loading requires an empty tree");
+        if (!(fillFactor > 0 && fillFactor <= 1))
+            throw new IllegalArgumentException("Illegal fill factor: " + fillFactor);
+        int leafKeys = Math.max(branchingFactor / 2,
+                (int) Math.round((branchingFactor - 1) * fillFactor));
+        int internalChildren = Math.max((branchingFactor + 1) / 2,
+                (int) Math.round(branchingFactor * fillFactor));
+
+        List<Node> level = new ArrayList<Node>();
+        LeafNode leaf = new LeafNode();
+        level.add(leaf);
+        K last = null;
+        while (entries.hasNext()) {
+            Map.Entry<? extends K, ? extends V> entry = entries.next();
+            K key = entry.getKey();
+            if (last != null) {
+                int cmp = key.compareTo(last);
+                if (cmp < 0)
+                    throw new IllegalArgumentException("Keys not in ascending order: "
+                            + key + " after " + last);
+                if (cmp == 0) {
+                    leaf.values.set(leaf.values.size() - 1, entry.getValue());
+                    continue;
+                }
+            }
+            if (leaf.keyNumber() == leafKeys) {
+                LeafNode next = new LeafNode();
+                leaf.next = next;
+                next.prev = leaf;
+                leaf = next;
+                level.add(leaf);
+            }
+            leaf.keys.add(key);
+            leaf.values.add(entry.getValue());
+            size++;
+            last = key;
+        }
+        balanceLast(level);
+
+        while (level.size() > 1) {
+            List<Node> parents = new ArrayList<Node>(
+                    (level.size() + internalChildren - 1) / internalChildren);
+            InternalNode parent = null;
+            for (Node child : level) {
+                if (parent == null || parent.children.size() == internalChildren) {
+                    parent = new InternalNode();
+                    parents.add(parent);
+                } else {
+                    parent.keys.add(child.getFirstLeafKey());
+                }
+                parent.children.add(child);
+            }
+            balanceLast(parents);
+            level = parents;
+        }
+        root = level.get(0);
+    }
+
+    /**
+     * Sorts a batch of entries by key and bulk loads them into this empty
+     * tree. The sort is stable, so of several entries with the same key the
+     * one that comes last in the batch wins.
+     *
+     * @see #bulkLoad(Iterator, double)
+     */
+    public void sortAndBulkLoad(Collection<? extends Map.Entry<? extends K, ? extends V>> entries,
+                                double fillFactor) {
+        List<Map.Entry<? extends K, ? extends V>> sorted =
+                new ArrayList<Map.Entry<? extends K, ? extends V>>(entries);
+        sorted.sort((e1, e2) -> e1.getKey().compareTo(e2.getKey()));
+        bulkLoad(sorted.iterator(), fillFactor);
+    }
+
+    /**
+     * Returns the leaf that holds the key if it is in the tree.
+     */
+    private LeafNode findLeaf(K key) {
+        Node node = root;
+        while (node instanceof BPlusTree.InternalNode)
+            node = ((InternalNode) node).getChild(key);
+        return (LeafNode) node;
+    }
+
+    /**
+     * Returns the leftmost leaf, or the rightmost one if {@code last} is set.
+     */
+    private LeafNode edgeLeaf(boolean last) {
+        Node node = root;
+        while (node instanceof BPlusTree.InternalNode) {
+            List<Node> children = ((InternalNode) node).children;
+            node = children.get(last ? children.size() - 1 : 0);
+        }
+        return (LeafNode) node;
+    }
+
+    /**
+     * Fixes an underflowing last node of a bulk loaded level by merging it
+     * into its left neighbour, splitting the result again if it overflows.
+     */
+    private void balanceLast(List<Node> level) {
+        int n = level.size();
+        if (n < 2 || !level.get(n - 1).isUnderflow())
+            return;
+        Node left = level.get(n - 2);
+        left.merge(level.remove(n - 1));
+        if (left.isOverflow())
+            level.add(left.split());
+    }
+
+    @Override
+    public V put(K key, V value) {
+        return root.insertValue(key, value);
+    }
+
+    @Override
+    public V get(K key) {
+        return search(key);
+    }
+
+    @Override
+    public V remove(K key) {
+        return root.deleteValue(key);
+    }
+
+    /**
+     * Returns the greatest key less than or equal to the given key, or
+     * {@code null} if there is no such key.
+     */
+    @Override
+    public K floor(K key) {
+        return root.getFloorKey(key);
+    }
+
+    /**
+     * Returns the least key greater than or equal to the given key, or
+     * {@code null} if there is no such key.
+     */
+    @Override
+    public K ceiling(K key) {
+        return root.getCeilingKey(key);
+    }
+
+    @Override
+    public List<V> range(K from, K to) {
+        return searchRange(from, RangePolicy.INCLUSIVE, to, RangePolicy.INCLUSIVE);
+    }
+
+    /**
+     * Performs the given action for each entry in ascending key order,
+     * walking the leaf chain from the leftmost leaf.
+     */
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (LeafNode leaf = edgeLeaf(false); leaf != null; leaf = leaf.next)
+            for (int i = 0; i < leaf.keyNumber(); i++)
+                action.accept(leaf.keys.get(i), leaf.values.get(i));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of levels, 1 for a tree that is a single leaf.
+     */
+    @Override
+    public int getHeight() {
+        int height = 1;
+        for (Node node = root; node instanceof BPlusTree.InternalNode; height++)
+            node = ((InternalNode) node).children.get(0);
+        return height;
+    }
+
+    @Override
+    public int getNodeCount() {
+        return (int) census()[0];
+    }
+
+    /**
+     * Returns the keys held by all nodes, internal ones included, divided by
+     * the number of key slots: {@code branchingFactor - 1} per node.
+     */
+    @Override
+    public double getAverageFill() {
+        long[] census = census();
+        return size == 0 ? 0 : (double) census[1] / (census[0] * (branchingFactor - 1));
+    }
+
+    /**
+     * Walks every node, returning the node count and the total key count.
+     */
+    private long[] census() {
+        long nodes = 0;
+        long keys = 0;
+        Deque<Node> stack = new ArrayDeque<Node>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            nodes++;
+            keys += node.keyNumber();
+            if (node instanceof BPlusTree.InternalNode)
+                for (Node child : ((InternalNode) node).children)
+                    stack.push(child);
+        }
+        return new long[]{nodes, keys};
+    }
+
     public String toString() {
         Queue<List<Node>> queue = new LinkedList<List<Node>>();
         queue.add(Arrays.asList(root));
@@ -138,19 +606,42 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
 
         abstract V getValue(K key);
 
-        abstract void deleteValue(K key);
+        /**
+         * @return the removed value, or {@code null} if the key was absent
+         */
+        abstract V deleteValue(K key);
 
-        abstract void insertValue(K key, V value);
+        /**
+         * @return the replaced value, or {@code null} if the key was absent
+         */
+        abstract V insertValue(K key, V value);
+
+        /**
+         * Inserts the run {@code [from, to)} of ascending, distinct keys that
+         * all route to this node.
+         *
+         * @return the new right siblings this node was split into, in order
+         */
+        abstract List<Node> insertAll(List<K> runKeys, List<V> runValues, int from, int to);
 
         abstract K getFirstLeafKey();
 
-        abstract List<V> getRange(K key1, RangePolicy policy1, K key2,
-                                  RangePolicy policy2);
+        abstract K getFloorKey(K key);
+
+        abstract K getCeilingKey(K key);
+
 
         abstract void merge(Node sibling);
 
         abstract Node split();
 
+        /**
+         * Splits an overflowing node into as few evenly filled nodes as fit.
+         *
+         * @return the new right siblings, empty if the node did not overflow
+         */
+        abstract List<Node> splitAll();
+
         abstract boolean isOverflow();
 
         abstract boolean isUnderflow();
@@ -164,8 +655,9 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
         List<Node> children;
 
         InternalNode() {
-            this.keys = new ArrayList<K>();
-            this.children = new ArrayList<Node>();
+            // room for the extra key and child held just before a split
+            this.keys = new ArrayList<K>(branchingFactor);
+            this.children = new ArrayList<Node>(branchingFactor + 1);
         }
 
         @Override
@@ -174,35 +666,49 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
         }
 
         @Override
-        void deleteValue(K key) {
-            Node child = getChild(key);
-            child.deleteValue(key);
+        V deleteValue(K key) {
+            int childIndex = getChildIndex(key);
+            Node child = children.get(childIndex);
+            V value = child.deleteValue(key);
             if (child.isUnderflow()) {
-                Node childLeftSibling = getChildLeftSibling(key);
-                Node childRightSibling = getChildRightSibling(key);
-                Node left = childLeftSibling != null ? childLeftSibling : child;
-                Node right = childLeftSibling != null ? child
-                        : childRightSibling;
+                // merge with the left sibling if there is one, else with the
+                // right sibling; the right node of the pair is always removed
+                // by position since an underflowing leaf may be empty
+                int leftIndex = childIndex > 0 ? childIndex - 1 : childIndex;
+                Node left = children.get(leftIndex);
+                Node right = children.get(leftIndex + 1);
                 left.merge(right);
-                deleteChild(right.getFirstLeafKey());
+                keys.remove(leftIndex);
+                children.remove(leftIndex + 1);
+                // splitting the merged node again amounts to borrowing
+                // entries from the sibling
                 if (left.isOverflow()) {
                     Node sibling = left.split();
                     insertChild(sibling.getFirstLeafKey(), sibling);
+                    if (metrics != null)
+                        metrics.borrow();
+                } else if (metrics != null) {
+                    metrics.merge();
                 }
                 if (root.keyNumber() == 0)
                     root = left;
             }
+            return value;
         }
 
         @Override
-        void insertValue(K key, V value) {
+        V insertValue(K key, V value) {
             Node child = getChild(key);
-            child.insertValue(key, value);
+            V old = child.insertValue(key, value);
             if (child.isOverflow()) {
                 Node sibling = child.split();
                 insertChild(sibling.getFirstLeafKey(), sibling);
+                if (metrics != null)
+                    metrics.split();
             }
             if (root.isOverflow()) {
+                if (metrics != null)
+                    metrics.split();
                 Node sibling = split();
                 InternalNode newRoot = new InternalNode();
                 newRoot.keys.add(sibling.getFirstLeafKey());
@@ -210,6 +716,33 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
                 newRoot.children.add(sibling);
                 root = newRoot;
             }
+            return old;
+        }
+
+        @Override
+        List<Node> insertAll(List<K> runKeys, List<V> runValues, int from, int to) {
+            while (from < to) {
+                // the part of the run below the separator right of the child
+                int childIndex = getChildIndex(runKeys.get(from));
+                int end = from + 1;
+                if (childIndex < keys.size()) {
+                    K separator = keys.get(childIndex);
+                    while (end < to && runKeys.get(end).compareTo(separator) < 0)
+                        end++;
+                } else {
+                    end = to;
+                }
+                List<Node> siblings = children.get(childIndex).insertAll(runKeys, runValues, from, end);
+                if (!siblings.isEmpty()) {
+                    List<K> separators = new ArrayList<K>(siblings.size());
+                    for (Node sibling : siblings)
+                        separators.add(sibling.getFirstLeafKey());
+                    keys.addAll(childIndex, separators);
+                    children.addAll(childIndex + 1, siblings);
+                }
+                from = end;
+            }
+            return splitAll();
         }
 
         @Override
@@ -218,9 +751,25 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
         }
 
         @Override
-        List<V> getRange(K key1, RangePolicy policy1, K key2,
-                         RangePolicy policy2) {
-            return getChild(key1).getRange(key1, policy1, key2, policy2);
+        K getFloorKey(K key) {
+            // every child left of the one covering the key holds only smaller
+            // keys, so the first non-empty answer walking leftwards is the floor
+            for (int i = getChildIndex(key); i >= 0; i--) {
+                K floor = children.get(i).getFloorKey(key);
+                if (floor != null)
+                    return floor;
+            }
+            return null;
+        }
+
+        @Override
+        K getCeilingKey(K key) {
+            for (int i = getChildIndex(key); i < children.size(); i++) {
+                K ceiling = children.get(i).getCeilingKey(key);
+                if (ceiling != null)
+                    return ceiling;
+            }
+            return null;
         }
 
         @Override
@@ -246,6 +795,27 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
             return sibling;
         }
 
+        @Override
+        List<Node> splitAll() {
+            int n = children.size();
+            int pieces = (n + branchingFactor - 1) / branchingFactor;
+            List<Node> siblings = new ArrayList<Node>(pieces - 1);
+            for (int p = 1; p < pieces; p++) {
+                int from = (int) ((long) n * p / pieces), to = (int) ((long) n * (p + 1) / pieces);
+                InternalNode sibling = new InternalNode();
+                sibling.keys.addAll(keys.subList(from, to - 1));
+                sibling.children.addAll(children.subList(from, to));
+                siblings.add(sibling);
+            }
+            if (pieces > 1) {
+                keys.subList(n / pieces - 1, n - 1).clear();
+                children.subList(n / pieces, n).clear();
+                if (metrics != null)
+                    metrics.split(pieces - 1);
+            }
+            return siblings;
+        }
+
         @Override
         boolean isOverflow() {
             return children.size() > branchingFactor;
@@ -257,17 +827,12 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
         }
 
         Node getChild(K key) {
-            int loc = Collections.binarySearch(keys, key);
-            int childIndex = loc >= 0 ? loc + 1 : -loc - 1;
-            return children.get(childIndex);
+            return children.get(getChildIndex(key));
         }
 
-        void deleteChild(K key) {
+        int getChildIndex(K key) {
             int loc = Collections.binarySearch(keys, key);
-            if (loc >= 0) {
-                keys.remove(loc);
-                children.remove(loc + 1);
-            }
+            return loc >= 0 ? loc + 1 : -loc - 1;
         }
 
         void insertChild(K key, Node child) {
@@ -280,33 +845,16 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
                 children.add(childIndex + 1, child);
             }
         }
-
-        Node getChildLeftSibling(K key) {
-            int loc = Collections.binarySearch(keys, key);
-            int childIndex = loc >= 0 ? loc + 1 : -loc - 1;
-            if (childIndex > 0)
-                return children.get(childIndex - 1);
-
-            return null;
-        }
-
-        Node getChildRightSibling(K key) {
-            int loc = Collections.binarySearch(keys, key);
-            int childIndex = loc >= 0 ? loc + 1 : -loc - 1;
-            if (childIndex < keyNumber())
-                return children.get(childIndex + 1);
-
-            return null;
-        }
     }
 
     private class LeafNode extends Node {
         List<V> values;
         LeafNode next;
+        LeafNode prev;
 
         LeafNode() {
-            keys = new ArrayList<K>();
-            values = new ArrayList<V>();
+            keys = new ArrayList<K>(branchingFactor);
+            values = new ArrayList<V>(branchingFactor);
         }
 
         @Override
@@ -316,25 +864,31 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
         }
 
         @Override
-        void deleteValue(K key) {
+        V deleteValue(K key) {
             int loc = Collections.binarySearch(keys, key);
             if (loc >= 0) {
                 keys.remove(loc);
-                values.remove(loc);
+                size--;
+                return values.remove(loc);
             }
+            return null;
         }
 
         @Override
-        void insertValue(K key, V value) {
+        V insertValue(K key, V value) {
             int loc = Collections.binarySearch(keys, key);
             int valueIndex = loc >= 0 ? loc : -loc - 1;
+            V old = null;
             if (loc >= 0) {
-                values.set(valueIndex, value);
+                old = values.set(valueIndex, value);
             } else {
                 keys.add(valueIndex, key);
                 values.add(valueIndex, value);
+                size++;
             }
             if (root.isOverflow()) {
+                if (metrics != null)
+                    metrics.split();
                 Node sibling = split();
                 InternalNode newRoot = new InternalNode();
                 newRoot.keys.add(sibling.getFirstLeafKey());
@@ -342,6 +896,56 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
                 newRoot.children.add(sibling);
                 root = newRoot;
             }
+            return old;
+        }
+
+        @Override
+        List<Node> insertAll(List<K> runKeys, List<V> runValues, int from, int to) {
+            int n = keyNumber();
+            if ((to - from) * 8L < n) {
+                // a short run: binary search and shift in place for each key
+                for (int lo = 0; from < to; from++) {
+                    K key = runKeys.get(from);
+                    int loc = Collections.binarySearch(keys.subList(lo, keys.size()), key);
+                    if (loc >= 0) {
+                        lo += loc;
+                        values.set(lo, runValues.get(from));
+                    } else {
+                        lo += -loc - 1;
+                        keys.add(lo, key);
+                        values.add(lo, runValues.get(from));
+                        size++;
+                    }
+                }
+                return splitAll();
+            }
+            // otherwise merge the run with the existing entries in one pass
+            List<K> newKeys = new ArrayList<K>(n + to - from);
+            List<V> newValues = new ArrayList<V>(n + to - from);
+            int i = 0;
+            while (i < n || from < to) {
+                int cmp = i == n ? 1 : from == to ? -1 : keys.get(i).compareTo(runKeys.get(from));
+                if (cmp < 0) {
+                    newKeys.add(keys.get(i));
+                    newValues.add(values.get(i++));
+                } else {
+                    if (cmp == 0)
+                        i++;
+                    else
+                        size++;
+                    newKeys.add(runKeys.get(from));
+                    newValues.add(runValues.get(from++));
+                }
+            }
+            keys = newKeys;
+            values = newValues;
+            List<Node> siblings = splitAll();
+            // the merged lists are oversized; keep this leaf at the usual capacity
+            keys = new ArrayList<K>(branchingFactor);
+            keys.addAll(newKeys);
+            values = new ArrayList<V>(branchingFactor);
+            values.addAll(newValues);
+            return siblings;
         }
 
         @Override
@@ -350,28 +954,17 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
         }
 
         @Override
-        List<V> getRange(K key1, RangePolicy policy1, K key2,
-                         RangePolicy policy2) {
-            List<V> result = new LinkedList<V>();
-            LeafNode node = this;
-            while (node != null) {
-                Iterator<K> kIt = node.keys.iterator();
-                Iterator<V> vIt = node.values.iterator();
-                while (kIt.hasNext()) {
-                    K key = kIt.next();
-                    V value = vIt.next();
-                    int cmp1 = key.compareTo(key1);
-                    int cmp2 = key.compareTo(key2);
-                    if (((policy1 == RangePolicy.EXCLUSIVE && cmp1 > 0) || (policy1 == RangePolicy.INCLUSIVE && cmp1 >= 0))
-                            && ((policy2 == RangePolicy.EXCLUSIVE && cmp2 < 0) || (policy2 == RangePolicy.INCLUSIVE && cmp2 <= 0)))
-                        result.add(value);
-                    else if ((policy2 == RangePolicy.EXCLUSIVE && cmp2 >= 0)
-                            || (policy2 == RangePolicy.INCLUSIVE && cmp2 > 0))
-                        return result;
-                }
-                node = node.next;
-            }
-            return result;
+        K getFloorKey(K key) {
+            int loc = Collections.binarySearch(keys, key);
+            int index = loc >= 0 ? loc : -loc - 2;
+            return index >= 0 ? keys.get(index) : null;
+        }
+
+        @Override
+        K getCeilingKey(K key) {
+            int loc = Collections.binarySearch(keys, key);
+            int index = loc >= 0 ? loc : -loc - 1;
+            return index < keys.size() ? keys.get(index) : null;
         }
 
         @Override
@@ -381,6 +974,8 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
             keys.addAll(node.keys);
             values.addAll(node.values);
             next = node.next;
+            if (next != null)
+                next.prev = this;
         }
 
         @Override
@@ -394,10 +989,41 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
             values.subList(from, to).clear();
 
             sibling.next = next;
+            sibling.prev = this;
+            if (next != null)
+                next.prev = sibling;
             next = sibling;
             return sibling;
         }
 
+        @Override
+        List<Node> splitAll() {
+            int n = keyNumber();
+            int pieces = (n + branchingFactor - 2) / (branchingFactor - 1);
+            List<Node> siblings = new ArrayList<Node>(Math.max(pieces - 1, 0));
+            LeafNode last = this;
+            for (int p = 1; p < pieces; p++) {
+                int from = (int) ((long) n * p / pieces), to = (int) ((long) n * (p + 1) / pieces);
+                LeafNode sibling = new LeafNode();
+                sibling.keys.addAll(keys.subList(from, to));
+                sibling.values.addAll(values.subList(from, to));
+                sibling.next = last.next;
+                sibling.prev = last;
+                if (last.next != null)
+                    last.next.prev = sibling;
+                last.next = sibling;
+                last = sibling;
+                siblings.add(sibling);
+            }
+            if (pieces > 1) {
+                keys.subList(n / pieces, n).clear();
+                values.subList(n / pieces, n).clear();
+                if (metrics != null)
+                    metrics.split(pieces - 1);
+            }
+            return siblings;
+        }
+
         @Override
         boolean isOverflow() {
             return values.size() > branchingFactor - 1;
@@ -408,4 +1034,135 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
             return values.size() < branchingFactor / 2;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * A position in the leaf chain that moves through a key range one entry
+     * at a time. The upper (or, descending, lower) bound is checked with a
+     * single comparison per entry.
+     */
+    public final class Cursor {
+        private final K end;
+        private final boolean endInclusive;
+        private final boolean descending;
+        private LeafNode leaf;
+        private int index;
+
+        private Cursor(K start, RangePolicy startPolicy, K end, RangePolicy endPolicy,
+                       boolean descending) {
+            this.end = end;
+            this.endInclusive = endPolicy == RangePolicy.INCLUSIVE;
+            this.descending = descending;
+            if (start == null) {
+                leaf = edgeLeaf(descending);
+                index = descending ? leaf.keyNumber() : -1;
+                return;
+            }
+            leaf = findLeaf(start);
+            int loc = Collections.binarySearch(leaf.keys, start);
+            boolean inclusive = startPolicy == RangePolicy.INCLUSIVE;
+            // index is placed one step before the first entry to return
+            if (descending)
+                index = loc >= 0 ? (inclusive ? loc + 1 : loc) : -loc - 1;
+            else
+                index = loc >= 0 ? (inclusive ? loc - 1 : loc) : -loc - 2;
+        }
+
+        /**
+         * Moves to the next entry of the range.
+         *
+         * @return {@code false} if the range is exhausted
+         */
+        public boolean next() {
+            if (leaf == null)
+                return false;
+            if (descending) {
+                while (--index < 0) {
+                    leaf = leaf.prev;
+                    if (leaf == null)
+                        return false;
+                    index = leaf.keyNumber();
+                }
+            } else {
+                while (++index >= leaf.keyNumber()) {
+                    leaf = leaf.next;
+                    if (leaf == null)
+                        return false;
+                    index = -1;
+                }
+            }
+            if (end != null) {
+                int cmp = leaf.keys.get(index).compareTo(end);
+                if (descending ? cmp < 0 || (cmp == 0 && !endInclusive)
+                        : cmp > 0 || (cmp == 0 && !endInclusive)) {
+                    leaf = null;
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Returns the key of the current entry.
+         *
+         * @throws NoSuchElementException if {@link #next()} has not returned
+         *                                {@code true}
+         */
+        public K getKey() {
+            checkPosition();
+            return leaf.keys.get(index);
+        }
+
+        /**
+         * Returns the value of the current entry.
+         *
+         * @throws NoSuchElementException if {@link #next()} has not returned
+         *                                {@code true}
+         */
+        public V getValue() {
+            checkPosition();
+            return leaf.values.get(index);
+        }
+
+        private void checkPosition() {
+            if (leaf == null || index < 0 || index >= leaf.keyNumber())
+                throw new NoSuchElementException();
+        }
+    }
+
+    private class RangeSpliterator implements Spliterator<V> {
+        private final Cursor cursor;
+
+        RangeSpliterator(Cursor cursor) {
+            this.cursor = cursor;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super V> action) {
+            if (!cursor.next())
+                return false;
+            action.accept(cursor.getValue());
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super V> action) {
+            while (cursor.next())
+                action.accept(cursor.leaf.values.get(cursor.index));
+        }
+
+        @Override
+        public Spliterator<V> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED;
+        }
+    }
+}
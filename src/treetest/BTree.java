@@ -1,6 +1,18 @@
 package treetest;
 
-import java.util.LinkedList;
+import treetest.metrics.TreeMetrics;
+import treetest.metrics.TreeShape;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
 
 /**
  * B树 BTree<br/>
@@ -23,26 +35,87 @@ import java.util.LinkedList;
  * 		a 除根结点外每个结点(包括叶结点)至少m/2-1(向上取整)个关键字；如果树非空，则根结点至少1个关键字；
  * 		b 每个结点至多m-1个关键字(即至多m个子结点)
  */
-public class BTree<K extends Comparable<K>> {
-    private int degree = 2; // 度数，取以2开始的自然数
-    private int order = 2 * degree; // 阶数，通常取偶数
-    private int max = order - 1; // 关键字个数上界
-    private int min = (int) Math.ceil(order / 2.0) - 1; // 关键字个数下界，因为阶数是偶数所以其实就是degree-1
-    private BTreeNode<K> root = new BTreeNode<>(); // 根结点。树都是由1个根结点构成，所有其它结点都直接或间接被根结点指向
+public class BTree<K extends Comparable<K>> implements OrderedIndex<K, Object>, TreeShape {
+    private static final int DEFAULT_DEGREE = 2;
+
+    private final int degree; // 度数，取以2开始的自然数
+    private final int order; // 阶数，通常取偶数
+    private final int max; // 关键字个数上界
+    private final int min; // 关键字个数下界，因为阶数是偶数所以其实就是degree-1
+    private BTreeNode<K> root; // 根结点。树都是由1个根结点构成，所有其它结点都直接或间接被根结点指向
     private int size; // 树的大小(即关键字个数)
+    private int linearSearchThreshold = 8; // 结点内关键字个数不超过该值时顺序查找，否则二分查找
+    private final TreeMetrics metrics; // 统计信息，未开启统计时为null
 
     public BTree() {
-
+        this(DEFAULT_DEGREE);
     }
 
+    /**
+     * 阶数、关键字个数的上下界都由度数决定，必须在创建根结点之前计算
+     * @param degree 度数，阶数为2 * degree
+     */
     public BTree(int degree) {
+        this(degree, false);
+    }
+
+    /**
+     * @param degree 度数，阶数为2 * degree
+     * @param collectMetrics 是否统计分裂、合并、借用次数和查找经过的结点数
+     */
+    public BTree(int degree, boolean collectMetrics) {
+        if (degree < 2) {
+            throw new IllegalArgumentException("Illegal degree: " + degree);
+        }
         this.degree = degree;
+        order = 2 * degree;
+        max = order - 1;
+        min = (int) Math.ceil(order / 2.0) - 1;
+        root = new BTreeNode<>(max, true);
+        metrics = collectMetrics ? new TreeMetrics(this) : null;
+    }
+
+    /**
+     * @return 统计信息，构造时未开启统计则为null
+     */
+    @Override
+    public TreeMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 关键字数组(max = 2 * degree - 1个引用)不超过nodeBytes字节的最大度数
+     * @param nodeBytes 目标字节数，通常取缓存行的整数倍
+     * @return
+     */
+    public static int degreeFor(int nodeBytes) {
+        int degree = (NodeSizing.slots(nodeBytes, NodeSizing.REFERENCE_BYTES) + 1) / 2;
+        if (degree < 2) {
+            throw new IllegalArgumentException("Node size too small: " + nodeBytes);
+        }
+        return degree;
     }
 
     public int getDegree() {
         return degree;
     }
 
+    public int getOrder() {
+        return order;
+    }
+
+    public int getLinearSearchThreshold() {
+        return linearSearchThreshold;
+    }
+
+    /**
+     * 设置结点内顺序查找的阈值，0表示总是二分查找
+     * @param linearSearchThreshold
+     */
+    public void setLinearSearchThreshold(int linearSearchThreshold) {
+        this.linearSearchThreshold = linearSearchThreshold;
+    }
+
     public BTreeNode<K> getRoot() {
         return root;
     }
@@ -64,10 +137,7 @@ public class BTree<K extends Comparable<K>> {
         if (root == null || key == null) {
             return null;
         }
-        int i = 0;
-        while (i < root.n && key.compareTo(root.getKey(i)) > 0) { // 注意：数组下标从0开始
-            i++;
-        }
+        int i = lowerBound(root, key); // 注意：数组下标从0开始
         if (i < root.n && key.compareTo(root.getKey(i)) == 0) { // 在结点中找到关键字
             return new Result<>(root, i);
         } else if (root.leaf) { // 遍历完毕未找到关键字
@@ -84,26 +154,35 @@ public class BTree<K extends Comparable<K>> {
      * @return
      */
     public boolean insert(K key) {
-        boolean result = insert(root, key);
+        return insert(key, null);
+    }
+
+    /**
+     * 插入关键字及其对应的值
+     * @param key
+     * @param value
+     * @return
+     */
+    public boolean insert(K key, Object value) {
+        boolean result = insert(root, key, value);
         if (result) {
             size++;
         }
         return result;
     }
 
-    private boolean insert(BTreeNode<K> root, K key) {
+    private boolean insert(BTreeNode<K> root, K key, Object value) {
         if (root == null || key == null) {
             return false;
         }
         if (root.n == max) { // 根结点为满而需要分裂的特殊情形
-            BTreeNode<K> newNode = new BTreeNode<>(); // 新的根结点，高度增加
+            BTreeNode<K> newNode = new BTreeNode<>(max, false); // 新的根结点，高度增加
             this.root = newNode;
-            newNode.addNode(root);
-            newNode.leaf = false; // 因为子结点列表nodeList有元素，所以不是叶结点
+            newNode.nodes[0] = root; // 因为有子结点，所以不是叶结点
             split(newNode, 0);
-            return insertWithoutFull(newNode, key);
+            return insertWithoutFull(newNode, key, value);
         } else {
-            return insertWithoutFull(root, key);
+            return insertWithoutFull(root, key, value);
         }
     }
 
@@ -112,30 +191,20 @@ public class BTree<K extends Comparable<K>> {
      * 并不是指参数root为根的树其所有结点都非满
      * @param root
      * @param key
+     * @param value
      * @return
      */
-    private boolean insertWithoutFull(BTreeNode<K> root, K key) {
+    private boolean insertWithoutFull(BTreeNode<K> root, K key, Object value) {
         if (root == null || key == null) {
             return false;
         }
-        int i = root.n - 1; // 关键字下标
+        int i = upperBound(root, key); // 第一个大于key的关键字下标，相同的关键字插入到已有关键字之后
         if (root.leaf) { // 注意：存在子结点为满的结点必须先分裂，所以必然是插入到分解后的叶结点
-            while (i >= 0 && key.compareTo(root.getKey(i)) < 0) {
-                i--;
-            }
-            if (i < root.n - 1) {
-                root.addKey(i + 1, key);
-            } else {
-                root.addKey(key);
-            }
-            root.n++;
+            root.insert(i, key, value, null);
             // 注意：BTree的实际应用中，此处需要将root的关键字从主存写入到磁盘
             return true;
         } else {
-            while (i >= 0 && key.compareTo(root.getKey(i)) < 0) {
-                i--;
-            }
-            i++; // 因为子结点个数比关键字个数多1
+            // 因为子结点个数比关键字个数多1，所以下标i的子结点恰好是key所属的子结点
             // 注意：BTree的实际应用中，此处需要将root的下标为i的子结点的关键字从磁盘读取到主存
             if (root.getNode(i).n == max) { // root结点需要分裂，root结点的该子结点是满的，并不是指root是满的
                 split(root, i);
@@ -143,7 +212,7 @@ public class BTree<K extends Comparable<K>> {
                     i++;
                 }
             }
-            return insertWithoutFull(root.getNode(i), key);
+            return insertWithoutFull(root.getNode(i), key, value);
         }
     }
 
@@ -161,42 +230,29 @@ public class BTree<K extends Comparable<K>> {
      * @param i 分裂位置，即需要分裂的结点的子结点下标，即该子结点是满的
      */
     private void split(BTreeNode<K> target, int i) { // 注意：总是 i <= target.n
+        if (metrics != null) {
+            metrics.split();
+        }
         BTreeNode<K> leftNode = target.getNode(i);
-        BTreeNode<K> rightNode = new BTreeNode<>();
-        rightNode.leaf = leftNode.leaf;
-        rightNode.n = min; // 分裂后的两个子结点的关键字个数其实就是BTree允许的最小关键字个数
+        BTreeNode<K> rightNode = new BTreeNode<>(max, leftNode.leaf);
+        int n = leftNode.n; // 满结点，即max = 2 * min + 1
 
-        // 处理分裂后的新增子结点以及原子结点
-        for (int j = 0; j < min; j++) { // 通常 min = degree - 1
-            // 注意：这里不能使用add(i, e)方法添加元素
-            rightNode.addKey(leftNode.getKey(j + min + 1));
-        }
+        // 下标min之后的关键字及子结点整体复制到新增子结点，分裂后两个子结点的关键字个数其实就是BTree允许的最小关键字个数
+        System.arraycopy(leftNode.keys, min + 1, rightNode.keys, 0, n - min - 1);
+        System.arraycopy(leftNode.values, min + 1, rightNode.values, 0, n - min - 1);
         if (!leftNode.leaf) {
-            for (int j = 0; j < min + 1; j++) {
-                rightNode.addNode(leftNode.getNode(j + min + 1));
-            }
+            System.arraycopy(leftNode.nodes, min + 1, rightNode.nodes, 0, n - min);
         }
+        rightNode.n = n - min - 1;
 
-        // 处理需要分裂的结点
-        if (i == target.n) { // target的下标target.n的子结点(即最右边子结点)是满的
-            // 关键字及子结点不需要移位
-            target.addKey(leftNode.getKey(min));
-            target.addNode(rightNode);
-        } else { // target的下标i(0,1,2,...,target.n-1)的子结点是满的
-            // 关键字及子结点需要移位
-            target.addKey(i, leftNode.getKey(min));
-            target.addNode(i + 1, rightNode);
-        }
-        target.n++;
+        // 下标min的关键字提升到target的下标i处，新增子结点作为target的下标i+1的子结点，其后的关键字及子结点右移
+        target.insert(i, leftNode.getKey(min), leftNode.getValue(min), rightNode);
 
-        // 处理分裂后的原子结点
-        for (int j = 0; j < min + 1; j++) { // 提升到父结点的关键字也会被删除
-            leftNode.removeLastKey();
-        }
+        // 处理分裂后的原子结点，提升到父结点的关键字也会被删除
+        Arrays.fill(leftNode.keys, min, n, null);
+        Arrays.fill(leftNode.values, min, n, null);
         if (!leftNode.leaf) {
-            for (int j = 0; j < min + 1; j++) {
-                leftNode.removeLastNode();
-            }
+            Arrays.fill(leftNode.nodes, min + 1, n + 1, null);
         }
         leftNode.n = min;
         // 注意：BTree的实际应用中，此处需要将target、leftNode、rightNode的关键字从主存写入到磁盘
@@ -224,43 +280,36 @@ public class BTree<K extends Comparable<K>> {
      * @return
      */
     private void delete(BTreeNode<K> root, K key) {
-        int i = 0;
-        while (i < root.n && key.compareTo(root.getKey(i)) > 0) { // 注意：数组下标从0开始
-            i++;
-        }
-        if (i < root.n && key.compareTo(root.getKey(i)) == 0) { // key在当前结点中(即在当前结点的关键字列表中)
+        int i = lowerBound(root, key); // 注意：数组下标从0开始
+        if (i < root.n && key.compareTo(root.getKey(i)) == 0) { // key在当前结点中(即在当前结点的关键字数组中)
             if (root.leaf) { // 情形1
-                root.keyList.remove(i);
-                root.n--;
+                root.remove(i);
             } else { // 情形2
                 BTreeNode<K> leftNode = root.getNode(i);
                 BTreeNode<K> rightNode = root.getNode(i + 1);
                 if (leftNode.n > min) { // 情形2a
-                    K newKey = leftNode.keyList.getLast();
-                    root.keyList.remove(i);
-                    root.addKey(newKey);
+                    // 用key的前驱(左子树中最大的关键字)替换key，再从左子树中删除前驱
+                    BTreeNode<K> node = leftNode;
+                    while (!node.leaf) {
+                        node = node.getNode(node.n);
+                    }
+                    K newKey = node.getKey(node.n - 1);
+                    Object newValue = node.getValue(node.n - 1);
                     delete(leftNode, newKey);
+                    root.setKey(i, newKey, newValue);
                 } else if (rightNode.n > min) { // 情形2b
-                    // 情形2b与情形2a是对称情形
-                    K newKey = rightNode.keyList.getFirst();
-                    root.keyList.remove(i);
-                    root.addKey(newKey);
+                    // 情形2b与情形2a是对称情形，用key的后继(右子树中最小的关键字)替换key
+                    BTreeNode<K> node = rightNode;
+                    while (!node.leaf) {
+                        node = node.getNode(0);
+                    }
+                    K newKey = node.getKey(0);
+                    Object newValue = node.getValue(0);
                     delete(rightNode, newKey);
+                    root.setKey(i, newKey, newValue);
                 } else { // 情形2c
-                    leftNode.addKey(key);
-                    leftNode.n++;
-                    for (int j = 0; j < min; j++) {
-                        leftNode.addKey(rightNode.getKey(j));
-                        leftNode.n++;
-                    }
-                    if (!leftNode.leaf) {
-                        for (int j = 0; j < min + 1; j++) {
-                            leftNode.addNode(rightNode.getNode(j));
-                        }
-                    }
-                    root.keyList.remove(i);
-                    root.nodeList.remove(i + 1);
-                    root.n--;
+                    // key和rightNode都合并到leftNode中，leftNode的关键字个数变为2*min+1
+                    merge(root, i);
                     if (root.n == 0) { // 说明入参root是根结点
                         // 树的高度缩减1
                         this.root = leftNode;
@@ -268,78 +317,471 @@ public class BTree<K extends Comparable<K>> {
                     delete(leftNode, key);
                 }
             }
-        }  else { // key在当前结点下标为i的子树中
+        } else if (!root.leaf) { // key在当前结点下标为i的子树中
             BTreeNode<K> childNode = root.getNode(i);
             if (childNode.n == min) { // 情形3
                 // 不论key是在childNode中还是在childNode的子树中，总是保证本次迭代后childNode至少min+1个关键字
                 if (i > 0 && root.getNode(i - 1).n > min) { // 情形3a
                     // childNode的左邻兄弟结点有可借关键字
-                    BTreeNode<K> leftNode = root.getNode(i - 1);
-                    childNode.keyList.addFirst(root.getKey(i - 1));
-                    childNode.n++;
-                    root.keyList.set(i - 1, leftNode.keyList.removeLast());
-                    leftNode.n--;
-                    if (!childNode.leaf) { // 左邻兄弟结点的最后子结点也要借过去
-                        childNode.nodeList.addFirst(leftNode.nodeList.removeLast());
+                    if (metrics != null) {
+                        metrics.borrow();
                     }
-                    delete(childNode, key);
+                    BTreeNode<K> leftNode = root.getNode(i - 1);
+                    int last = leftNode.n - 1;
+                    // 父结点的关键字下移到childNode的最前面，左邻兄弟结点的最后关键字上移到父结点
+                    // 左邻兄弟结点的最后子结点也要借过去
+                    childNode.insertFirst(root.getKey(i - 1), root.getValue(i - 1),
+                            leftNode.leaf ? null : leftNode.nodes[last + 1]);
+                    root.setKey(i - 1, leftNode.getKey(last), leftNode.getValue(last));
+                    leftNode.remove(last);
                 } else if (i < root.n && root.getNode(i + 1).n > min) { // 情形3b
                     // childNode的右邻兄弟结点有可借关键字
                     // 情形3b情形3a是对称情形
-                    BTreeNode<K> rightNode = root.getNode(i + 1);
-                    childNode.keyList.addLast(root.getKey(i));
-                    childNode.n++;
-                    root.keyList.set(i, rightNode.keyList.removeFirst());
-                    rightNode.n--;
-                    if (!childNode.leaf) {// 右邻兄弟结点的第一个子结点也要借过去
-                        childNode.nodeList.addLast(rightNode.nodeList.removeFirst());
+                    if (metrics != null) {
+                        metrics.borrow();
                     }
-                    delete(childNode, key);
+                    BTreeNode<K> rightNode = root.getNode(i + 1);
+                    // 右邻兄弟结点的第一个子结点也要借过去
+                    childNode.insert(childNode.n, root.getKey(i), root.getValue(i),
+                            rightNode.leaf ? null : rightNode.nodes[0]);
+                    root.setKey(i, rightNode.getKey(0), rightNode.getValue(0));
+                    rightNode.removeFirst();
                 } else { // 情形3c
                     // childNode的相邻兄弟结点无可借关键字(注意：肯定有相邻兄弟结点)
                     // 当前结点要么是根结点，要么关键字个数必然大于min
                     // 当前结点不可能是关键字个数为min的非根结点的内部结点，因为前面已经保证了关键字个数至少min+1
-                    if (i > 0) { // childNode的左邻兄弟结点无可借关键字
-                        BTreeNode<K> leftNode = root.getNode(i - 1);
-                        childNode.keyList.addFirst(root.keyList.remove(i - 1));
-                        root.n--;
-                        childNode.n++;
-                        for (int j = min - 1; j >= 0; j--) {
-                            childNode.keyList.addFirst(leftNode.keyList.get(j));
-                            childNode.n++;
-                        }
-                        if (!childNode.leaf) {
-                            for (int j = min; j >= 0; j--) {
-                                childNode.nodeList.addFirst(leftNode.nodeList.get(j));
-                            }
-                        }
-                        root.nodeList.remove(i - 1);
-                    } else if (i < root.n) {  // childNode的右邻兄弟结点无可借关键字
-                        BTreeNode<K> rightNode = root.getNode(i + 1);
-                        childNode.keyList.addLast(root.keyList.remove(i));
-                        root.n--;
-                        childNode.n++;
-                        for (int j = 0; j <= min - 1; j++) {
-                            childNode.keyList.addLast(rightNode.keyList.get(j));
-                            childNode.n++;
-                        }
-                        if (!childNode.leaf) {
-                            for (int j = 0; j <= min; j++) {
-                                childNode.nodeList.addLast(rightNode.nodeList.get(j));
-                            }
-                        }
-                        root.nodeList.remove(i + 1);
+                    if (i > 0) { // childNode与左邻兄弟结点合并
+                        childNode = root.getNode(i - 1);
+                        merge(root, i - 1);
+                    } else { // childNode与右邻兄弟结点合并
+                        merge(root, i);
                     }
                     if (root.n == 0) { // 说明入参root是根结点
                         // 树的高度缩减1
                         this.root = childNode;
                     }
-                    delete(childNode, key);
                 }
+            }
+            delete(childNode, key);
+        }
+    }
+
+    /**
+     * 合并<br/>
+     * <br/>
+     * 将target的下标i的关键字以及下标i+1的子结点依次追加到下标i的子结点中，
+     * 两个子结点都只有min个关键字，因此合并后恰好是max个关键字
+     * @param target 被合并子结点的父结点
+     * @param i 关键字下标
+     */
+    private void merge(BTreeNode<K> target, int i) {
+        if (metrics != null) {
+            metrics.merge();
+        }
+        BTreeNode<K> leftNode = target.getNode(i);
+        BTreeNode<K> rightNode = target.getNode(i + 1);
+        int n = leftNode.n;
+        leftNode.keys[n] = target.getKey(i);
+        leftNode.values[n] = target.getValue(i);
+        System.arraycopy(rightNode.keys, 0, leftNode.keys, n + 1, rightNode.n);
+        System.arraycopy(rightNode.values, 0, leftNode.values, n + 1, rightNode.n);
+        if (!leftNode.leaf) {
+            System.arraycopy(rightNode.nodes, 0, leftNode.nodes, n + 1, rightNode.n + 1);
+        }
+        leftNode.n = n + 1 + rightNode.n;
+        target.remove(i); // 同时删除target的下标i+1的子结点，即rightNode
+        // 注意：BTree的实际应用中，此处需要将target、leftNode的关键字从主存写入到磁盘
+    }
+
+    /**
+     * 批量加载已按关键字升序排列的数据，结点装满
+     * @param entries
+     */
+    public void bulkLoad(Iterator<? extends Map.Entry<? extends K, ?>> entries) {
+        bulkLoad(entries, 1.0);
+    }
+
+    /**
+     * 批量加载已按关键字升序排列的数据，只能用于空树<br/>
+     * <br/>
+     * 自底而上逐层构造：先把全部数据读入数组，再把有序序列切分为若干个结点，相邻结点之间留出一个关键字，
+     * 这些留出的关键字按顺序构成上一层的序列，如此重复直至某一层的关键字可以放入一个结点(即根结点)；<br/>
+     * 每层的结点个数按装填因子计算，但保证每个结点的关键字个数都在[min, max]之间，各结点的关键字个数至多相差1；<br/>
+     * 整个过程是线性的，不需要像逐个插入那样每次都从根结点向下查找并分裂<br/>
+     * 关键字相同的连续数据只保留最后一个的值，与多次put的结果一致
+     * @param entries 按关键字升序排列的数据
+     * @param fillFactor 装填因子，取值(0, 1]，越小则留给之后插入的空位越多
+     */
+    public void bulkLoad(Iterator<? extends Map.Entry<? extends K, ?>> entries, double fillFactor) {
+        if (size != 0) {
+            throw new IllegalStateException("批量加载只能用于空树");
+        }
+        if (!(fillFactor > 0 && fillFactor <= 1)) {
+            throw new IllegalArgumentException("Illegal fill factor: " + fillFactor);
+        }
+        List<Object> keyList = new ArrayList<>();
+        List<Object> valueList = new ArrayList<>();
+        K last = null;
+        while (entries.hasNext()) {
+            Map.Entry<? extends K, ?> entry = entries.next();
+            K key = entry.getKey();
+            if (last != null) {
+                int cmp = key.compareTo(last);
+                if (cmp < 0) {
+                    throw new IllegalArgumentException("Keys not in ascending order: " + key + " after " + last);
+                }
+                if (cmp == 0) { // 相同关键字用后面的值覆盖
+                    valueList.set(valueList.size() - 1, entry.getValue());
+                    continue;
+                }
+            }
+            keyList.add(key);
+            valueList.add(entry.getValue());
+            last = key;
+        }
+
+        int target = Math.max(min, (int) Math.round(max * fillFactor)); // 每个结点期望的关键字个数
+        Object[] keys = keyList.toArray();
+        Object[] values = valueList.toArray();
+        int n = keys.length;
+        BTreeNode<K>[] children = null; // 下一层的结点，叶结点层为null
+        while (n > max) {
+            // 结点个数parts满足：每个结点关键字不多于target(也就不多于max)，并且不少于min
+            int parts = Math.min((n + target + 1) / (target + 1), (n + 1) / (min + 1));
+            int base = (n + 1) / parts - 1; // n个关键字中parts-1个留给上一层，其余平均分配给parts个结点
+            int extra = (n + 1) % parts; // 前extra个结点多分配一个关键字
+            Object[] upperKeys = new Object[parts - 1];
+            Object[] upperValues = new Object[parts - 1];
+            @SuppressWarnings("unchecked") // 数组元素只存放BTreeNode<K>
+            BTreeNode<K>[] nodes = (BTreeNode<K>[]) new BTreeNode<?>[parts];
+            int from = 0;
+            int child = 0;
+            for (int p = 0; p < parts; p++) {
+                int k = p < extra ? base + 1 : base;
+                nodes[p] = newNode(keys, values, from, k, children, child);
+                from += k;
+                child += k + 1;
+                if (p < parts - 1) {
+                    upperKeys[p] = keys[from];
+                    upperValues[p] = values[from];
+                    from++;
+                }
+            }
+            keys = upperKeys;
+            values = upperValues;
+            n = parts - 1;
+            children = nodes;
+        }
+        root = newNode(keys, values, 0, n, children, 0);
+        size = keyList.size();
+    }
+
+    /**
+     * 先按关键字排序(稳定排序，相同关键字以批中最后一个为准)，再批量加载
+     * @param entries
+     * @param fillFactor
+     */
+    public void sortAndBulkLoad(Collection<? extends Map.Entry<? extends K, ?>> entries, double fillFactor) {
+        List<Map.Entry<? extends K, ?>> sorted = new ArrayList<>(entries);
+        sorted.sort((e1, e2) -> e1.getKey().compareTo(e2.getKey()));
+        bulkLoad(sorted.iterator(), fillFactor);
+    }
+
+    /**
+     * 用数组中下标from开始的k个关键字创建结点，children不为null时其下标child开始的k+1个结点作为子结点
+     */
+    private BTreeNode<K> newNode(Object[] keys, Object[] values, int from, int k, BTreeNode<K>[] children, int child) {
+        BTreeNode<K> node = new BTreeNode<>(max, children == null);
+        System.arraycopy(keys, from, node.keys, 0, k);
+        System.arraycopy(values, from, node.values, 0, k);
+        if (children != null) {
+            System.arraycopy(children, child, node.nodes, 0, k + 1);
+        }
+        node.n = k;
+        return node;
+    }
+
+    /**
+     * 批量查找，results[i]为keys[i]对应的值，关键字不存在时为null<br/>
+     * 先对关键字排序，再从根结点向下，在每个结点内把有序的关键字与结点的关键字归并，
+     * 依次分给各个子结点，每个结点只访问一次
+     * @param keys
+     * @param results 长度不小于keys.length
+     */
+    @Override
+    public void getAll(K[] keys, Object[] results) {
+        SortedProbes.prepare(keys.length, results);
+        int[] order = SortedProbes.order(keys);
+        getAll(root, keys, order, 0, order.length, results);
+    }
+
+    /**
+     * 查找keys[order[from, to)]
+     */
+    private void getAll(BTreeNode<K> node, K[] keys, int[] order, int from, int to, Object[] results) {
+        int j = from;
+        for (int i = 0; i <= node.n && j < to; i++) {
+            // 小于第i个关键字的都在第i个子结点中
+            int end = j;
+            while (end < to && (i == node.n || keys[order[end]].compareTo(node.getKey(i)) < 0)) {
+                end++;
+            }
+            if (!node.leaf && end > j) {
+                getAll(node.getNode(i), keys, order, j, end, results);
+            }
+            j = end;
+            // 等于第i个关键字的
+            while (i < node.n && j < to && keys[order[j]].compareTo(node.getKey(i)) == 0) {
+                results[order[j++]] = node.getValue(i);
+            }
+        }
+    }
+
+    @Override
+    public Object put(K key, Object value) {
+        Result<K> result = search(key);
+        if (result != null) {
+            Object old = result.node.getValue(result.index);
+            result.node.setValue(result.index, value);
+            return old;
+        }
+        insert(key, value);
+        return null;
+    }
+
+    /**
+     * 查找关键字对应的值，开启统计时记录经过的结点数
+     */
+    @Override
+    public Object get(K key) {
+        if (metrics == null) {
+            Result<K> result = search(key);
+            return result == null ? null : result.node.getValue(result.index);
+        }
+        if (key == null) {
+            return null;
+        }
+        int visits = 0;
+        BTreeNode<K> node = root;
+        while (true) {
+            visits++;
+            int i = lowerBound(node, key);
+            if (i < node.n && key.compareTo(node.getKey(i)) == 0) {
+                metrics.lookup(visits);
+                return node.getValue(i);
+            }
+            if (node.leaf) {
+                metrics.lookup(visits);
+                return null;
+            }
+            node = node.getNode(i);
+        }
+    }
+
+    @Override
+    public Object remove(K key) {
+        Result<K> result = search(key);
+        if (result == null) {
+            return null;
+        }
+        Object old = result.node.getValue(result.index);
+        delete(root, key);
+        size--;
+        return old;
+    }
+
+    /**
+     * 查找小于等于key的最大关键字
+     * @param key
+     * @return
+     */
+    @Override
+    public K floor(K key) {
+        K floor = null;
+        BTreeNode<K> node = root;
+        while (true) {
+            int i = upperBound(node, key);
+            if (i > 0) {
+                floor = node.getKey(i - 1);
+                if (key.compareTo(floor) == 0) {
+                    return floor;
+                }
+            }
+            if (node.leaf) {
+                return floor;
+            }
+            // 下标i的子结点中的关键字都在getKey(i-1)与getKey(i)之间
+            node = node.getNode(i);
+        }
+    }
+
+    /**
+     * 查找大于等于key的最小关键字
+     * @param key
+     * @return
+     */
+    @Override
+    public K ceiling(K key) {
+        K ceiling = null;
+        BTreeNode<K> node = root;
+        while (true) {
+            int i = lowerBound(node, key);
+            if (i < node.n) {
+                ceiling = node.getKey(i);
+                if (key.compareTo(ceiling) == 0) {
+                    return ceiling;
+                }
+            }
+            if (node.leaf) {
+                return ceiling;
+            }
+            node = node.getNode(i);
+        }
+    }
+
+    /**
+     * 范围查询
+     * @param from 下界(包含)
+     * @param to 上界(包含)
+     * @return
+     */
+    @Override
+    public List<Object> range(K from, K to) {
+        List<Object> result = new ArrayList<>();
+        range(root, from, to, result);
+        return result;
+    }
+
+    /**
+     * 按中序遍历的顺序收集[from, to]中的值，跳过不可能包含结果的子结点
+     */
+    private void range(BTreeNode<K> root, K from, K to, List<Object> result) {
+        for (int i = lowerBound(root, from); i <= root.n; i++) {
+            if (!root.leaf) {
+                range(root.getNode(i), from, to, result);
+            }
+            if (i == root.n || to.compareTo(root.getKey(i)) < 0) {
+                return;
+            }
+            result.add(root.getValue(i));
+        }
+    }
+
+    /**
+     * 中序遍历
+     * @param action
+     */
+    @Override
+    public void forEach(BiConsumer<? super K, ? super Object> action) {
+        forEach(root, action);
+    }
+
+    private void forEach(BTreeNode<K> node, BiConsumer<? super K, ? super Object> action) {
+        for (int i = 0; i < node.n; i++) {
+            if (!node.leaf) {
+                forEach(node.getNode(i), action);
+            }
+            action.accept(node.getKey(i), node.getValue(i));
+        }
+        if (!node.leaf) {
+            forEach(node.getNode(node.n), action);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 结点内查找第一个大于等于key的关键字下标，不存在时返回node.n
+     */
+    private int lowerBound(BTreeNode<K> node, K key) {
+        return indexOf(node, key, 0);
+    }
+
+    /**
+     * 结点内查找第一个大于key的关键字下标，不存在时返回node.n
+     */
+    private int upperBound(BTreeNode<K> node, K key) {
+        return indexOf(node, key, -1);
+    }
+
+    /**
+     * 结点内查找<br/>
+     * <br/>
+     * 关键字升序存放，因此满足key.compareTo(关键字) > bound的关键字都在前面，返回这些关键字的个数；<br/>
+     * 关键字个数不超过linearSearchThreshold时顺序比较全部关键字并累加比较结果，
+     *      循环中没有提前退出的分支，JIT可以用条件传送代替跳转，小结点上避免了分支预测失败；<br/>
+     * 否则二分查找，比较次数从O(n)降为O(log n)
+     * @param node
+     * @param key
+     * @param bound 0或-1
+     * @return
+     */
+    private int indexOf(BTreeNode<K> node, K key, int bound) {
+        int n = node.n;
+        if (n <= linearSearchThreshold) {
+            int i = 0;
+            for (int j = 0; j < n; j++) {
+                i += key.compareTo(node.getKey(j)) > bound ? 1 : 0;
+            }
+            return i;
+        }
+        int low = 0;
+        int high = n;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (key.compareTo(node.getKey(mid)) > bound) {
+                low = mid + 1;
             } else {
-                delete(childNode, key);
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 获取树的高度，只有根结点时高度为1
+     * @return
+     */
+    @Override
+    public int getHeight() {
+        int height = 1;
+        for (BTreeNode<K> node = root; !node.leaf; node = node.getNode(0)) {
+            height++;
+        }
+        return height;
+    }
+
+    /**
+     * 获取结点总数，用显式栈遍历
+     * @return
+     */
+    @Override
+    public int getNodeCount() {
+        int count = 0;
+        Deque<BTreeNode<K>> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            BTreeNode<K> node = stack.pop();
+            count++;
+            if (!node.leaf) {
+                for (int i = 0; i <= node.n; i++) {
+                    stack.push(node.getNode(i));
+                }
             }
         }
+        return count;
+    }
+
+    /**
+     * 平均填充率：关键字总数 / (结点个数 * 每个结点的关键字个数上界)
+     * @return
+     */
+    @Override
+    public double getAverageFill() {
+        return size == 0 ? 0 : (double) size / ((long) getNodeCount() * max);
     }
 
     public void widthOrder() {
@@ -455,60 +897,130 @@ public class BTree<K extends Comparable<K>> {
     /**
      * BTree的结点类<br/>
      * <br/>
+     * 关键字、值、子结点都存放在按最大容量分配的数组中，插入、删除、分裂、合并时用System.arraycopy整体移位，
+     * 避免链表逐个结点查找下标以及每个关键字一次结点对象分配<br/>
      * 类是public权限但构造方法私有化并且仅提供公有getter方法，是为让其它类仅仅只可以获取该类的属性
      * @param <V>
      */
     public static class BTreeNode<V extends Comparable<V>> {
         private int n; // 关键字个数
-        private boolean leaf = true; // 是否叶结点
-        private LinkedList<V> keyList = new LinkedList<>(); // 关键字列表
-        private LinkedList<BTreeNode<V>> nodeList = new LinkedList<>(); // 子结点列表
+        private final boolean leaf; // 是否叶结点
+        private final Object[] keys; // 关键字数组，有效元素为[0, n)
+        private final Object[] values; // 值数组，与关键字数组一一对应
+        private final BTreeNode<V>[] nodes; // 子结点数组，有效元素为[0, n]，叶结点为null
 
-        private BTreeNode() {
+        @SuppressWarnings("unchecked") // 数组元素只存放BTreeNode<V>
+        private BTreeNode(int max, boolean leaf) {
+            this.leaf = leaf;
+            keys = new Object[max];
+            values = new Object[max];
+            nodes = leaf ? null : (BTreeNode<V>[]) new BTreeNode<?>[max + 1];
         }
 
         public boolean isLeaf() {
             return leaf;
         }
 
-        public LinkedList<V> getKeyList() {
-            return keyList;
+        public int getKeyNumber() {
+            return n;
         }
 
-        public LinkedList<BTreeNode<V>> getNodeList() {
-            return nodeList;
+        @SuppressWarnings("unchecked")
+        public List<V> getKeyList() {
+            return Collections.unmodifiableList((List<V>) (List<?>) Arrays.asList(keys).subList(0, n));
         }
 
-        public void addKey(V key) {
-            keyList.add(key);
+        public List<Object> getValueList() {
+            return Collections.unmodifiableList(Arrays.asList(values).subList(0, n));
+        }
+
+        public List<BTreeNode<V>> getNodeList() {
+            if (leaf) {
+                return Collections.emptyList();
+            }
+            return Collections.unmodifiableList(Arrays.asList(nodes).subList(0, n + 1));
         }
 
-        public void addKey(int index, V key) {
-            keyList.add(index, key);
+        @SuppressWarnings("unchecked")
+        public V getKey(int index) {
+            return (V) keys[index];
         }
 
-        public void addNode(BTreeNode<V> node) {
-            nodeList.add(node);
+        public Object getValue(int index) {
+            return values[index];
         }
 
-        public void addNode(int index, BTreeNode<V> node) {
-            nodeList.add(index, node);
+        public BTreeNode<V> getNode(int index) {
+            return nodes[index];
         }
 
-        public V getKey(int index) {
-            return keyList.get(index);
+        private void setKey(int index, V key, Object value) {
+            keys[index] = key;
+            values[index] = value;
         }
 
-        public BTreeNode<V> getNode(int index) {
-            return nodeList.get(index);
+        private void setValue(int index, Object value) {
+            values[index] = value;
+        }
+
+        /**
+         * 在下标index处插入关键字，node作为该关键字右边的子结点(即下标index+1的子结点)
+         */
+        private void insert(int index, V key, Object value, BTreeNode<V> node) {
+            System.arraycopy(keys, index, keys, index + 1, n - index);
+            System.arraycopy(values, index, values, index + 1, n - index);
+            keys[index] = key;
+            values[index] = value;
+            if (!leaf) {
+                System.arraycopy(nodes, index + 1, nodes, index + 2, n - index);
+                nodes[index + 1] = node;
+            }
+            n++;
         }
 
-        public void removeLastKey() {
-            keyList.removeLast();
+        /**
+         * 在最前面插入关键字，node作为新的第一个子结点
+         */
+        private void insertFirst(V key, Object value, BTreeNode<V> node) {
+            System.arraycopy(keys, 0, keys, 1, n);
+            System.arraycopy(values, 0, values, 1, n);
+            keys[0] = key;
+            values[0] = value;
+            if (!leaf) {
+                System.arraycopy(nodes, 0, nodes, 1, n + 1);
+                nodes[0] = node;
+            }
+            n++;
         }
 
-        public void removeLastNode() {
-            nodeList.removeLast();
+        /**
+         * 删除下标index的关键字以及它右边的子结点(即下标index+1的子结点)
+         */
+        private void remove(int index) {
+            n--;
+            System.arraycopy(keys, index + 1, keys, index, n - index);
+            System.arraycopy(values, index + 1, values, index, n - index);
+            keys[n] = null;
+            values[n] = null;
+            if (!leaf) {
+                System.arraycopy(nodes, index + 2, nodes, index + 1, n - index);
+                nodes[n + 1] = null;
+            }
+        }
+
+        /**
+         * 删除第一个关键字以及第一个子结点
+         */
+        private void removeFirst() {
+            n--;
+            System.arraycopy(keys, 1, keys, 0, n);
+            System.arraycopy(values, 1, values, 0, n);
+            keys[n] = null;
+            values[n] = null;
+            if (!leaf) {
+                System.arraycopy(nodes, 1, nodes, 0, n + 1);
+                nodes[n + 1] = null;
+            }
         }
     }
 }
@@ -0,0 +1,677 @@
+package treetest;
+
+import treetest.BPlusTree.RangePolicy;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * A thread-safe B+ tree using optimistic lock coupling.
+ *
+ * <p>
+ * Every node carries a version word. Readers never write shared memory: they
+ * remember the version of a node, read it, and check that the version has not
+ * changed before trusting what they read (and before moving on to a child, so
+ * consecutive nodes on the path are validated pairwise). If a check fails the
+ * operation restarts from the root. Writers take the same optimistic path
+ * down and only lock the leaf they change, or the node they split together
+ * with its parent; full nodes are split eagerly on the way down so a split
+ * never has to propagate upwards. Leaves are chained through {@code next}
+ * pointers, B-link style, and range scans hop along them, validating each
+ * leaf before following its link.
+ *
+ * <p>
+ * Deletes only remove the entry from its leaf; underfull nodes are not merged,
+ * which keeps writers to a single latch. Range scans see each leaf atomically
+ * but not the range as a whole.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public class ConcurrentBPlusTree<K extends Comparable<? super K>, V> implements OrderedIndex<K, V> {
+
+    /**
+     * The branching factor used when none specified in constructor.
+     */
+    private static final int DEFAULT_BRANCHING_FACTOR = 64;
+
+    /**
+     * Returned by index lookups that saw a node in the middle of a change.
+     */
+    private static final int INCONSISTENT = Integer.MIN_VALUE;
+
+    /**
+     * Returned by recursive reads whose validation failed.
+     */
+    private static final Object RESTART = new Object();
+
+    /**
+     * The version bit held by a writer.
+     */
+    private static final long LOCKED = 2;
+
+    private static final VarHandle VERSION;
+
+    static {
+        try {
+            VERSION = MethodHandles.lookup().findVarHandle(ConcurrentBPlusTree.Node.class, "version", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * The branching factor for the B+ tree, that measures the capacity of nodes
+     * (i.e., the number of children nodes) for internal nodes in the tree.
+     */
+    private final int branchingFactor;
+
+    /**
+     * The root node of the B+ tree.
+     */
+    private volatile Node root;
+
+    /**
+     * The number of key-value mappings in the B+ tree.
+     */
+    private final LongAdder size = new LongAdder();
+
+    public ConcurrentBPlusTree() {
+        this(DEFAULT_BRANCHING_FACTOR);
+    }
+
+    public ConcurrentBPlusTree(int branchingFactor) {
+        if (branchingFactor <= 2)
+            throw new IllegalArgumentException("Illegal branching factor: "
+                    + branchingFactor);
+        this.branchingFactor = branchingFactor;
+        root = new LeafNode();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        restart:
+        while (true) {
+            Node node = root;
+            long version = node.awaitUnlocked();
+            if (node != root)
+                continue;
+            while (node instanceof ConcurrentBPlusTree.InternalNode) {
+                InternalNode internal = (InternalNode) node;
+                Node child = internal.getChild(key);
+                if (child == null || !internal.validate(version))
+                    continue restart;
+                long childVersion = child.awaitUnlocked();
+                if (!internal.validate(version))
+                    continue restart;
+                node = child;
+                version = childVersion;
+            }
+            LeafNode leaf = (LeafNode) node;
+            int loc = leaf.indexOf(key);
+            if (loc == INCONSISTENT)
+                continue;
+            Object value = loc >= 0 ? leaf.values[loc] : null;
+            if (!leaf.validate(version))
+                continue;
+            return (V) value;
+        }
+    }
+
+    /**
+     * Associates the specified value with the specified key in this tree. If
+     * the tree previously contained a association for the key, the old value is
+     * replaced.
+     *
+     * @return the replaced value, or {@code null} if the key was absent
+     */
+    @Override
+    public V put(K key, V value) {
+        restart:
+        while (true) {
+            Node node = root;
+            long version = node.awaitUnlocked();
+            if (node != root)
+                continue;
+            InternalNode parent = null;
+            long parentVersion = 0;
+            while (true) {
+                if (node.isFull()) {
+                    // lock the parent before the node, as every writer does,
+                    // then split and start again from the root
+                    if (parent != null && !parent.tryLock(parentVersion))
+                        continue restart;
+                    if (!node.tryLock(version)) {
+                        if (parent != null)
+                            parent.unlock();
+                        continue restart;
+                    }
+                    if (parent == null && node != root) {
+                        node.unlock();
+                        continue restart;
+                    }
+                    split(parent, node);
+                    node.unlock();
+                    if (parent != null)
+                        parent.unlock();
+                    continue restart;
+                }
+                if (!(node instanceof ConcurrentBPlusTree.InternalNode))
+                    break;
+                if (parent != null && !parent.validate(parentVersion))
+                    continue restart;
+                InternalNode internal = (InternalNode) node;
+                Node child = internal.getChild(key);
+                if (child == null || !internal.validate(version))
+                    continue restart;
+                parent = internal;
+                parentVersion = version;
+                version = child.awaitUnlocked();
+                node = child;
+            }
+            LeafNode leaf = (LeafNode) node;
+            if (!leaf.tryLock(version))
+                continue;
+            if (parent != null && !parent.validate(parentVersion)) {
+                leaf.unlock();
+                continue;
+            }
+            V old = leaf.insertValue(key, value);
+            leaf.unlock();
+            return old;
+        }
+    }
+
+    /**
+     * Removes the association for the specified key from this tree if present.
+     *
+     * @return the removed value, or {@code null} if the key was absent
+     */
+    @Override
+    public V remove(K key) {
+        restart:
+        while (true) {
+            Node node = root;
+            long version = node.awaitUnlocked();
+            if (node != root)
+                continue;
+            InternalNode parent = null;
+            long parentVersion = 0;
+            while (node instanceof ConcurrentBPlusTree.InternalNode) {
+                InternalNode internal = (InternalNode) node;
+                Node child = internal.getChild(key);
+                if (child == null || !internal.validate(version))
+                    continue restart;
+                if (parent != null && !parent.validate(parentVersion))
+                    continue restart;
+                parent = internal;
+                parentVersion = version;
+                version = child.awaitUnlocked();
+                node = child;
+            }
+            LeafNode leaf = (LeafNode) node;
+            if (!leaf.tryLock(version))
+                continue;
+            if (parent != null && !parent.validate(parentVersion)) {
+                leaf.unlock();
+                continue;
+            }
+            V old = leaf.deleteValue(key);
+            leaf.unlock();
+            return old;
+        }
+    }
+
+    /**
+     * Returns the greatest key less than or equal to the given key, or
+     * {@code null} if there is no such key.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public K floor(K key) {
+        while (true) {
+            Node node = root;
+            long version = node.awaitUnlocked();
+            if (node != root)
+                continue;
+            Object floor = floor(node, version, key);
+            if (floor != RESTART)
+                return (K) floor;
+        }
+    }
+
+    /**
+     * Returns the least key greater than or equal to the given key, or
+     * {@code null} if there is no such key.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public K ceiling(K key) {
+        while (true) {
+            Node node = root;
+            long version = node.awaitUnlocked();
+            if (node != root)
+                continue;
+            Object ceiling = ceiling(node, version, key);
+            if (ceiling != RESTART)
+                return (K) ceiling;
+        }
+    }
+
+    /**
+     * Returns the values associated with the keys specified by the range:
+     * {@code key1} and {@code key2}, in key order.
+     *
+     * @param key1    the start key of the range
+     * @param policy1 the range policy, {@link RangePolicy#EXCLUSIVE} or
+     *                {@link RangePolicy#INCLUSIVE}
+     * @param key2    the end end of the range
+     * @param policy2 the range policy, {@link RangePolicy#EXCLUSIVE} or
+     *                {@link RangePolicy#INCLUSIVE}
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> searchRange(K key1, RangePolicy policy1, K key2,
+                               RangePolicy policy2) {
+        List<V> result = new ArrayList<V>();
+        K from = key1;
+        boolean fromInclusive = policy1 == RangePolicy.INCLUSIVE;
+        boolean toInclusive = policy2 == RangePolicy.INCLUSIVE;
+        List<Object> leafValues = new ArrayList<Object>();
+        restart:
+        while (true) {
+            Node node = root;
+            long version = node.awaitUnlocked();
+            if (node != root)
+                continue;
+            while (node instanceof ConcurrentBPlusTree.InternalNode) {
+                InternalNode internal = (InternalNode) node;
+                Node child = internal.getChild(from);
+                if (child == null || !internal.validate(version))
+                    continue restart;
+                long childVersion = child.awaitUnlocked();
+                if (!internal.validate(version))
+                    continue restart;
+                node = child;
+                version = childVersion;
+            }
+            LeafNode leaf = (LeafNode) node;
+            while (true) {
+                // copy out the matching entries of this leaf, and only keep
+                // them once the leaf is known not to have changed meanwhile
+                leafValues.clear();
+                K last = null;
+                boolean done = false;
+                int n = Math.min(leaf.n, leaf.keys.length);
+                for (int i = 0; i < n; i++) {
+                    K key = (K) leaf.keys[i];
+                    if (key == null)
+                        continue restart;
+                    int cmp = key.compareTo(from);
+                    if (cmp < 0 || (cmp == 0 && !fromInclusive))
+                        continue;
+                    cmp = key.compareTo(key2);
+                    if (cmp > 0 || (cmp == 0 && !toInclusive)) {
+                        done = true;
+                        break;
+                    }
+                    leafValues.add(leaf.values[i]);
+                    last = key;
+                }
+                LeafNode next = leaf.next;
+                if (!leaf.validate(version))
+                    continue restart;
+                for (Object value : leafValues)
+                    result.add((V) value);
+                if (last != null) {
+                    from = last;
+                    fromInclusive = false;
+                }
+                if (done || next == null)
+                    return result;
+                long nextVersion = next.awaitUnlocked();
+                if (!leaf.validate(version))
+                    continue restart;
+                leaf = next;
+                version = nextVersion;
+            }
+        }
+    }
+
+    @Override
+    public List<V> range(K from, K to) {
+        return searchRange(from, RangePolicy.INCLUSIVE, to, RangePolicy.INCLUSIVE);
+    }
+
+    /**
+     * Performs the given action for each entry in ascending key order. Like
+     * {@link #searchRange}, each leaf is copied out and validated before its
+     * entries are passed to the action, and after a restart the walk resumes
+     * after the last key reported, so concurrent writers are seen leaf by
+     * leaf but no key is reported twice or out of order.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        Object[] leafKeys = new Object[branchingFactor - 1];
+        Object[] leafValues = new Object[branchingFactor - 1];
+        K from = null; // the last key reported
+        restart:
+        while (true) {
+            Node node = root;
+            long version = node.awaitUnlocked();
+            if (node != root)
+                continue;
+            while (node instanceof ConcurrentBPlusTree.InternalNode) {
+                InternalNode internal = (InternalNode) node;
+                Node child = from == null ? internal.children[0] : internal.getChild(from);
+                if (child == null || !internal.validate(version))
+                    continue restart;
+                long childVersion = child.awaitUnlocked();
+                if (!internal.validate(version))
+                    continue restart;
+                node = child;
+                version = childVersion;
+            }
+            LeafNode leaf = (LeafNode) node;
+            while (true) {
+                int count = 0;
+                int n = Math.min(leaf.n, leaf.keys.length);
+                for (int i = 0; i < n; i++) {
+                    K key = (K) leaf.keys[i];
+                    if (key == null)
+                        continue restart;
+                    if (from != null && key.compareTo(from) <= 0)
+                        continue;
+                    leafKeys[count] = key;
+                    leafValues[count] = leaf.values[i];
+                    count++;
+                }
+                LeafNode next = leaf.next;
+                if (!leaf.validate(version))
+                    continue restart;
+                for (int i = 0; i < count; i++)
+                    action.accept((K) leafKeys[i], (V) leafValues[i]);
+                if (count > 0)
+                    from = (K) leafKeys[count - 1];
+                if (next == null)
+                    return;
+                long nextVersion = next.awaitUnlocked();
+                if (!leaf.validate(version))
+                    continue restart;
+                leaf = next;
+                version = nextVersion;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return (int) size.sum();
+    }
+
+    public int getBranchingFactor() {
+        return branchingFactor;
+    }
+
+    /**
+     * Splits a full, locked node. The parent, also locked, receives the new
+     * separator; without a parent the node is the root and a new root is
+     * installed above it.
+     */
+    private void split(InternalNode parent, Node node) {
+        Object separator;
+        Node sibling;
+        if (node instanceof ConcurrentBPlusTree.LeafNode) {
+            LeafNode leaf = (LeafNode) node;
+            LeafNode right = new LeafNode();
+            int n = leaf.n;
+            int from = (n + 1) / 2;
+            System.arraycopy(leaf.keys, from, right.keys, 0, n - from);
+            System.arraycopy(leaf.values, from, right.values, 0, n - from);
+            right.n = n - from;
+            right.next = leaf.next;
+            separator = right.keys[0];
+            leaf.n = from;
+            for (int i = from; i < n; i++) {
+                leaf.keys[i] = null;
+                leaf.values[i] = null;
+            }
+            leaf.next = right;
+            sibling = right;
+        } else {
+            InternalNode internal = (InternalNode) node;
+            InternalNode right = new InternalNode();
+            int n = internal.n;
+            int mid = n / 2;
+            separator = internal.keys[mid];
+            System.arraycopy(internal.keys, mid + 1, right.keys, 0, n - mid - 1);
+            System.arraycopy(internal.children, mid + 1, right.children, 0, n - mid);
+            right.n = n - mid - 1;
+            internal.n = mid;
+            for (int i = mid; i < n; i++) {
+                internal.keys[i] = null;
+                internal.children[i + 1] = null;
+            }
+            sibling = right;
+        }
+        if (parent == null) {
+            InternalNode newRoot = new InternalNode();
+            newRoot.keys[0] = separator;
+            newRoot.children[0] = node;
+            newRoot.children[1] = sibling;
+            newRoot.n = 1;
+            root = newRoot;
+        } else {
+            parent.insertChild(separator, sibling);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object floor(Node node, long version, K key) {
+        if (node instanceof ConcurrentBPlusTree.LeafNode) {
+            int loc = node.indexOf(key);
+            if (loc == INCONSISTENT)
+                return RESTART;
+            int index = loc >= 0 ? loc : -loc - 2;
+            Object floor = index >= 0 ? node.keys[index] : null;
+            return node.validate(version) ? floor : RESTART;
+        }
+        // every child left of the one covering the key holds only smaller
+        // keys, so the first non-empty answer walking leftwards is the floor
+        InternalNode internal = (InternalNode) node;
+        int childIndex = internal.getChildIndex(key);
+        if (childIndex == INCONSISTENT)
+            return RESTART;
+        for (int i = childIndex; i >= 0; i--) {
+            Object floor = readChild(internal, version, i, key, true);
+            if (floor != null)
+                return floor;
+        }
+        return null;
+    }
+
+    private Object ceiling(Node node, long version, K key) {
+        if (node instanceof ConcurrentBPlusTree.LeafNode) {
+            int loc = node.indexOf(key);
+            if (loc == INCONSISTENT)
+                return RESTART;
+            int index = loc >= 0 ? loc : -loc - 1;
+            Object ceiling = index < node.n ? node.keys[index] : null;
+            return node.validate(version) ? ceiling : RESTART;
+        }
+        InternalNode internal = (InternalNode) node;
+        int childIndex = internal.getChildIndex(key);
+        if (childIndex == INCONSISTENT)
+            return RESTART;
+        for (int i = childIndex; i < internal.children.length; i++) {
+            if (i > internal.n)
+                return internal.validate(version) ? null : RESTART;
+            Object ceiling = readChild(internal, version, i, key, false);
+            if (ceiling != null)
+                return ceiling;
+        }
+        return null;
+    }
+
+    private Object readChild(InternalNode internal, long version, int index, K key, boolean floor) {
+        Node child = internal.children[index];
+        if (child == null || !internal.validate(version))
+            return RESTART;
+        long childVersion = child.awaitUnlocked();
+        if (!internal.validate(version))
+            return RESTART;
+        return floor ? floor(child, childVersion, key) : ceiling(child, childVersion, key);
+    }
+
+    private abstract class Node {
+        /**
+         * Bit 1 is set while a writer holds the node; every unlock adds 2 more,
+         * so a reader sees a different value after any completed change.
+         */
+        volatile long version;
+        int n;
+        final Object[] keys;
+
+        Node(int capacity) {
+            keys = new Object[capacity];
+        }
+
+        long awaitUnlocked() {
+            long v;
+            while (((v = version) & LOCKED) != 0)
+                Thread.onSpinWait();
+            return v;
+        }
+
+        /**
+         * Returns whether the node is unchanged since {@code v} was read; the
+         * fence keeps the optimistic reads before this check.
+         */
+        boolean validate(long v) {
+            VarHandle.acquireFence();
+            return version == v;
+        }
+
+        boolean tryLock(long v) {
+            return VERSION.compareAndSet(this, v, v + LOCKED);
+        }
+
+        void unlock() {
+            version = version + LOCKED;
+        }
+
+        boolean isFull() {
+            return n >= keys.length;
+        }
+
+        /**
+         * Binary search with the result convention of
+         * {@link java.util.Arrays#binarySearch(Object[], Object)}, or
+         * {@link #INCONSISTENT} if a concurrent change was observed.
+         */
+        @SuppressWarnings("unchecked")
+        int indexOf(K key) {
+            int low = 0;
+            int high = Math.min(n, keys.length) - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                K midKey = (K) keys[mid];
+                if (midKey == null)
+                    return INCONSISTENT;
+                int cmp = midKey.compareTo(key);
+                if (cmp < 0)
+                    low = mid + 1;
+                else if (cmp > 0)
+                    high = mid - 1;
+                else
+                    return mid;
+            }
+            return -(low + 1);
+        }
+    }
+
+    private class InternalNode extends Node {
+        final Node[] children;
+
+        @SuppressWarnings("unchecked") // the array only ever holds this tree's nodes
+        InternalNode() {
+            super(branchingFactor - 1);
+            children = (Node[]) new ConcurrentBPlusTree<?, ?>.Node[branchingFactor];
+        }
+
+        int getChildIndex(K key) {
+            int loc = indexOf(key);
+            if (loc == INCONSISTENT)
+                return INCONSISTENT;
+            return loc >= 0 ? loc + 1 : -loc - 1;
+        }
+
+        /**
+         * @return the child covering the key, or {@code null} if a concurrent
+         * change was observed
+         */
+        Node getChild(K key) {
+            int childIndex = getChildIndex(key);
+            return childIndex == INCONSISTENT ? null : children[childIndex];
+        }
+
+        void insertChild(Object key, Node child) {
+            @SuppressWarnings("unchecked")
+            int loc = indexOf((K) key);
+            int index = -loc - 1;
+            System.arraycopy(keys, index, keys, index + 1, n - index);
+            System.arraycopy(children, index + 1, children, index + 2, n - index);
+            keys[index] = key;
+            children[index + 1] = child;
+            n++;
+        }
+    }
+
+    private class LeafNode extends Node {
+        final Object[] values;
+        volatile LeafNode next;
+
+        LeafNode() {
+            super(branchingFactor - 1);
+            values = new Object[branchingFactor - 1];
+        }
+
+        @SuppressWarnings("unchecked")
+        V insertValue(K key, V value) {
+            int loc = indexOf(key);
+            if (loc >= 0) {
+                V old = (V) values[loc];
+                values[loc] = value;
+                return old;
+            }
+            int index = -loc - 1;
+            System.arraycopy(keys, index, keys, index + 1, n - index);
+            System.arraycopy(values, index, values, index + 1, n - index);
+            keys[index] = key;
+            values[index] = value;
+            n++;
+            size.increment();
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        V deleteValue(K key) {
+            int loc = indexOf(key);
+            if (loc < 0)
+                return null;
+            V old = (V) values[loc];
+            n--;
+            System.arraycopy(keys, loc + 1, keys, loc, n - loc);
+            System.arraycopy(values, loc + 1, values, loc, n - loc);
+            keys[n] = null;
+            values[n] = null;
+            size.decrement();
+            return old;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package treetest;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A {@link PageStore} whose chunks are direct (off-heap) byte buffers.
+ *
+ * <p>
+ * The memory is released when the store becomes unreachable.
+ */
+public class DirectPageStore extends PageStore {
+
+    public DirectPageStore(int pageSize) {
+        this(pageSize, DEFAULT_CHUNK_BYTES);
+    }
+
+    public DirectPageStore(int pageSize, int chunkBytes) {
+        super(pageSize, chunkBytes);
+    }
+
+    @Override
+    protected ByteBuffer newChunk(int chunkIndex, int chunkBytes) {
+        return ByteBuffer.allocateDirect(chunkBytes).order(ByteOrder.nativeOrder());
+    }
+}
@@ -0,0 +1,236 @@
+package treetest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * 按Eytzinger(BFS)顺序存放的只读索引<br/>
+ * <br/>
+ * 由任意一棵int关键字的树冻结(freeze)得到：关键字和值按完全二叉树的层序存放在数组中，下标从1开始，
+ * 结点k的左右子结点为2k和2k+1，不需要任何指针；<br/>
+ * 查找时从k=1开始每层计算k = 2k + (keys[k] < key)，循环体没有依赖比较结果的分支，JIT可以生成条件传送；
+ * 树的上面几层集中在数组开头，总是留在缓存中，下面的层中同一个结点的后代在数组中相邻；<br/>
+ * 每个关键字只占用一个int和一个值引用，相比指针结构的树内存紧凑得多；<br/>
+ * 创建后不能修改，put和remove抛出UnsupportedOperationException
+ */
+public final class EytzingerIndex implements OrderedIndex<Integer, Object> {
+    private final int n;
+    private final int[] keys; // 下标0不使用
+    private final Object[] values;
+
+    private EytzingerIndex(int[] sortedKeys, Object[] sortedValues, int n) {
+        this.n = n;
+        keys = new int[n + 1];
+        values = new Object[n + 1];
+        // 按中序依次访问结点，填入升序排列的关键字
+        int k = first();
+        for (int i = 0; i < n; i++) {
+            keys[k] = sortedKeys[i];
+            values[k] = sortedValues[i];
+            k = successor(k);
+        }
+    }
+
+    /**
+     * 冻结一棵树，按forEach的升序读出全部键值对
+     * @param tree
+     * @return 包含树中当前所有键值对的只读索引，之后对树的修改不影响索引
+     */
+    public static EytzingerIndex freeze(OrderedIndex<Integer, ?> tree) {
+        int size = tree.size();
+        int[] sortedKeys = new int[size];
+        Object[] sortedValues = new Object[size];
+        int[] count = new int[1];
+        tree.forEach((key, value) -> {
+            int i = count[0]++;
+            if (i == size) {
+                throw new IllegalStateException("Tree has more entries than its size " + size);
+            }
+            sortedKeys[i] = key;
+            sortedValues[i] = value;
+        });
+        return of(sortedKeys, sortedValues, count[0]);
+    }
+
+    /**
+     * 由升序排列、不重复的关键字和对应的值创建索引
+     * @param sortedKeys
+     * @param sortedValues
+     * @param size 使用两个数组的前size个元素
+     * @return
+     */
+    public static EytzingerIndex of(int[] sortedKeys, Object[] sortedValues, int size) {
+        if (size < 0 || size > sortedKeys.length || size > sortedValues.length) {
+            throw new IllegalArgumentException("Illegal size: " + size);
+        }
+        for (int i = 1; i < size; i++) {
+            if (sortedKeys[i - 1] >= sortedKeys[i]) {
+                throw new IllegalArgumentException("Keys not in strictly ascending order: "
+                        + sortedKeys[i] + " after " + sortedKeys[i - 1]);
+            }
+        }
+        return new EytzingerIndex(sortedKeys, sortedValues, size);
+    }
+
+    /**
+     * 查找结点值
+     */
+    public Object get(int key) {
+        int k = lowerBound(key);
+        return k != 0 && keys[k] == key ? values[k] : null;
+    }
+
+    @Override
+    public Object get(Integer key) {
+        return get((int) key);
+    }
+
+    /**
+     * 批量查找，每个关键字独立查找，不需要排序
+     */
+    public void getAll(int[] batch, Object[] results) {
+        if (results.length < batch.length) {
+            throw new IllegalArgumentException("Results array too short: "
+                    + results.length + " < " + batch.length);
+        }
+        for (int i = 0; i < batch.length; i++) {
+            results[i] = get(batch[i]);
+        }
+    }
+
+    @Override
+    public Object put(Integer key, Object value) {
+        throw new UnsupportedOperationException("EytzingerIndex is read-only");
+    }
+
+    @Override
+    public Object remove(Integer key) {
+        throw new UnsupportedOperationException("EytzingerIndex is read-only");
+    }
+
+    /**
+     * 查找小于等于key的最大关键字
+     */
+    @Override
+    public Integer floor(Integer key) {
+        int k = lowerBound(key);
+        if (k != 0 && keys[k] == key) {
+            return key;
+        }
+        // 第一个大于key的结点的中序前驱；不存在大于key的结点时为最大的结点
+        k = k == 0 ? last() : predecessor(k);
+        return k == 0 ? null : keys[k];
+    }
+
+    /**
+     * 查找大于等于key的最小关键字
+     */
+    @Override
+    public Integer ceiling(Integer key) {
+        int k = lowerBound(key);
+        return k == 0 ? null : keys[k];
+    }
+
+    /**
+     * 范围查询，从第一个大于等于from的结点开始按中序后继依次访问
+     */
+    @Override
+    public List<Object> range(Integer from, Integer to) {
+        List<Object> result = new ArrayList<>();
+        for (int k = lowerBound(from); k != 0 && keys[k] <= to; k = successor(k)) {
+            result.add(values[k]);
+        }
+        return result;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super Integer, ? super Object> action) {
+        for (int k = first(); k != 0; k = successor(k)) {
+            action.accept(keys[k], values[k]);
+        }
+    }
+
+    @Override
+    public int size() {
+        return n;
+    }
+
+    /**
+     * 第一个大于等于key的结点的下标，不存在时返回0<br/>
+     * <br/>
+     * 下降过程中每一步向右(大于等于key的结点在左侧)记1、向左记0，k的二进制即为走过的路径；
+     * 离开树后，最后一次向左之前的结点就是答案：去掉末尾连续的1以及再一个0即可；<br/>
+     * C++实现通常每层预取4层之后的后代keys[16k]，Java没有预取指令，用普通读取代替只是在关键路径上多一次访存，
+     * 还可能被JIT删除，因此不做预取，只依靠无分支的循环让CPU乱序执行
+     */
+    private int lowerBound(int key) {
+        int[] keys = this.keys;
+        int n = this.n;
+        int k = 1;
+        while (k <= n) {
+            k = 2 * k + (keys[k] < key ? 1 : 0);
+        }
+        return k >>> Integer.numberOfTrailingZeros(~k) + 1;
+    }
+
+    /**
+     * 中序第一个结点(最左结点)，空索引返回0
+     */
+    private int first() {
+        if (n == 0) {
+            return 0;
+        }
+        int k = 1;
+        while (2 * k <= n) {
+            k = 2 * k;
+        }
+        return k;
+    }
+
+    /**
+     * 中序最后一个结点(最右结点)，空索引返回0
+     */
+    private int last() {
+        if (n == 0) {
+            return 0;
+        }
+        int k = 1;
+        while (2 * k + 1 <= n) {
+            k = 2 * k + 1;
+        }
+        return k;
+    }
+
+    /**
+     * 中序后继，不存在时返回0
+     */
+    private int successor(int k) {
+        if (2 * k + 1 <= n) {
+            // 右子树的最左结点
+            k = 2 * k + 1;
+            while (2 * k <= n) {
+                k = 2 * k;
+            }
+            return k;
+        }
+        // 向上直到从左子树返回
+        return k >>> Integer.numberOfTrailingZeros(~k) + 1;
+    }
+
+    /**
+     * 中序前驱，不存在时返回0
+     */
+    private int predecessor(int k) {
+        if (2 * k <= n) {
+            // 左子树的最右结点
+            k = 2 * k;
+            while (2 * k + 1 <= n) {
+                k = 2 * k + 1;
+            }
+            return k;
+        }
+        // 向上直到从右子树返回
+        return k >>> Integer.numberOfTrailingZeros(k) + 1;
+    }
+}
@@ -0,0 +1,86 @@
+package treetest;
+
+import treetest.footprint.Footprint;
+import treetest.footprint.FootprintAnalyzer;
+import treetest.footprint.ObjectLayout;
+import treetest.workload.KeyOrder;
+import treetest.workload.Workload;
+
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 各种树的内存占用<br/>
+ * <br/>
+ * 用法：FootprintTest [关键字顺序] [记录条数]，默认为UNIFORM 1000000；<br/>
+ * 每棵树插入同样的关键字(值为另一个装箱的关键字，与TreeTest相同)后遍历其内部结构，输出对象个数、
+ * 每个关键字的结构开销和保留大小、各类对象的字节数，以及按每个关键字的保留大小推算的1亿条记录所需内存；<br/>
+ * 用法示例：java --add-opens java.base/java.util=ALL-UNNAMED -cp target/benchmarks.jar treetest.FootprintTest，
+ * B+树结点中ArrayList的内部数组只有加上--add-opens才能准确统计，不加时提示后以状态码1退出
+ */
+public class FootprintTest {
+    static KeyOrder keyOrder = KeyOrder.UNIFORM;
+    static int records = 1000000;
+    static long seed = 42;
+
+    private static final long PROJECTED_KEYS = 100_000_000L;
+
+    public static void main(String[] Args) {
+        if (Args.length > 0) {
+            keyOrder = KeyOrder.valueOf(Args[0].toUpperCase(Locale.ROOT));
+        }
+        if (Args.length > 1) {
+            records = Integer.parseInt(Args[1]);
+        }
+        if (!ArrayList.class.getModule().isOpen(ArrayList.class.getPackageName(), FootprintTest.class.getModule())) {
+            System.err.println("JDK collection internals are not readable, run with "
+                    + FootprintAnalyzer.addOpens(ArrayList.class));
+            System.exit(1);
+        }
+        System.out.println("key order " + keyOrder + ", " + records + " records, " + ObjectLayout.describe());
+
+        int[] keys = Workload.C.stream(keyOrder, records, seed).loadKeys();
+        String format = "%-12s%12s%10s%12s%12s";
+        Object[] header = {"structure", "objects", "obj/key", "struct B/k", "retain B/k"};
+        for (Footprint.Category category : Footprint.Category.values()) {
+            format += "%10s";
+        }
+        format += "%14s%n";
+        Object[] columns = new Object[header.length + Footprint.Category.values().length + 1];
+        System.arraycopy(header, 0, columns, 0, header.length);
+        for (Footprint.Category category : Footprint.Category.values()) {
+            columns[header.length + category.ordinal()] = category.getLabel();
+        }
+        columns[columns.length - 1] = "100M (GiB)";
+        System.out.printf(format, columns);
+
+        TreeTest.inittrees();
+        for (Map.Entry<String, OrderedIndex<Integer, Object>> entry : TreeTest.trees.entrySet()) {
+            OrderedIndex<Integer, Object> tree = entry.getValue();
+            for (int key : keys) {
+                tree.put(key, key);
+            }
+            Footprint footprint = FootprintAnalyzer.analyze(tree);
+            entry.setValue(null); // 统计完就释放，不占用下一棵树的内存
+
+            columns[0] = entry.getKey();
+            columns[1] = footprint.getObjects();
+            columns[2] = decimal(footprint.perKey(footprint.getObjects()));
+            columns[3] = decimal(footprint.perKey(footprint.getStructureBytes()));
+            columns[4] = decimal(footprint.perKey(footprint.getRetainedBytes()));
+            for (Footprint.Category category : Footprint.Category.values()) {
+                columns[header.length + category.ordinal()] = decimal(footprint.perKey(footprint.getBytes(category)));
+            }
+            columns[columns.length - 1] = decimal(footprint.perKey(footprint.getRetainedBytes())
+                    * PROJECTED_KEYS / (1L << 30));
+            System.out.printf(format, columns);
+        }
+        TreeTest.trees = null;
+        System.out.println("(bytes per key by category; struct = all but boxed keys/values)");
+    }
+
+    private static String decimal(double value) {
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
+}
@@ -0,0 +1,56 @@
+package treetest;
+
+import java.util.Arrays;
+
+/**
+ * Searches the sorted {@code int} keys of an {@link IntBPlusTree} node.
+ *
+ * <p>
+ * Both implementations return exactly what
+ * {@link Arrays#binarySearch(int[], int, int, int)} returns for the range
+ * {@code [0, n)}. The scalar one is that binary search; the vectorized one,
+ * {@code VectorIntKeySearch}, compares the key against a whole vector of node
+ * keys at once and only exists when the {@code jdk.incubator.vector} module
+ * has been added to the boot layer ({@code --add-modules jdk.incubator.vector}).
+ * It is loaded reflectively so that this class, and the tree, still work
+ * without the module.
+ */
+abstract class IntKeySearch {
+
+    static final IntKeySearch SCALAR = new IntKeySearch() {
+        @Override
+        int indexOf(int[] keys, int n, int key) {
+            return Arrays.binarySearch(keys, 0, n, key);
+        }
+    };
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private static final IntKeySearch VECTOR = loadVector();
+
+    /**
+     * Returns the index of {@code key} in {@code keys[0, n)}, or
+     * {@code -(insertion point) - 1} if it is absent.
+     */
+    abstract int indexOf(int[] keys, int n, int key);
+
+    /**
+     * Returns the vectorized search, or {@code null} if the Vector API is not
+     * available or the platform has no SIMD registers wide enough to pay off.
+     */
+    static IntKeySearch vector() {
+        return VECTOR;
+    }
+
+    private static IntKeySearch loadVector() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty())
+            return null;
+        try {
+            return (IntKeySearch) Class.forName("treetest.VectorIntKeySearch")
+                    .getDeclaredMethod("create")
+                    .invoke(null);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package treetest;
+
+import treetest.latency.LatencyHistogram;
+import treetest.latency.LatencyReport;
+import treetest.workload.KeyOrder;
+import treetest.workload.Operation;
+import treetest.workload.OperationStream;
+import treetest.workload.Workload;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * 各种树每个操作的延迟分布<br/>
+ * <br/>
+ * 用法：LatencyTest [负载 A~F] [关键字顺序] [记录条数] [每秒操作数] [输出目录]，默认为A UNIFORM 1000000 0 latency；<br/>
+ * 每棵树依次执行：插入全部记录(load)、执行同一个长度为记录条数的操作序列(按操作类型记为search、update、insert、
+ * range、read-modify-write)、按随机顺序删除全部记录(delete)，逐个操作记录耗时；
+ * 装载阶段与负载中的insert分开统计，D、E负载中新插入记录的延迟不会被装载阶段的大量插入淹没；<br/>
+ * 每秒操作数为0时一个操作结束立即开始下一个，记录的是服务时间；<br/>
+ * 否则按固定速率发起操作：第i个操作的计划开始时间为start + i * 间隔，延迟从计划开始时间算起，
+ * 前一个操作慢了，后面排队等待的操作的等待时间也计入延迟，避免协调遗漏(coordinated omission)低估尾部延迟；<br/>
+ * 正式测量前先用较少的记录完整执行一遍，使各种树的代码都经过JIT编译；<br/>
+ * 结果输出到控制台，并写入输出目录下的latency.csv和latency.json
+ */
+public class LatencyTest {
+    static Workload workload = Workload.A;
+    static KeyOrder keyOrder = KeyOrder.UNIFORM;
+    static int records = 1000000;
+    static long interval; // 固定速率下相邻操作计划开始时间的间隔(纳秒)，0表示不限速
+    static Path output = Paths.get("latency");
+    static long seed = 42;
+
+    private static long next; // 下一个操作的计划开始时间
+
+    /**
+     * 所有树执行同样的关键字和操作序列，结果记入report
+     */
+    private static void measure(int n, LatencyReport report) {
+        OperationStream stream = workload.stream(keyOrder, n, seed);
+        int[] keys = stream.loadKeys();
+        Operation[] operations = stream.next(n);
+        int[] deletes = keys.clone();
+        shuffle(deletes, new Random(seed));
+
+        TreeTest.inittrees();
+        for (Map.Entry<String, OrderedIndex<Integer, Object>> entry : TreeTest.trees.entrySet()) {
+            String name = entry.getKey();
+            OrderedIndex<Integer, Object> tree = entry.getValue();
+
+            LatencyHistogram load = report.histogram(name, "load");
+            next = System.nanoTime();
+            for (int key : keys) {
+                long stime = start();
+                tree.put(key, key);
+                load.record(System.nanoTime() - stime);
+            }
+
+            Map<Operation.Type, LatencyHistogram> byType = new EnumMap<>(Operation.Type.class);
+            for (Operation.Type type : Operation.Type.values()) {
+                if (workload.getProportion(type) > 0) {
+                    byType.put(type, report.histogram(name, label(type)));
+                }
+            }
+            next = System.nanoTime();
+            for (Operation operation : operations) {
+                long stime = start();
+                operation.apply(tree);
+                byType.get(operation.getType()).record(System.nanoTime() - stime);
+            }
+
+            LatencyHistogram delete = report.histogram(name, "delete");
+            next = System.nanoTime();
+            for (int key : deletes) {
+                long stime = start();
+                tree.remove(key);
+                delete.record(System.nanoTime() - stime);
+            }
+        }
+        TreeTest.trees = null; // 测完就释放，不占用下一轮的内存
+    }
+
+    /**
+     * 不限速时返回当前时间；固定速率时等到计划开始时间并返回它
+     */
+    private static long start() {
+        if (interval == 0) {
+            return System.nanoTime();
+        }
+        long intended = next;
+        next += interval;
+        while (System.nanoTime() < intended) {
+            Thread.onSpinWait();
+        }
+        return intended;
+    }
+
+    private static String label(Operation.Type type) {
+        switch (type) {
+            case READ:
+                return "search";
+            case UPDATE:
+                return "update";
+            case INSERT:
+                return "insert";
+            case SCAN:
+                return "range";
+            case READ_MODIFY_WRITE:
+                return "read-modify-write";
+            default:
+                throw new AssertionError(type);
+        }
+    }
+
+    private static void shuffle(int[] array, Random random) {
+        for (int i = array.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = array[i];
+            array[i] = array[j];
+            array[j] = tmp;
+        }
+    }
+
+    public static void main(String[] Args) throws IOException {
+        if (Args.length > 0) {
+            workload = Workload.ycsb(Args[0]);
+        }
+        if (Args.length > 1) {
+            keyOrder = KeyOrder.valueOf(Args[1].toUpperCase(Locale.ROOT));
+        }
+        if (Args.length > 2) {
+            records = Integer.parseInt(Args[2]);
+        }
+        if (Args.length > 3) {
+            long rate = Long.parseLong(Args[3]);
+            interval = rate > 0 ? Math.max(1, 1_000_000_000L / rate) : 0;
+        }
+        if (Args.length > 4) {
+            output = Paths.get(Args[4]);
+        }
+        System.out.println("workload " + workload + ", key order " + keyOrder + ", " + records + " records, "
+                + (interval == 0 ? "closed loop" : "fixed rate " + 1_000_000_000L / interval + " ops/s"));
+
+        measure(Math.max(records / 10, 1), new LatencyReport()); // 预热
+        LatencyReport report = new LatencyReport();
+        measure(records, report);
+
+        report.printTable(System.out);
+        report.writeCsv(output.resolve("latency.csv"));
+        report.writeJson(output.resolve("latency.json"));
+        System.out.println("written to " + output.toAbsolutePath());
+    }
+}
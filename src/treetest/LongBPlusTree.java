@@ -0,0 +1,537 @@
+package treetest;
+
+import treetest.BPlusTree.RangePolicy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * A B+ tree specialised for {@code long} keys.
+ *
+ * <p>
+ * Nodes follow the same capacity, split and merge rules as {@link BPlusTree},
+ * but every node keeps its keys in an {@code long[]} searched with
+ * {@link Arrays#binarySearch(long[], int, int, long)}, so inserting, searching
+ * and range scanning neither box keys nor call {@code compareTo}.
+ *
+ * @param <V> the type of the values
+ */
+public class LongBPlusTree<V> implements OrderedIndex<Long, V> {
+
+    /**
+     * The branching factor used when none specified in constructor.
+     */
+    private static final int DEFAULT_BRANCHING_FACTOR = 128;
+
+    /**
+     * The branching factor for the B+ tree, that measures the capacity of nodes
+     * (i.e., the number of children nodes) for internal nodes in the tree.
+     */
+    private final int branchingFactor;
+
+    /**
+     * The root node of the B+ tree.
+     */
+    private Node root;
+
+    /**
+     * The number of key-value mappings in the B+ tree.
+     */
+    private int size;
+
+    public LongBPlusTree() {
+        this(DEFAULT_BRANCHING_FACTOR);
+    }
+
+    public LongBPlusTree(int branchingFactor) {
+        if (branchingFactor <= 2)
+            throw new IllegalArgumentException("Illegal branching factor: "
+                    + branchingFactor);
+        this.branchingFactor = branchingFactor;
+        root = new LeafNode();
+    }
+
+    /**
+     * Returns the value to which the specified key is associated, or
+     * {@code null} if this tree contains no association for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value to which the specified key is associated, or
+     * {@code null} if this tree contains no association for the key
+     */
+    public V search(long key) {
+        LeafNode leaf = findLeaf(key);
+        int loc = leaf.indexOf(key);
+        return loc >= 0 ? leaf.values[loc] : null;
+    }
+
+    /**
+     * Returns the values associated with the keys specified by the range:
+     * {@code key1} and {@code key2}.
+     *
+     * @param key1    the start key of the range
+     * @param policy1 the range policy, {@link RangePolicy#EXCLUSIVE} or
+     *                {@link RangePolicy#INCLUSIVE}
+     * @param key2    the end end of the range
+     * @param policy2 the range policy, {@link RangePolicy#EXCLUSIVE} or
+     *                {@link RangePolicy#INCLUSIVE}
+     * @return the values associated with the keys specified by the range:
+     * {@code key1} and {@code key2}
+     */
+    public List<V> searchRange(long key1, RangePolicy policy1, long key2,
+                               RangePolicy policy2) {
+        List<V> result = new ArrayList<V>();
+        LeafNode node = findLeaf(key1);
+        int loc = node.indexOf(key1);
+        int i = loc < 0 ? -loc - 1 : policy1 == RangePolicy.INCLUSIVE ? loc : loc + 1;
+        while (node != null) {
+            for (; i < node.keyNumber; i++) {
+                long key = node.keys[i];
+                if (key > key2 || (key == key2 && policy2 == RangePolicy.EXCLUSIVE))
+                    return result;
+                result.add(node.values[i]);
+            }
+            node = node.next;
+            i = 0;
+        }
+        return result;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this tree. If
+     * the tree previously contained a association for the key, the old value is
+     * replaced.
+     *
+     * @param key   the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return the previous value, or {@code null} if there was none
+     */
+    public V insert(long key, V value) {
+        V old = root.insertValue(key, value);
+        if (root.isOverflow()) {
+            Node sibling = root.split();
+            InternalNode newRoot = new InternalNode();
+            newRoot.keys[0] = sibling.getFirstLeafKey();
+            newRoot.children[0] = root;
+            newRoot.children[1] = sibling;
+            newRoot.keyNumber = 1;
+            root = newRoot;
+        }
+        return old;
+    }
+
+    /**
+     * Removes the association for the specified key from this tree if present.
+     *
+     * @param key the key whose association is to be removed from the tree
+     * @return the removed value, or {@code null} if there was none
+     */
+    public V delete(long key) {
+        V value = root.deleteValue(key);
+        if (root.keyNumber == 0 && root instanceof LongBPlusTree.InternalNode)
+            root = ((InternalNode) root).children[0];
+        return value;
+    }
+
+    @Override
+    public V put(Long key, V value) {
+        return insert(key, value);
+    }
+
+    @Override
+    public V get(Long key) {
+        return search(key);
+    }
+
+    @Override
+    public V remove(Long key) {
+        return delete(key);
+    }
+
+    @Override
+    public Long floor(Long key) {
+        // remember the nearest subtree left of the search path; it holds the
+        // floor when the leaf reached has no key less than or equal to key
+        Node left = null;
+        Node node = root;
+        while (node instanceof LongBPlusTree.InternalNode) {
+            InternalNode internal = (InternalNode) node;
+            int childIndex = internal.getChildIndex(key);
+            if (childIndex > 0)
+                left = internal.children[childIndex - 1];
+            node = internal.children[childIndex];
+        }
+        LeafNode leaf = (LeafNode) node;
+        int loc = leaf.indexOf(key);
+        int index = loc >= 0 ? loc : -loc - 2;
+        if (index >= 0)
+            return leaf.keys[index];
+        if (left == null)
+            return null;
+        while (left instanceof LongBPlusTree.InternalNode)
+            left = ((InternalNode) left).children[left.keyNumber];
+        return left.keys[left.keyNumber - 1];
+    }
+
+    @Override
+    public Long ceiling(Long key) {
+        LeafNode leaf = findLeaf(key);
+        int loc = leaf.indexOf(key);
+        int index = loc >= 0 ? loc : -loc - 1;
+        if (index < leaf.keyNumber)
+            return leaf.keys[index];
+        return leaf.next != null ? leaf.next.keys[0] : null;
+    }
+
+    @Override
+    public List<V> range(Long from, Long to) {
+        return searchRange(from, RangePolicy.INCLUSIVE, to, RangePolicy.INCLUSIVE);
+    }
+
+    /**
+     * Performs the given action for each entry in ascending key order,
+     * walking the leaf chain from the leftmost leaf.
+     */
+    @Override
+    public void forEach(BiConsumer<? super Long, ? super V> action) {
+        for (LeafNode leaf = findLeaf(Long.MIN_VALUE); leaf != null; leaf = leaf.next)
+            for (int i = 0; i < leaf.keyNumber; i++)
+                action.accept(leaf.keys[i], leaf.values[i]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        List<Node> level = new ArrayList<Node>();
+        level.add(root);
+        while (!level.isEmpty()) {
+            List<Node> nextLevel = new ArrayList<Node>();
+            for (int i = 0; i < level.size(); i++) {
+                Node node = level.get(i);
+                if (i > 0)
+                    sb.append(", ");
+                sb.append(node.toString());
+                if (node instanceof LongBPlusTree.InternalNode)
+                    nextLevel.addAll(Arrays.asList(((InternalNode) node).children)
+                            .subList(0, node.keyNumber + 1));
+            }
+            sb.append('\n');
+            level = nextLevel;
+        }
+        return sb.toString();
+    }
+
+    private LeafNode findLeaf(long key) {
+        Node node = root;
+        while (node instanceof LongBPlusTree.InternalNode) {
+            InternalNode internal = (InternalNode) node;
+            node = internal.children[internal.getChildIndex(key)];
+        }
+        return (LeafNode) node;
+    }
+
+    private abstract class Node {
+        long[] keys;
+        int keyNumber;
+
+        int indexOf(long key) {
+            return Arrays.binarySearch(keys, 0, keyNumber, key);
+        }
+
+        abstract V deleteValue(long key);
+
+        abstract V insertValue(long key, V value);
+
+        abstract long getFirstLeafKey();
+
+        /**
+         * Whether this node and its right sibling fit in a single node.
+         */
+        abstract boolean canMerge(Node sibling);
+
+        abstract void merge(Node sibling);
+
+        /**
+         * Moves entries between this node and its right sibling so that they
+         * end up split exactly as {@link #merge} followed by {@link #split}
+         * would have left them, without needing room for the merged node.
+         *
+         * @param separator the parent key between this node and the sibling
+         * @return the new parent key between this node and the sibling
+         */
+        abstract long redistribute(long separator, Node sibling);
+
+        abstract Node split();
+
+        abstract boolean isOverflow();
+
+        abstract boolean isUnderflow();
+
+        public String toString() {
+            return Arrays.toString(Arrays.copyOf(keys, keyNumber));
+        }
+    }
+
+    private class InternalNode extends Node {
+        final Node[] children;
+
+        @SuppressWarnings("unchecked") // the array only ever holds this tree's nodes
+        InternalNode() {
+            // one spare slot: a node is split once it holds more than
+            // branchingFactor children
+            this.keys = new long[branchingFactor];
+            this.children = (Node[]) new LongBPlusTree<?>.Node[branchingFactor + 1];
+        }
+
+        @Override
+        V deleteValue(long key) {
+            int childIndex = getChildIndex(key);
+            Node child = children[childIndex];
+            V value = child.deleteValue(key);
+            if (child.isUnderflow()) {
+                int leftIndex = childIndex > 0 ? childIndex - 1 : childIndex;
+                Node left = children[leftIndex];
+                Node right = children[leftIndex + 1];
+                if (left.canMerge(right)) {
+                    left.merge(right);
+                    removeChild(leftIndex);
+                } else {
+                    keys[leftIndex] = left.redistribute(keys[leftIndex], right);
+                }
+            }
+            return value;
+        }
+
+        @Override
+        V insertValue(long key, V value) {
+            int childIndex = getChildIndex(key);
+            Node child = children[childIndex];
+            V old = child.insertValue(key, value);
+            if (child.isOverflow()) {
+                Node sibling = child.split();
+                insertChild(childIndex, sibling.getFirstLeafKey(), sibling);
+            }
+            return old;
+        }
+
+        @Override
+        long getFirstLeafKey() {
+            return children[0].getFirstLeafKey();
+        }
+
+        @Override
+        boolean canMerge(Node sibling) {
+            return keyNumber + sibling.keyNumber + 2 <= branchingFactor;
+        }
+
+        @Override
+        void merge(Node sibling) {
+            InternalNode node = (InternalNode) sibling;
+            keys[keyNumber] = node.getFirstLeafKey();
+            System.arraycopy(node.keys, 0, keys, keyNumber + 1, node.keyNumber);
+            System.arraycopy(node.children, 0, children, keyNumber + 1, node.keyNumber + 1);
+            keyNumber += node.keyNumber + 1;
+        }
+
+        @Override
+        long redistribute(long separator, Node sibling) {
+            InternalNode node = (InternalNode) sibling;
+            // the merged node would hold keyNumber + 1 + node.keyNumber keys,
+            // of which split() keeps the first from - 1 on the left
+            int merged = keyNumber + 1 + node.keyNumber;
+            int leftKeys = merged / 2;
+            if (keyNumber < leftKeys) {
+                int k = leftKeys - keyNumber; // keys taken from the sibling
+                keys[keyNumber] = separator;
+                System.arraycopy(node.keys, 0, keys, keyNumber + 1, k - 1);
+                System.arraycopy(node.children, 0, children, keyNumber + 1, k);
+                separator = node.keys[k - 1];
+                System.arraycopy(node.keys, k, node.keys, 0, node.keyNumber - k);
+                System.arraycopy(node.children, k, node.children, 0, node.keyNumber + 1 - k);
+                Arrays.fill(node.children, node.keyNumber + 1 - k, node.keyNumber + 1, null);
+                node.keyNumber -= k;
+            } else if (keyNumber > leftKeys) {
+                int k = keyNumber - leftKeys; // keys given to the sibling
+                System.arraycopy(node.keys, 0, node.keys, k, node.keyNumber);
+                System.arraycopy(node.children, 0, node.children, k, node.keyNumber + 1);
+                node.keys[k - 1] = separator;
+                System.arraycopy(keys, leftKeys + 1, node.keys, 0, k - 1);
+                System.arraycopy(children, leftKeys + 1, node.children, 0, k);
+                separator = keys[leftKeys];
+                Arrays.fill(children, leftKeys + 1, keyNumber + 1, null);
+                node.keyNumber += k;
+            }
+            keyNumber = leftKeys;
+            return separator;
+        }
+
+        @Override
+        Node split() {
+            int from = keyNumber / 2 + 1, to = keyNumber;
+            InternalNode sibling = new InternalNode();
+            System.arraycopy(keys, from, sibling.keys, 0, to - from);
+            System.arraycopy(children, from, sibling.children, 0, to - from + 1);
+            sibling.keyNumber = to - from;
+
+            Arrays.fill(children, from, to + 1, null);
+            keyNumber = from - 1;
+
+            return sibling;
+        }
+
+        @Override
+        boolean isOverflow() {
+            return keyNumber + 1 > branchingFactor;
+        }
+
+        @Override
+        boolean isUnderflow() {
+            return keyNumber + 1 < (branchingFactor + 1) / 2;
+        }
+
+        int getChildIndex(long key) {
+            int loc = indexOf(key);
+            return loc >= 0 ? loc + 1 : -loc - 1;
+        }
+
+        /**
+         * Inserts a separator key at {@code index} and the child to its right.
+         */
+        void insertChild(int index, long key, Node child) {
+            System.arraycopy(keys, index, keys, index + 1, keyNumber - index);
+            System.arraycopy(children, index + 1, children, index + 2, keyNumber - index);
+            keys[index] = key;
+            children[index + 1] = child;
+            keyNumber++;
+        }
+
+        /**
+         * Removes the separator key at {@code index} and the child to its right.
+         */
+        void removeChild(int index) {
+            System.arraycopy(keys, index + 1, keys, index, keyNumber - index - 1);
+            System.arraycopy(children, index + 2, children, index + 1, keyNumber - index - 1);
+            children[keyNumber] = null;
+            keyNumber--;
+        }
+    }
+
+    private class LeafNode extends Node {
+        final V[] values;
+        LeafNode next;
+
+        @SuppressWarnings("unchecked")
+        LeafNode() {
+            // one spare slot: a leaf is split once it holds branchingFactor values
+            keys = new long[branchingFactor];
+            values = (V[]) new Object[branchingFactor];
+        }
+
+        @Override
+        V deleteValue(long key) {
+            int loc = indexOf(key);
+            if (loc < 0)
+                return null;
+            V value = values[loc];
+            System.arraycopy(keys, loc + 1, keys, loc, keyNumber - loc - 1);
+            System.arraycopy(values, loc + 1, values, loc, keyNumber - loc - 1);
+            values[--keyNumber] = null;
+            size--;
+            return value;
+        }
+
+        @Override
+        V insertValue(long key, V value) {
+            int loc = indexOf(key);
+            if (loc >= 0) {
+                V old = values[loc];
+                values[loc] = value;
+                return old;
+            }
+            int valueIndex = -loc - 1;
+            System.arraycopy(keys, valueIndex, keys, valueIndex + 1, keyNumber - valueIndex);
+            System.arraycopy(values, valueIndex, values, valueIndex + 1, keyNumber - valueIndex);
+            keys[valueIndex] = key;
+            values[valueIndex] = value;
+            keyNumber++;
+            size++;
+            return null;
+        }
+
+        @Override
+        long getFirstLeafKey() {
+            return keys[0];
+        }
+
+        @Override
+        boolean canMerge(Node sibling) {
+            return keyNumber + sibling.keyNumber <= branchingFactor - 1;
+        }
+
+        @Override
+        void merge(Node sibling) {
+            LeafNode node = (LeafNode) sibling;
+            System.arraycopy(node.keys, 0, keys, keyNumber, node.keyNumber);
+            System.arraycopy(node.values, 0, values, keyNumber, node.keyNumber);
+            keyNumber += node.keyNumber;
+            next = node.next;
+        }
+
+        @Override
+        long redistribute(long separator, Node sibling) {
+            LeafNode node = (LeafNode) sibling;
+            int leftKeys = (keyNumber + node.keyNumber + 1) / 2;
+            if (keyNumber < leftKeys) {
+                int k = leftKeys - keyNumber;
+                System.arraycopy(node.keys, 0, keys, keyNumber, k);
+                System.arraycopy(node.values, 0, values, keyNumber, k);
+                System.arraycopy(node.keys, k, node.keys, 0, node.keyNumber - k);
+                System.arraycopy(node.values, k, node.values, 0, node.keyNumber - k);
+                Arrays.fill(node.values, node.keyNumber - k, node.keyNumber, null);
+                node.keyNumber -= k;
+            } else if (keyNumber > leftKeys) {
+                int k = keyNumber - leftKeys;
+                System.arraycopy(node.keys, 0, node.keys, k, node.keyNumber);
+                System.arraycopy(node.values, 0, node.values, k, node.keyNumber);
+                System.arraycopy(keys, leftKeys, node.keys, 0, k);
+                System.arraycopy(values, leftKeys, node.values, 0, k);
+                Arrays.fill(values, leftKeys, keyNumber, null);
+                node.keyNumber += k;
+            }
+            keyNumber = leftKeys;
+            return node.keys[0];
+        }
+
+        @Override
+        Node split() {
+            LeafNode sibling = new LeafNode();
+            int from = (keyNumber + 1) / 2, to = keyNumber;
+            System.arraycopy(keys, from, sibling.keys, 0, to - from);
+            System.arraycopy(values, from, sibling.values, 0, to - from);
+            sibling.keyNumber = to - from;
+
+            Arrays.fill(values, from, to, null);
+            keyNumber = from;
+
+            sibling.next = next;
+            next = sibling;
+            return sibling;
+        }
+
+        @Override
+        boolean isOverflow() {
+            return keyNumber > branchingFactor - 1;
+        }
+
+        @Override
+        boolean isUnderflow() {
+            return keyNumber < branchingFactor / 2;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package treetest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A {@link PageStore} whose chunks are memory-mapped regions of a file, so
+ * that the pages survive the process and are read back lazily by the OS when
+ * the file is opened again.
+ *
+ * <p>
+ * Page 0 is the file header and is never handed out by {@link #allocate()}:
+ * <pre>
+ *   0  long  magic
+ *   8  int   format version
+ *   12 int   page size
+ *   16 int   chunk size in bytes
+ *   20 int   page count
+ *   24 int   free list head
+ *   28 int   free page count
+ *   32 int   state, clean or modified since the last commit
+ *   64 int[] {@link #META_SLOTS} slots for the owner of the store
+ * </pre>
+ * Page writes go straight to the mapping, so there is no rollback: once a
+ * page is changed the committed state is gone. The first write after a
+ * {@link #commit()} therefore marks the file as modified and forces that mark
+ * to disk before the write happens. {@link #commit()} records the allocator
+ * state, forces every dirty page and only then marks the file clean again.
+ * {@link #open(Path)} refuses a file that is still marked as modified, whether
+ * it was closed without committing or the process died in between; such a
+ * file cannot be recovered and has to be created again.
+ * Numbers are stored in native byte order, so a file is only readable on
+ * a machine of the same endianness.
+ */
+public class MappedPageStore extends PageStore {
+
+    /**
+     * The number of int slots in the header available through
+     * {@link #getMeta(int)} and {@link #setMeta(int, int)}.
+     */
+    public static final int META_SLOTS = 16;
+
+    private static final long MAGIC = 0x5452454550414745L; // "TREEPAGE"
+    private static final int VERSION = 1;
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 8;
+    private static final int PAGE_SIZE_OFFSET = 12;
+    private static final int CHUNK_BYTES_OFFSET = 16;
+    private static final int PAGE_COUNT_OFFSET = 20;
+    private static final int FREE_LIST_HEAD_OFFSET = 24;
+    private static final int FREE_PAGE_COUNT_OFFSET = 28;
+    private static final int STATE_OFFSET = 32;
+    private static final int META_OFFSET = 64;
+    private static final int HEADER_BYTES = META_OFFSET + 4 * META_SLOTS;
+
+    private static final int CLEAN = 0;
+    private static final int MODIFIED = 1;
+
+    private final FileChannel channel;
+
+    /**
+     * Whether a page has been written since the last {@link #commit()}, i.e.
+     * the header is marked as modified.
+     */
+    private boolean modified;
+
+    private MappedPageStore(FileChannel channel, int pageSize, int chunkBytes) {
+        super(pageSize, chunkBytes);
+        this.channel = channel;
+    }
+
+    /**
+     * Creates a new store in {@code path}, replacing any existing file.
+     */
+    public static MappedPageStore create(Path path, int pageSize) throws IOException {
+        return create(path, pageSize, DEFAULT_CHUNK_BYTES);
+    }
+
+    public static MappedPageStore create(Path path, int pageSize, int chunkBytes) throws IOException {
+        if (pageSize < HEADER_BYTES)
+            throw new IllegalArgumentException("Illegal page size: " + pageSize);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedPageStore store = new MappedPageStore(channel, pageSize, chunkBytes);
+            store.allocate(); // the header page
+            store.putLong(0, MAGIC_OFFSET, MAGIC);
+            store.putInt(0, VERSION_OFFSET, VERSION);
+            store.putInt(0, PAGE_SIZE_OFFSET, pageSize);
+            store.putInt(0, CHUNK_BYTES_OFFSET, store.getPagesPerChunk() * pageSize);
+            for (int slot = 0; slot < META_SLOTS; slot++)
+                store.setMeta(slot, 0);
+            store.commit();
+            return store;
+        } catch (RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a store previously created by {@link #create} in the state of its
+     * last {@link #commit()}. Only the header is read; pages are mapped and
+     * faulted in on first access.
+     *
+     * @throws IOException if the file is not a page file or was modified
+     *                     after its last commit
+     */
+    public static MappedPageStore open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.nativeOrder());
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0)
+                    break;
+            }
+            if (header.hasRemaining() || header.getLong(MAGIC_OFFSET) != MAGIC)
+                throw new IOException("Not a page file: " + path);
+            if (header.getInt(VERSION_OFFSET) != VERSION)
+                throw new IOException("Unsupported page file version: " + header.getInt(VERSION_OFFSET));
+            if (header.getInt(STATE_OFFSET) != CLEAN)
+                throw new IOException("Page file was modified after its last commit: " + path);
+            MappedPageStore store = new MappedPageStore(channel,
+                    header.getInt(PAGE_SIZE_OFFSET), header.getInt(CHUNK_BYTES_OFFSET));
+            store.restore(header.getInt(PAGE_COUNT_OFFSET), header.getInt(FREE_LIST_HEAD_OFFSET),
+                    header.getInt(FREE_PAGE_COUNT_OFFSET));
+            return store;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    protected ByteBuffer newChunk(int chunkIndex, int chunkBytes) {
+        try {
+            return channel.map(FileChannel.MapMode.READ_WRITE, (long) chunkIndex * chunkBytes, chunkBytes)
+                    .order(ByteOrder.nativeOrder());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int getMeta(int slot) {
+        if (slot < 0 || slot >= META_SLOTS)
+            throw new IndexOutOfBoundsException("Meta slot: " + slot);
+        return getInt(0, META_OFFSET + 4 * slot);
+    }
+
+    public void setMeta(int slot, int value) {
+        if (slot < 0 || slot >= META_SLOTS)
+            throw new IndexOutOfBoundsException("Meta slot: " + slot);
+        putInt(0, META_OFFSET + 4 * slot, value);
+    }
+
+    @Override
+    public void putInt(int page, int offset, int value) {
+        markModified();
+        super.putInt(page, offset, value);
+    }
+
+    @Override
+    public void putLong(int page, int offset, long value) {
+        markModified();
+        super.putLong(page, offset, value);
+    }
+
+    @Override
+    public void copy(int srcPage, int srcOffset, int dstPage, int dstOffset, int length) {
+        markModified();
+        super.copy(srcPage, srcOffset, dstPage, dstOffset, length);
+    }
+
+    /**
+     * Writes the allocator state to the header, flushes every dirty page to
+     * the file and then marks the file clean, so that {@link #open(Path)}
+     * accepts it again.
+     */
+    public void commit() {
+        putInt(0, PAGE_COUNT_OFFSET, getPageCount());
+        putInt(0, FREE_LIST_HEAD_OFFSET, getFreeListHead());
+        putInt(0, FREE_PAGE_COUNT_OFFSET, getFreePageCount());
+        for (ByteBuffer chunk : getChunks())
+            ((MappedByteBuffer) chunk).force();
+        super.putInt(0, STATE_OFFSET, CLEAN);
+        forceHeader();
+        modified = false;
+    }
+
+    /**
+     * Releases the file without committing. If anything was written since
+     * the last {@link #commit()} the file stays marked as modified and
+     * cannot be opened again.
+     */
+    @Override
+    public void close() {
+        super.close();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Marks the file as modified before the first write after a commit.
+     */
+    private void markModified() {
+        if (modified)
+            return;
+        modified = true;
+        super.putInt(0, STATE_OFFSET, MODIFIED);
+        forceHeader();
+    }
+
+    private void forceHeader() {
+        ((MappedByteBuffer) getChunks()[0]).force(0, getPageSize());
+    }
+}
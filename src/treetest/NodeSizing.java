@@ -0,0 +1,58 @@
+package treetest;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * 按字节数确定结点容量<br/>
+ * <br/>
+ * 查找时在结点内扫描的是关键字数组，因此以关键字数组的大小(数组头 + 关键字个数 * 关键字宽度)作为结点的字节数；<br/>
+ * 关键字宽度：int关键字为4字节，对象关键字为一个引用的宽度(开启压缩指针时4字节，否则8字节)；<br/>
+ * 目标字节数取缓存行(64)的整数倍时，结点的关键字数组恰好占满若干缓存行
+ */
+public final class NodeSizing {
+    public static final int CACHE_LINE_BYTES = 64;
+    // 数组对象头：对象头12字节(压缩类指针) + 长度4字节
+    public static final int ARRAY_HEADER_BYTES = 16;
+    public static final int REFERENCE_BYTES = referenceBytes();
+
+    private NodeSizing() {
+    }
+
+    /**
+     * 字节数不超过nodeBytes的数组最多能容纳的元素个数
+     * @param nodeBytes 目标字节数
+     * @param slotBytes 每个元素的字节数
+     * @return
+     */
+    public static int slots(int nodeBytes, int slotBytes) {
+        if (nodeBytes <= ARRAY_HEADER_BYTES || slotBytes <= 0) {
+            throw new IllegalArgumentException("Illegal node size: " + nodeBytes + " bytes with "
+                    + slotBytes + "-byte slots");
+        }
+        return (nodeBytes - ARRAY_HEADER_BYTES) / slotBytes;
+    }
+
+    /**
+     * 读取HotSpot虚拟机参数的当前值
+     * @param name 参数名，如UseCompressedOops
+     * @return 参数值的字符串形式，不是HotSpot虚拟机或没有该参数时返回null
+     */
+    public static String vmOption(String name) {
+        try {
+            HotSpotDiagnosticMXBean bean = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            return bean.getVMOption(name).getValue();
+        } catch (RuntimeException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * 无法读取虚拟机参数时按默认开启压缩指针处理
+     */
+    private static int referenceBytes() {
+        String value = vmOption("UseCompressedOops");
+        return value == null || Boolean.parseBoolean(value) ? 4 : 8;
+    }
+}
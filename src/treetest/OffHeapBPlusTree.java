@@ -0,0 +1,635 @@
+package treetest;
+
+import treetest.BPlusTree.RangePolicy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * A B+ tree from {@code int} keys to {@code long} values whose nodes live in
+ * the fixed-size pages of a {@link PageStore} instead of on the Java heap.
+ *
+ * <p>
+ * Whatever the number of keys, the heap only holds this object, the store and
+ * its chunk buffers, so the tree adds nothing for the garbage collector to
+ * trace or copy. Nodes refer to each other by page id. Capacity, split and
+ * merge rules are those of {@link IntBPlusTree}; by default the branching
+ * factor is the largest one whose nodes fit in a page.
+ *
+ * <p>
+ * Backed by a {@link MappedPageStore} the tree is persistent: {@link #commit()}
+ * flushes it to the file and {@link #open(MappedPageStore)} reopens it
+ * without reading more than the file header. Nodes are updated in place, so
+ * only a file whose last change was a commit can be reopened; after an
+ * uncommitted change {@link MappedPageStore#open} rejects the file.
+ *
+ * <p>
+ * Page layout (all values in native byte order):
+ * <pre>
+ *   0  int   number of keys
+ *   4  int   node type, {@link #LEAF} or {@link #INTERNAL}
+ *   8  int   next leaf page, or {@link PageStore#NIL}
+ *   16 int[] keys
+ *   leaf:     long[] values, 8-byte aligned after the keys
+ *   internal: int[]  child pages, right after the keys
+ * </pre>
+ */
+public class OffHeapBPlusTree implements OrderedIndex<Integer, Long> {
+
+    /**
+     * The page size used when no store is specified in constructor.
+     */
+    private static final int DEFAULT_PAGE_SIZE = 4096;
+
+    private static final int KEY_NUMBER = 0;
+    private static final int TYPE = 4;
+    private static final int NEXT = 8;
+    private static final int HEADER = 16;
+
+    private static final int LEAF = 0;
+    private static final int INTERNAL = 1;
+
+    /**
+     * The {@link MappedPageStore} header slots holding the tree metadata.
+     */
+    private static final int BRANCHING_FACTOR_SLOT = 0;
+    private static final int ROOT_SLOT = 1;
+    private static final int SIZE_SLOT = 2;
+
+    /**
+     * Enough for any tree with a branching factor of at least 3 and fewer
+     * than 2^31 keys.
+     */
+    private static final int MAX_HEIGHT = 64;
+
+    private final PageStore store;
+
+    /**
+     * The branching factor for the B+ tree, that measures the capacity of nodes
+     * (i.e., the number of children nodes) for internal nodes in the tree.
+     */
+    private final int branchingFactor;
+
+    private final int valuesOffset;
+
+    private final int childrenOffset;
+
+    /**
+     * The root page of the B+ tree.
+     */
+    private int root;
+
+    /**
+     * The number of key-value mappings in the B+ tree.
+     */
+    private int size;
+
+    /**
+     * The pages and child indexes on the path from the root to the current
+     * leaf, filled by insert and delete to walk back up without parent links.
+     */
+    private final int[] pathPages = new int[MAX_HEIGHT];
+    private final int[] pathIndexes = new int[MAX_HEIGHT];
+
+    /**
+     * The value replaced by the last insert of an existing key or removed by
+     * the last successful delete, so that put and remove descend only once.
+     */
+    private long previous;
+
+    public OffHeapBPlusTree() {
+        this(new DirectPageStore(DEFAULT_PAGE_SIZE));
+    }
+
+    public OffHeapBPlusTree(PageStore store) {
+        this(store, maxBranchingFactor(store.getPageSize()));
+    }
+
+    public OffHeapBPlusTree(PageStore store, int branchingFactor) {
+        this(store, branchingFactor, PageStore.NIL, 0);
+    }
+
+    private OffHeapBPlusTree(PageStore store, int branchingFactor, int root, int size) {
+        if (branchingFactor <= 2 || branchingFactor > maxBranchingFactor(store.getPageSize()))
+            throw new IllegalArgumentException("Illegal branching factor: "
+                    + branchingFactor + " for page size " + store.getPageSize());
+        this.store = store;
+        this.branchingFactor = branchingFactor;
+        this.valuesOffset = HEADER + (4 * branchingFactor + 7 & ~7);
+        this.childrenOffset = HEADER + 4 * branchingFactor;
+        this.root = root != PageStore.NIL ? root : newNode(LEAF);
+        this.size = size;
+    }
+
+    /**
+     * Returns the tree last committed to the file of {@code store}, or a new
+     * empty tree with the largest branching factor if nothing was committed.
+     * Nodes are not read until a lookup reaches them.
+     */
+    public static OffHeapBPlusTree open(MappedPageStore store) {
+        int branchingFactor = store.getMeta(BRANCHING_FACTOR_SLOT);
+        if (branchingFactor == 0)
+            return new OffHeapBPlusTree(store);
+        return new OffHeapBPlusTree(store, branchingFactor,
+                store.getMeta(ROOT_SLOT), store.getMeta(SIZE_SLOT));
+    }
+
+    /**
+     * Records the root and size in the file header and flushes all dirty
+     * pages, so that {@link #open(MappedPageStore)} sees the tree as it is now.
+     * Any later change has to be committed as well before the file can be
+     * opened again.
+     *
+     * @throws IllegalStateException if the tree is not stored in a file
+     */
+    public void commit() {
+        if (!(store instanceof MappedPageStore))
+            throw new IllegalStateException("Tree is not backed by a file");
+        MappedPageStore mapped = (MappedPageStore) store;
+        mapped.setMeta(BRANCHING_FACTOR_SLOT, branchingFactor);
+        mapped.setMeta(ROOT_SLOT, root);
+        mapped.setMeta(SIZE_SLOT, size);
+        mapped.commit();
+    }
+
+    /**
+     * Returns the largest branching factor whose nodes, including the spare
+     * slot used before a split, fit in a page of the given size.
+     */
+    public static int maxBranchingFactor(int pageSize) {
+        int branchingFactor = (pageSize - HEADER) / 8;
+        while (branchingFactor > 0
+                && (HEADER + (4 * branchingFactor + 7 & ~7) + 8 * branchingFactor > pageSize
+                || HEADER + 4 * branchingFactor + 4 * (branchingFactor + 1) > pageSize))
+            branchingFactor--;
+        return branchingFactor;
+    }
+
+    public PageStore getPageStore() {
+        return store;
+    }
+
+    public int getBranchingFactor() {
+        return branchingFactor;
+    }
+
+    /**
+     * Returns whether the tree contains an association for the key.
+     */
+    public boolean containsKey(int key) {
+        return indexOf(findLeaf(key), key) >= 0;
+    }
+
+    /**
+     * Returns the value to which the specified key is associated, or
+     * {@code defaultValue} if this tree contains no association for the key.
+     */
+    public long search(int key, long defaultValue) {
+        int leaf = findLeaf(key);
+        int loc = indexOf(leaf, key);
+        return loc >= 0 ? value(leaf, loc) : defaultValue;
+    }
+
+    /**
+     * Returns the values associated with the keys specified by the range:
+     * {@code key1} and {@code key2}, in key order.
+     *
+     * @param key1    the start key of the range
+     * @param policy1 the range policy, {@link RangePolicy#EXCLUSIVE} or
+     *                {@link RangePolicy#INCLUSIVE}
+     * @param key2    the end end of the range
+     * @param policy2 the range policy, {@link RangePolicy#EXCLUSIVE} or
+     *                {@link RangePolicy#INCLUSIVE}
+     */
+    public long[] searchRange(int key1, RangePolicy policy1, int key2,
+                              RangePolicy policy2) {
+        long[] result = new long[16];
+        int count = 0;
+        int page = findLeaf(key1);
+        int loc = indexOf(page, key1);
+        int i = loc < 0 ? -loc - 1 : policy1 == RangePolicy.INCLUSIVE ? loc : loc + 1;
+        while (page != PageStore.NIL) {
+            for (int n = keyNumber(page); i < n; i++) {
+                int key = key(page, i);
+                if (key > key2 || (key == key2 && policy2 == RangePolicy.EXCLUSIVE))
+                    return Arrays.copyOf(result, count);
+                if (count == result.length)
+                    result = Arrays.copyOf(result, count * 2);
+                result[count++] = value(page, i);
+            }
+            page = next(page);
+            i = 0;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Associates the specified value with the specified key in this tree. If
+     * the tree previously contained a association for the key, the old value is
+     * replaced.
+     *
+     * @return {@code true} if the key was not in the tree before
+     */
+    public boolean insert(int key, long value) {
+        int depth = 0;
+        int page = root;
+        while (!isLeaf(page)) {
+            int childIndex = childIndex(page, key);
+            pathPages[depth] = page;
+            pathIndexes[depth] = childIndex;
+            depth++;
+            page = child(page, childIndex);
+        }
+        int loc = indexOf(page, key);
+        if (loc >= 0) {
+            previous = value(page, loc);
+            setValue(page, loc, value);
+            return false;
+        }
+        int index = -loc - 1;
+        int n = keyNumber(page);
+        moveKeys(page, index, page, index + 1, n - index);
+        moveValues(page, index, page, index + 1, n - index);
+        setKey(page, index, key);
+        setValue(page, index, value);
+        setKeyNumber(page, n + 1);
+        size++;
+        if (n + 1 <= branchingFactor - 1)
+            return true;
+
+        int sibling = splitLeaf(page);
+        int separator = key(sibling, 0);
+        while (depth > 0) {
+            depth--;
+            int parent = pathPages[depth];
+            insertChild(parent, pathIndexes[depth], separator, sibling);
+            int m = keyNumber(parent);
+            if (m + 1 <= branchingFactor)
+                return true;
+            separator = key(parent, m / 2);
+            sibling = splitInternal(parent);
+        }
+        int newRoot = newNode(INTERNAL);
+        setKey(newRoot, 0, separator);
+        setChild(newRoot, 0, root);
+        setChild(newRoot, 1, sibling);
+        setKeyNumber(newRoot, 1);
+        root = newRoot;
+        return true;
+    }
+
+    /**
+     * Removes the association for the specified key from this tree if present.
+     *
+     * @return {@code true} if the key was in the tree
+     */
+    public boolean delete(int key) {
+        int depth = 0;
+        int page = root;
+        while (!isLeaf(page)) {
+            int childIndex = childIndex(page, key);
+            pathPages[depth] = page;
+            pathIndexes[depth] = childIndex;
+            depth++;
+            page = child(page, childIndex);
+        }
+        int loc = indexOf(page, key);
+        if (loc < 0)
+            return false;
+        previous = value(page, loc);
+        int n = keyNumber(page);
+        moveKeys(page, loc + 1, page, loc, n - loc - 1);
+        moveValues(page, loc + 1, page, loc, n - loc - 1);
+        setKeyNumber(page, n - 1);
+        size--;
+
+        while (depth > 0 && isUnderflow(page)) {
+            depth--;
+            int parent = pathPages[depth];
+            int childIndex = pathIndexes[depth];
+            int leftIndex = childIndex > 0 ? childIndex - 1 : childIndex;
+            int left = child(parent, leftIndex);
+            int right = child(parent, leftIndex + 1);
+            int separator = key(parent, leftIndex);
+            if (canMerge(left, right)) {
+                merge(left, separator, right);
+                removeChild(parent, leftIndex);
+                store.free(right);
+            } else {
+                setKey(parent, leftIndex, redistribute(left, separator, right));
+            }
+            page = parent;
+        }
+        if (!isLeaf(root) && keyNumber(root) == 0) {
+            int oldRoot = root;
+            root = child(root, 0);
+            store.free(oldRoot);
+        }
+        return true;
+    }
+
+    /**
+     * Values are stored as primitive {@code long}s in the page, so unlike the
+     * on-heap trees this one cannot hold {@code null} values.
+     *
+     * @throws NullPointerException if {@code value} is {@code null}
+     */
+    @Override
+    public Long put(Integer key, Long value) {
+        Objects.requireNonNull(value, "value");
+        return insert(key, value) ? null : previous;
+    }
+
+    @Override
+    public Long get(Integer key) {
+        int leaf = findLeaf(key);
+        int loc = indexOf(leaf, key);
+        return loc >= 0 ? value(leaf, loc) : null;
+    }
+
+    @Override
+    public Long remove(Integer key) {
+        return delete(key) ? previous : null;
+    }
+
+    @Override
+    public Integer floor(Integer key) {
+        // remember the nearest subtree left of the search path; it holds the
+        // floor when the leaf reached has no key less than or equal to key
+        int left = PageStore.NIL;
+        int page = root;
+        while (!isLeaf(page)) {
+            int childIndex = childIndex(page, key);
+            if (childIndex > 0)
+                left = child(page, childIndex - 1);
+            page = child(page, childIndex);
+        }
+        int loc = indexOf(page, key);
+        int index = loc >= 0 ? loc : -loc - 2;
+        if (index >= 0)
+            return key(page, index);
+        if (left == PageStore.NIL)
+            return null;
+        while (!isLeaf(left))
+            left = child(left, keyNumber(left));
+        return key(left, keyNumber(left) - 1);
+    }
+
+    @Override
+    public Integer ceiling(Integer key) {
+        int leaf = findLeaf(key);
+        int loc = indexOf(leaf, key);
+        int index = loc >= 0 ? loc : -loc - 1;
+        if (index < keyNumber(leaf))
+            return key(leaf, index);
+        int next = next(leaf);
+        return next != PageStore.NIL ? key(next, 0) : null;
+    }
+
+    @Override
+    public List<Long> range(Integer from, Integer to) {
+        long[] values = searchRange(from, RangePolicy.INCLUSIVE, to, RangePolicy.INCLUSIVE);
+        List<Long> result = new ArrayList<Long>(values.length);
+        for (long value : values)
+            result.add(value);
+        return result;
+    }
+
+    /**
+     * Performs the given action for each entry in ascending key order,
+     * walking the leaf chain from the leftmost leaf.
+     */
+    @Override
+    public void forEach(BiConsumer<? super Integer, ? super Long> action) {
+        for (int page = findLeaf(Integer.MIN_VALUE); page != PageStore.NIL; page = next(page))
+            for (int i = 0, n = keyNumber(page); i < n; i++)
+                action.accept(key(page, i), value(page, i));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private int findLeaf(int key) {
+        int page = root;
+        while (!isLeaf(page))
+            page = child(page, childIndex(page, key));
+        return page;
+    }
+
+    /**
+     * Binary search over the keys of a page, with the same result convention
+     * as {@link Arrays#binarySearch(int[], int)}.
+     */
+    private int indexOf(int page, int key) {
+        int low = 0;
+        int high = keyNumber(page) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midKey = key(page, mid);
+            if (midKey < key)
+                low = mid + 1;
+            else if (midKey > key)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -(low + 1);
+    }
+
+    private int childIndex(int page, int key) {
+        int loc = indexOf(page, key);
+        return loc >= 0 ? loc + 1 : -loc - 1;
+    }
+
+    private int newNode(int type) {
+        int page = store.allocate();
+        store.putInt(page, KEY_NUMBER, 0);
+        store.putInt(page, TYPE, type);
+        store.putInt(page, NEXT, PageStore.NIL);
+        return page;
+    }
+
+    private int splitLeaf(int page) {
+        int sibling = newNode(LEAF);
+        int n = keyNumber(page);
+        int from = (n + 1) / 2;
+        moveKeys(page, from, sibling, 0, n - from);
+        moveValues(page, from, sibling, 0, n - from);
+        setKeyNumber(sibling, n - from);
+        setKeyNumber(page, from);
+        setNext(sibling, next(page));
+        setNext(page, sibling);
+        return sibling;
+    }
+
+    private int splitInternal(int page) {
+        int sibling = newNode(INTERNAL);
+        int n = keyNumber(page);
+        int from = n / 2 + 1;
+        moveKeys(page, from, sibling, 0, n - from);
+        moveChildren(page, from, sibling, 0, n - from + 1);
+        setKeyNumber(sibling, n - from);
+        setKeyNumber(page, from - 1);
+        return sibling;
+    }
+
+    /**
+     * Inserts a separator key at {@code index} and the child to its right.
+     */
+    private void insertChild(int page, int index, int key, int child) {
+        int n = keyNumber(page);
+        moveKeys(page, index, page, index + 1, n - index);
+        moveChildren(page, index + 1, page, index + 2, n - index);
+        setKey(page, index, key);
+        setChild(page, index + 1, child);
+        setKeyNumber(page, n + 1);
+    }
+
+    /**
+     * Removes the separator key at {@code index} and the child to its right.
+     */
+    private void removeChild(int page, int index) {
+        int n = keyNumber(page);
+        moveKeys(page, index + 1, page, index, n - index - 1);
+        moveChildren(page, index + 2, page, index + 1, n - index - 1);
+        setKeyNumber(page, n - 1);
+    }
+
+    private boolean isUnderflow(int page) {
+        int n = keyNumber(page);
+        return isLeaf(page) ? n < branchingFactor / 2 : n + 1 < (branchingFactor + 1) / 2;
+    }
+
+    private boolean canMerge(int left, int right) {
+        int n = keyNumber(left) + keyNumber(right);
+        return isLeaf(left) ? n <= branchingFactor - 1 : n + 2 <= branchingFactor;
+    }
+
+    private void merge(int left, int separator, int right) {
+        int l = keyNumber(left);
+        int r = keyNumber(right);
+        if (isLeaf(left)) {
+            moveKeys(right, 0, left, l, r);
+            moveValues(right, 0, left, l, r);
+            setKeyNumber(left, l + r);
+            setNext(left, next(right));
+        } else {
+            setKey(left, l, separator);
+            moveKeys(right, 0, left, l + 1, r);
+            moveChildren(right, 0, left, l + 1, r + 1);
+            setKeyNumber(left, l + 1 + r);
+        }
+    }
+
+    /**
+     * Moves entries between two siblings so that they end up split exactly
+     * as merging and then splitting them would have left them.
+     *
+     * @return the new separator key between the two siblings
+     */
+    private int redistribute(int left, int separator, int right) {
+        int l = keyNumber(left);
+        int r = keyNumber(right);
+        if (isLeaf(left)) {
+            int leftKeys = (l + r + 1) / 2;
+            if (l < leftKeys) {
+                int k = leftKeys - l;
+                moveKeys(right, 0, left, l, k);
+                moveValues(right, 0, left, l, k);
+                moveKeys(right, k, right, 0, r - k);
+                moveValues(right, k, right, 0, r - k);
+            } else if (l > leftKeys) {
+                int k = l - leftKeys;
+                moveKeys(right, 0, right, k, r);
+                moveValues(right, 0, right, k, r);
+                moveKeys(left, leftKeys, right, 0, k);
+                moveValues(left, leftKeys, right, 0, k);
+            }
+            setKeyNumber(left, leftKeys);
+            setKeyNumber(right, l + r - leftKeys);
+            return key(right, 0);
+        }
+        int leftKeys = (l + 1 + r) / 2;
+        if (l < leftKeys) {
+            int k = leftKeys - l; // keys taken from the right sibling
+            setKey(left, l, separator);
+            moveKeys(right, 0, left, l + 1, k - 1);
+            moveChildren(right, 0, left, l + 1, k);
+            separator = key(right, k - 1);
+            moveKeys(right, k, right, 0, r - k);
+            moveChildren(right, k, right, 0, r + 1 - k);
+        } else if (l > leftKeys) {
+            int k = l - leftKeys; // keys given to the right sibling
+            moveKeys(right, 0, right, k, r);
+            moveChildren(right, 0, right, k, r + 1);
+            setKey(right, k - 1, separator);
+            moveKeys(left, leftKeys + 1, right, 0, k - 1);
+            moveChildren(left, leftKeys + 1, right, 0, k);
+            separator = key(left, leftKeys);
+        }
+        setKeyNumber(left, leftKeys);
+        setKeyNumber(right, l + r - leftKeys);
+        return separator;
+    }
+
+    private boolean isLeaf(int page) {
+        return store.getInt(page, TYPE) == LEAF;
+    }
+
+    private int keyNumber(int page) {
+        return store.getInt(page, KEY_NUMBER);
+    }
+
+    private void setKeyNumber(int page, int keyNumber) {
+        store.putInt(page, KEY_NUMBER, keyNumber);
+    }
+
+    private int next(int page) {
+        return store.getInt(page, NEXT);
+    }
+
+    private void setNext(int page, int next) {
+        store.putInt(page, NEXT, next);
+    }
+
+    private int key(int page, int index) {
+        return store.getInt(page, HEADER + 4 * index);
+    }
+
+    private void setKey(int page, int index, int key) {
+        store.putInt(page, HEADER + 4 * index, key);
+    }
+
+    private long value(int page, int index) {
+        return store.getLong(page, valuesOffset + 8 * index);
+    }
+
+    private void setValue(int page, int index, long value) {
+        store.putLong(page, valuesOffset + 8 * index, value);
+    }
+
+    private int child(int page, int index) {
+        return store.getInt(page, childrenOffset + 4 * index);
+    }
+
+    private void setChild(int page, int index, int child) {
+        store.putInt(page, childrenOffset + 4 * index, child);
+    }
+
+    private void moveKeys(int srcPage, int srcIndex, int dstPage, int dstIndex, int count) {
+        store.copy(srcPage, HEADER + 4 * srcIndex, dstPage, HEADER + 4 * dstIndex, 4 * count);
+    }
+
+    private void moveValues(int srcPage, int srcIndex, int dstPage, int dstIndex, int count) {
+        store.copy(srcPage, valuesOffset + 8 * srcIndex, dstPage, valuesOffset + 8 * dstIndex, 8 * count);
+    }
+
+    private void moveChildren(int srcPage, int srcIndex, int dstPage, int dstIndex, int count) {
+        store.copy(srcPage, childrenOffset + 4 * srcIndex, dstPage, childrenOffset + 4 * dstIndex, 4 * count);
+    }
+}
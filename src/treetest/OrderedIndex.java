@@ -0,0 +1,94 @@
+package treetest;
+
+import treetest.metrics.TreeMetrics;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * 有序索引<br/>
+ * <br/>
+ * AVLTree、RedBlackTree、BTree、BPlusTree的统一操作接口，关键字不重复(put遇到相同关键字时替换值)，
+ * 使测试和基准测试可以不关心具体是哪一种树
+ * @param <K> 关键字类型
+ * @param <V> 值类型
+ */
+public interface OrderedIndex<K extends Comparable<? super K>, V> {
+    /**
+     * 插入键值对，关键字已存在时替换原来的值
+     * @param key
+     * @param value
+     * @return 原来的值，关键字不存在时返回null
+     */
+    V put(K key, V value);
+
+    /**
+     * 查找
+     * @param key
+     * @return 关键字对应的值，关键字不存在时返回null
+     */
+    V get(K key);
+
+    /**
+     * 删除
+     * @param key
+     * @return 被删除的值，关键字不存在时返回null
+     */
+    V remove(K key);
+
+    /**
+     * @param key
+     * @return 小于等于key的最大关键字，不存在时返回null
+     */
+    K floor(K key);
+
+    /**
+     * @param key
+     * @return 大于等于key的最小关键字，不存在时返回null
+     */
+    K ceiling(K key);
+
+    /**
+     * 范围查询
+     * @param from 下界(包含)
+     * @param to 上界(包含)
+     * @return 关键字在[from, to]之间的值，按关键字升序排列
+     */
+    List<V> range(K from, K to);
+
+    /**
+     * 批量查找，results[i]为keys[i]对应的值，关键字不存在时为null<br/>
+     * 默认逐个调用get，各种树按需改为先对关键字排序、一次遍历完成查找
+     * @param keys
+     * @param results 调用者提供的结果数组，长度不小于keys.length
+     */
+    default void getAll(K[] keys, V[] results) {
+        if (results.length < keys.length) {
+            throw new IllegalArgumentException("Results array too short: "
+                    + results.length + " < " + keys.length);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            results[i] = get(keys[i]);
+        }
+    }
+
+    /**
+     * 按关键字升序遍历所有键值对，除非树本身支持并发访问，遍历过程中不能修改树
+     * @param action
+     */
+    void forEach(BiConsumer<? super K, ? super V> action);
+
+    /**
+     * @return 关键字个数
+     */
+    int size();
+
+    /**
+     * 树内部的工作计数，见TreeMetrics<br/>
+     * 默认没有统计，支持统计的树在构造时开启后返回它的计数器
+     * @return 统计信息，不支持或未开启统计时为null
+     */
+    default TreeMetrics getMetrics() {
+        return null;
+    }
+}
@@ -0,0 +1,168 @@
+package treetest;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Fixed-size pages carved out of large {@link ByteBuffer} chunks.
+ *
+ * <p>
+ * A page is addressed by an {@code int} id and read or written with absolute
+ * accessors, so callers never hold per-page objects. Freed pages are kept on
+ * an intrusive free list (the first four bytes of a free page hold the id of
+ * the next free page) and are handed out again before the store grows.
+ * Subclasses decide where the chunks come from.
+ */
+public abstract class PageStore implements AutoCloseable {
+
+    /**
+     * The id used for "no page".
+     */
+    public static final int NIL = -1;
+
+    /**
+     * The chunk size used when none specified in constructor.
+     */
+    protected static final int DEFAULT_CHUNK_BYTES = 16 << 20;
+
+    private final int pageSize;
+
+    private final int pagesPerChunk;
+
+    private ByteBuffer[] chunks = new ByteBuffer[0];
+
+    /**
+     * The number of pages ever handed out, including freed ones.
+     */
+    private int pageCount;
+
+    private int freeListHead = NIL;
+
+    private int freePageCount;
+
+    /**
+     * Staging area for {@link #copy}, which may move bytes within a page.
+     */
+    private final byte[] scratch;
+
+    protected PageStore(int pageSize, int chunkBytes) {
+        if (pageSize < 64 || pageSize % 8 != 0)
+            throw new IllegalArgumentException("Illegal page size: " + pageSize);
+        if (chunkBytes < pageSize)
+            throw new IllegalArgumentException("Illegal chunk size: " + chunkBytes);
+        this.pageSize = pageSize;
+        this.pagesPerChunk = chunkBytes / pageSize;
+        this.scratch = new byte[pageSize];
+    }
+
+    /**
+     * Returns the buffer backing chunk {@code chunkIndex}, creating it if
+     * needed; its byte order must be {@link java.nio.ByteOrder#nativeOrder()}.
+     */
+    protected abstract ByteBuffer newChunk(int chunkIndex, int chunkBytes);
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    public int getFreePageCount() {
+        return freePageCount;
+    }
+
+    /**
+     * Returns the id of an unused page, reusing a freed page if there is one.
+     * The page content is unspecified.
+     */
+    public int allocate() {
+        if (freeListHead != NIL) {
+            int page = freeListHead;
+            freeListHead = getInt(page, 0);
+            freePageCount--;
+            return page;
+        }
+        int page = pageCount;
+        ensureChunks(page / pagesPerChunk + 1);
+        pageCount++;
+        return page;
+    }
+
+    /**
+     * Returns a page to the free list.
+     */
+    public void free(int page) {
+        putInt(page, 0, freeListHead);
+        freeListHead = page;
+        freePageCount++;
+    }
+
+    public int getInt(int page, int offset) {
+        return chunks[page / pagesPerChunk].getInt(position(page, offset));
+    }
+
+    public void putInt(int page, int offset, int value) {
+        chunks[page / pagesPerChunk].putInt(position(page, offset), value);
+    }
+
+    public long getLong(int page, int offset) {
+        return chunks[page / pagesPerChunk].getLong(position(page, offset));
+    }
+
+    public void putLong(int page, int offset, long value) {
+        chunks[page / pagesPerChunk].putLong(position(page, offset), value);
+    }
+
+    /**
+     * Copies {@code length} bytes between two pages, or within one page even
+     * if the source and destination ranges overlap.
+     */
+    public void copy(int srcPage, int srcOffset, int dstPage, int dstOffset, int length) {
+        if (length <= 0)
+            return;
+        chunks[srcPage / pagesPerChunk].get(position(srcPage, srcOffset), scratch, 0, length);
+        chunks[dstPage / pagesPerChunk].put(position(dstPage, dstOffset), scratch, 0, length);
+    }
+
+    @Override
+    public void close() {
+        chunks = new ByteBuffer[0];
+    }
+
+    /**
+     * Restores the allocator state of a store whose chunks already hold pages.
+     */
+    protected void restore(int pageCount, int freeListHead, int freePageCount) {
+        this.pageCount = pageCount;
+        this.freeListHead = freeListHead;
+        this.freePageCount = freePageCount;
+        ensureChunks((pageCount + pagesPerChunk - 1) / pagesPerChunk);
+    }
+
+    protected int getFreeListHead() {
+        return freeListHead;
+    }
+
+    protected int getPagesPerChunk() {
+        return pagesPerChunk;
+    }
+
+    protected ByteBuffer[] getChunks() {
+        return chunks;
+    }
+
+    private void ensureChunks(int chunkNumber) {
+        if (chunkNumber <= chunks.length)
+            return;
+        int from = chunks.length;
+        chunks = Arrays.copyOf(chunks, chunkNumber);
+        for (int i = from; i < chunkNumber; i++)
+            chunks[i] = newChunk(i, pagesPerChunk * pageSize);
+    }
+
+    private int position(int page, int offset) {
+        return page % pagesPerChunk * pageSize + offset;
+    }
+}
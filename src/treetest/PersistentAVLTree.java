@@ -0,0 +1,300 @@
+package treetest;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+/**
+ * 可持久化(路径复制)的AVL树<br/>
+ * <br/>
+ * 结点创建后不再修改：插入、删除时只复制从根结点到被修改位置的路径上的结点(以及旋转涉及的结点)，
+ * 其余子树由新旧两个版本共享，因此每次写操作只分配O(log n)个结点；<br/>
+ * 新的根结点通过AtomicReference一次性发布，读操作取得根结点后看到的就是一个不会再变化的完整版本，
+ * 既不需要加锁也不会看到旋转到一半的子树，是wait-free的；<br/>
+ * 多个线程同时写时用CAS发布，失败的一方基于最新版本重做，所以写操作是lock-free的
+ */
+public class PersistentAVLTree implements OrderedIndex<Integer, Object> {
+    private final AtomicReference<Node> root;
+
+    public PersistentAVLTree() {
+        this(null);
+    }
+
+    private PersistentAVLTree(Node root) {
+        this.root = new AtomicReference<>(root);
+    }
+
+    /**
+     * 返回当前版本的快照，之后对两棵树的修改互不影响
+     */
+    public PersistentAVLTree snapshot() {
+        return new PersistentAVLTree(root.get());
+    }
+
+    /**
+     * 查找结点值
+     */
+    public Object get(int key) {
+        Node node = find(root.get(), key);
+        return node == null ? null : node.value;
+    }
+
+    @Override
+    public Object put(Integer key, Object value) {
+        while (true) {
+            Node current = root.get();
+            Node old = find(current, key);
+            if (root.compareAndSet(current, insert(current, key, value))) {
+                return old == null ? null : old.value;
+            }
+        }
+    }
+
+    @Override
+    public Object get(Integer key) {
+        return get((int) key);
+    }
+
+    @Override
+    public Object remove(Integer key) {
+        while (true) {
+            Node current = root.get();
+            Node old = find(current, key);
+            if (old == null) {
+                return null;
+            }
+            if (root.compareAndSet(current, delete(current, key))) {
+                return old.value;
+            }
+        }
+    }
+
+    /**
+     * 查找小于等于key的最大关键字
+     */
+    @Override
+    public Integer floor(Integer key) {
+        Node node = root.get();
+        Node floor = null;
+        while (node != null) {
+            if (node.key > key) {
+                node = node.left;
+            } else if (node.key < key) {
+                floor = node;
+                node = node.right;
+            } else {
+                return node.key;
+            }
+        }
+        return floor == null ? null : floor.key;
+    }
+
+    /**
+     * 查找大于等于key的最小关键字
+     */
+    @Override
+    public Integer ceiling(Integer key) {
+        Node node = root.get();
+        Node ceiling = null;
+        while (node != null) {
+            if (node.key < key) {
+                node = node.right;
+            } else if (node.key > key) {
+                ceiling = node;
+                node = node.left;
+            } else {
+                return node.key;
+            }
+        }
+        return ceiling == null ? null : ceiling.key;
+    }
+
+    /**
+     * 范围查询，结果来自同一个版本
+     */
+    @Override
+    public List<Object> range(Integer from, Integer to) {
+        List<Object> result = new ArrayList<>();
+        range(root.get(), from, to, result);
+        return result;
+    }
+
+    private void range(Node node, int from, int to, List<Object> result) {
+        if (node == null) {
+            return;
+        }
+        if (node.key > from) {
+            range(node.left, from, to, result);
+        }
+        if (node.key >= from && node.key <= to) {
+            result.add(node.value);
+        }
+        if (node.key < to) {
+            range(node.right, from, to, result);
+        }
+    }
+
+    /**
+     * 中序遍历，遍历的是调用时的版本，期间其它线程的修改不影响遍历
+     */
+    @Override
+    public void forEach(BiConsumer<? super Integer, ? super Object> action) {
+        Deque<Node> stack = new ArrayDeque<>();
+        Node node = root.get();
+        while (node != null || !stack.isEmpty()) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+            node = stack.pop();
+            action.accept(node.key, node.value);
+            node = node.right;
+        }
+    }
+
+    /**
+     * 每个结点记录子树的结点个数，因此是O(1)的
+     */
+    @Override
+    public int size() {
+        return count(root.get());
+    }
+
+    /**
+     * 检查当前版本是否平衡
+     */
+    public boolean checkBalance() {
+        return checkBalance(root.get());
+    }
+
+    private boolean checkBalance(Node node) {
+        if (node == null) {
+            return true;
+        }
+        return Math.abs(height(node.left) - height(node.right)) <= 1
+                && checkBalance(node.left) && checkBalance(node.right);
+    }
+
+    private static Node find(Node node, int key) {
+        while (node != null) {
+            if (node.key < key) {
+                node = node.right;
+            } else if (node.key > key) {
+                node = node.left;
+            } else {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 返回插入(或替换)后的新子树，原子树不变
+     */
+    private static Node insert(Node node, int key, Object value) {
+        if (node == null) {
+            return new Node(key, value, null, null);
+        }
+        if (node.key > key) {
+            return balance(node.key, node.value, insert(node.left, key, value), node.right);
+        }
+        if (node.key < key) {
+            return balance(node.key, node.value, node.left, insert(node.right, key, value));
+        }
+        // 关键字已存在，只需复制当前结点替换value，结构不变
+        return new Node(key, value, node.left, node.right);
+    }
+
+    /**
+     * 返回删除后的新子树，原子树不变；调用前已确认key存在
+     */
+    private static Node delete(Node node, int key) {
+        if (node.key > key) {
+            return balance(node.key, node.value, delete(node.left, key), node.right);
+        }
+        if (node.key < key) {
+            return balance(node.key, node.value, node.left, delete(node.right, key));
+        }
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        // 有左右子树：用右子树的最左结点接替
+        Node min = node.right;
+        while (min.left != null) {
+            min = min.left;
+        }
+        return balance(min.key, min.value, node.left, deleteMin(node.right));
+    }
+
+    private static Node deleteMin(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        return balance(node.key, node.value, deleteMin(node.left), node.right);
+    }
+
+    /**
+     * 以key、value以及左右子树创建新结点，左右子树高度差超过1时通过旋转创建平衡后的结点<br/>
+     * 旋转不修改已有结点，而是创建新的结点
+     */
+    private static Node balance(int key, Object value, Node left, Node right) {
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+        if (leftHeight > rightHeight + 1) {
+            if (height(left.left) >= height(left.right)) { // 右旋
+                return new Node(left.key, left.value, left.left, new Node(key, value, left.right, right));
+            }
+            // 左子树先左旋，再右旋
+            Node leftRight = left.right;
+            return new Node(leftRight.key, leftRight.value,
+                    new Node(left.key, left.value, left.left, leftRight.left),
+                    new Node(key, value, leftRight.right, right));
+        }
+        if (rightHeight > leftHeight + 1) {
+            if (height(right.right) >= height(right.left)) { // 左旋
+                return new Node(right.key, right.value, new Node(key, value, left, right.left), right.right);
+            }
+            // 右子树先右旋，再左旋
+            Node rightLeft = right.left;
+            return new Node(rightLeft.key, rightLeft.value,
+                    new Node(key, value, left, rightLeft.left),
+                    new Node(right.key, right.value, rightLeft.right, right.right));
+        }
+        return new Node(key, value, left, right);
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static int count(Node node) {
+        return node == null ? 0 : node.count;
+    }
+
+    /**
+     * 不可变结点，所有属性在构造时确定
+     */
+    private static final class Node {
+        final int key;
+        final Object value;
+        final int height;
+        final int count; // 以该结点为根的子树的结点个数
+        final Node left;
+        final Node right;
+
+        Node(int key, Object value, Node left, Node right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.count = count(left) + count(right) + 1;
+        }
+    }
+}
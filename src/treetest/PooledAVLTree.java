@@ -0,0 +1,411 @@
+package treetest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * 结点存放在并行数组中的AVL树<br/>
+ * <br/>
+ * 与AVLTree的插入、删除、查找语义相同，但不为每个结点创建对象：第i个结点的关键字、值、左右子结点和高度
+ * 分别保存在keys[i]、values[i]、left[i]、right[i]、height[i]中，子结点用下标表示；<br/>
+ * 下标0表示空结点(高度为0)，删除的结点通过left数组串成空闲链表供之后的插入复用，容量不足时数组长度翻倍；<br/>
+ * 每个结点只占用4+4+4+1字节加一个值引用，旋转时访问的也都是连续数组中的元素
+ */
+public class PooledAVLTree implements OrderedIndex<Integer, Object> {
+    private static final int NIL = 0; // 空结点的下标
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int[] left;
+    private int[] right;
+    private byte[] height; // 结点个数不超过int范围时高度不超过45，byte足够
+
+    private int root = NIL;
+    private int size;
+    private int allocated = 1; // 已使用过的下标个数，下标0保留给空结点
+    private int freeList = NIL; // 空闲链表的头结点，链表通过left数组相连
+
+    public PooledAVLTree() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity 预计的结点个数，达到后数组长度翻倍
+     */
+    public PooledAVLTree(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        }
+        int length = Math.max(capacity + 1, 2);
+        keys = new int[length];
+        values = new Object[length];
+        left = new int[length];
+        right = new int[length];
+        height = new byte[length];
+    }
+
+    /**
+     * 查找结点值
+     */
+    public Object get(int key) {
+        int node = find(key);
+        return node == NIL ? null : values[node];
+    }
+
+    /**
+     * 插入结点，关键字已存在时替换value
+     *
+     * @return 原来的value
+     */
+    public Object put(int key, Object value) {
+        int node = find(key);
+        if (node != NIL) {
+            // 关键字已存在，直接替换value，树的结构不变
+            Object old = values[node];
+            values[node] = value;
+            return old;
+        }
+        // 先分配结点再递归，递归过程中数组不会再被替换
+        root = insert(root, allocate(key, value));
+        size++;
+        return null;
+    }
+
+    /**
+     * 删除结点
+     */
+    public boolean delete(int key) {
+        if (find(key) == NIL) {
+            return false;
+        }
+        root = delete(root, key);
+        size--;
+        return true;
+    }
+
+    /**
+     * 批量查找，results[i]为keys[i]对应的值，关键字不存在时为null<br/>
+     * 先对关键字排序，再从根结点向下把有序的关键字区间分给左右子树，每个结点只访问一次
+     */
+    public void getAll(int[] batch, Object[] results) {
+        SortedProbes.prepare(batch.length, results);
+        long[] probes = SortedProbes.sort(batch);
+        getAll(root, probes, 0, probes.length, results);
+    }
+
+    /**
+     * 查找probes[from, to)，左子树在循环中处理，只对右子树递归
+     */
+    private void getAll(int node, long[] probes, int from, int to, Object[] results) {
+        while (node != NIL && from < to) {
+            int low = SortedProbes.lowerBound(probes, from, to, keys[node]);
+            int high = SortedProbes.upperBound(probes, low, to, keys[node]);
+            for (int i = low; i < high; i++) {
+                results[SortedProbes.index(probes[i])] = values[node];
+            }
+            getAll(right[node], probes, high, to, results);
+            node = left[node];
+            to = low;
+        }
+    }
+
+    @Override
+    public void getAll(Integer[] keys, Object[] results) {
+        getAll(SortedProbes.unbox(keys), results);
+    }
+
+    @Override
+    public Object put(Integer key, Object value) {
+        return put((int) key, value);
+    }
+
+    @Override
+    public Object get(Integer key) {
+        return get((int) key);
+    }
+
+    @Override
+    public Object remove(Integer key) {
+        int node = find(key);
+        if (node == NIL) {
+            return null;
+        }
+        // 删除时node可能会被后继结点的数据覆盖，因此先保存
+        Object old = values[node];
+        root = delete(root, key);
+        size--;
+        return old;
+    }
+
+    /**
+     * 查找小于等于key的最大关键字
+     */
+    @Override
+    public Integer floor(Integer key) {
+        int node = root;
+        int floor = NIL;
+        while (node != NIL) {
+            if (keys[node] > key) {
+                node = left[node];
+            } else if (keys[node] < key) {
+                floor = node;
+                node = right[node];
+            } else {
+                return keys[node];
+            }
+        }
+        return floor == NIL ? null : keys[floor];
+    }
+
+    /**
+     * 查找大于等于key的最小关键字
+     */
+    @Override
+    public Integer ceiling(Integer key) {
+        int node = root;
+        int ceiling = NIL;
+        while (node != NIL) {
+            if (keys[node] < key) {
+                node = right[node];
+            } else if (keys[node] > key) {
+                ceiling = node;
+                node = left[node];
+            } else {
+                return keys[node];
+            }
+        }
+        return ceiling == NIL ? null : keys[ceiling];
+    }
+
+    /**
+     * 范围查询，只进入可能包含[from, to]中关键字的子树
+     */
+    @Override
+    public List<Object> range(Integer from, Integer to) {
+        List<Object> result = new ArrayList<>();
+        range(root, from, to, result);
+        return result;
+    }
+
+    private void range(int node, int from, int to, List<Object> result) {
+        if (node == NIL) {
+            return;
+        }
+        if (keys[node] > from) {
+            range(left[node], from, to, result);
+        }
+        if (keys[node] >= from && keys[node] <= to) {
+            result.add(values[node]);
+        }
+        if (keys[node] < to) {
+            range(right[node], from, to, result);
+        }
+    }
+
+    /**
+     * 中序遍历，用显式栈保存尚未访问的祖先结点的下标
+     */
+    @Override
+    public void forEach(BiConsumer<? super Integer, ? super Object> action) {
+        int[] stack = new int[64]; // 高度不超过45
+        int depth = 0;
+        int node = root;
+        while (node != NIL || depth > 0) {
+            while (node != NIL) {
+                stack[depth++] = node;
+                node = left[node];
+            }
+            node = stack[--depth];
+            action.accept(keys[node], values[node]);
+            node = right[node];
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 当前数组的容量(可容纳的结点个数)
+     */
+    public int capacity() {
+        return keys.length - 1;
+    }
+
+    /**
+     * 检查AVL树是否平衡，同时检查记录的高度是否正确
+     */
+    public boolean checkBalance() {
+        return checkHeight(root) >= 0;
+    }
+
+    /**
+     * @return 子树的高度，不平衡或高度记录错误时返回-1
+     */
+    private int checkHeight(int node) {
+        if (node == NIL) {
+            return 0;
+        }
+        int leftHeight = checkHeight(left[node]);
+        int rightHeight = checkHeight(right[node]);
+        if (leftHeight < 0 || rightHeight < 0 || Math.abs(leftHeight - rightHeight) > 1
+                || height[node] != Math.max(leftHeight, rightHeight) + 1) {
+            return -1;
+        }
+        return height[node];
+    }
+
+    private int find(int key) {
+        int node = root;
+        while (node != NIL) {
+            if (keys[node] < key) {
+                node = right[node];
+            } else if (keys[node] > key) {
+                node = left[node];
+            } else {
+                return node;
+            }
+        }
+        return NIL;
+    }
+
+    /**
+     * 把结点newNode插入以node为根的子树，返回调整后的根结点；调用前已确认关键字不存在
+     */
+    private int insert(int node, int newNode) {
+        if (node == NIL) {
+            return newNode;
+        }
+        if (keys[node] > keys[newNode]) {
+            left[node] = insert(left[node], newNode);
+        } else {
+            right[node] = insert(right[node], newNode);
+        }
+        resetHeight(node);
+        return reBalance(node);
+    }
+
+    /**
+     * 从以node为根的子树中删除key，返回调整后的根结点；调用前已确认key存在
+     */
+    private int delete(int node, int key) {
+        if (keys[node] > key) {
+            left[node] = delete(left[node], key);
+        } else if (keys[node] < key) {
+            right[node] = delete(right[node], key);
+        } else if (left[node] == NIL || right[node] == NIL) {
+            // 至多只有一个子树，用它接替node
+            int child = left[node] == NIL ? right[node] : left[node];
+            release(node);
+            return child;
+        } else {
+            // 有左右子树：把右子树的最左结点的数据搬到node，再从右子树中删除它
+            int min = right[node];
+            while (left[min] != NIL) {
+                min = left[min];
+            }
+            keys[node] = keys[min];
+            values[node] = values[min];
+            right[node] = delete(right[node], keys[min]);
+        }
+        resetHeight(node);
+        return reBalance(node);
+    }
+
+    /**
+     * 平衡调整
+     */
+    private int reBalance(int node) {
+        int altitudeDiff = height[left[node]] - height[right[node]];
+        if (altitudeDiff > 1) {
+            if (height[left[left[node]]] < height[right[left[node]]]) {
+                // 左子树先左旋
+                left[node] = leftRevolve(left[node]);
+            }
+            return rightRevolve(node);
+        }
+        if (altitudeDiff < -1) {
+            if (height[right[right[node]]] < height[left[right[node]]]) {
+                // 右子树先右旋
+                right[node] = rightRevolve(right[node]);
+            }
+            return leftRevolve(node);
+        }
+        return node;
+    }
+
+    /**
+     * 左旋
+     */
+    private int leftRevolve(int node) {
+        int r = right[node];
+        right[node] = left[r];
+        left[r] = node;
+        resetHeight(node);
+        resetHeight(r);
+        return r;
+    }
+
+    /**
+     * 右旋
+     */
+    private int rightRevolve(int node) {
+        int l = left[node];
+        left[node] = right[l];
+        right[l] = node;
+        resetHeight(node);
+        resetHeight(l);
+        return l;
+    }
+
+    private void resetHeight(int node) {
+        height[node] = (byte) (Math.max(height[left[node]], height[right[node]]) + 1);
+    }
+
+    /**
+     * 分配一个结点，优先复用空闲链表中的下标，否则使用新下标，数组已满时长度翻倍
+     */
+    private int allocate(int key, Object value) {
+        int node;
+        if (freeList != NIL) {
+            node = freeList;
+            freeList = left[node];
+        } else {
+            if (allocated == keys.length) {
+                grow();
+            }
+            node = allocated++;
+        }
+        keys[node] = key;
+        values[node] = value;
+        left[node] = NIL;
+        right[node] = NIL;
+        height[node] = 1;
+        return node;
+    }
+
+    /**
+     * 回收结点，清空value以免阻止回收
+     */
+    private void release(int node) {
+        values[node] = null;
+        left[node] = freeList;
+        freeList = node;
+    }
+
+    private void grow() {
+        int length = keys.length * 2;
+        if (length < 0) {
+            throw new IllegalStateException("Tree is full");
+        }
+        keys = Arrays.copyOf(keys, length);
+        values = Arrays.copyOf(values, length);
+        left = Arrays.copyOf(left, length);
+        right = Arrays.copyOf(right, length);
+        height = Arrays.copyOf(height, length);
+    }
+}
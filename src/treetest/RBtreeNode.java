@@ -1,17 +1,27 @@
 package treetest;
 
+/**
+ * 红黑树节点<br/>
+ * <br/>
+ * 没有父节点指针，插入、删除时由RedBlackTree记录从根到当前节点的路径；<br/>
+ * 字段由RedBlackTree直接访问，对外只提供只读的getter<br/>
+ * 颜色用一个boolean表示：对象头12字节+key 4字节+三个引用12字节(压缩指针)共28字节，
+ * 按8字节对齐后为32字节，boolean正好落在对齐填充里，不额外占用内存
+ */
 public class RBtreeNode {
-    public static boolean Red = false;
-    public static boolean Black = true;
+    public static final boolean Red = false;
+    public static final boolean Black = true;
+
+    int key;
+    Object value;
+    RBtreeNode left;
+    RBtreeNode right;
     //节点颜色
-    private boolean color;
-    private int data;
-    private RBtreeNode left;
-    private RBtreeNode right;
-    private RBtreeNode parent;
-
-    public RBtreeNode(int data){
-        this.data = data;
+    boolean color;
+
+    RBtreeNode(int key, Object value) {
+        this.key = key;
+        this.value = value;
         color = Red;
     }
 
@@ -19,39 +29,19 @@ public class RBtreeNode {
         return color;
     }
 
-    public void setColor(boolean color) {
-        this.color = color;
-    }
-
     public int getData() {
-        return data;
+        return key;
     }
 
-    public void setData(int data) {
-        this.data = data;
+    public Object getValue() {
+        return value;
     }
 
     public RBtreeNode getLeft() {
         return left;
     }
 
-    public void setLeft(RBtreeNode left) {
-        this.left = left;
-    }
-
     public RBtreeNode getRight() {
         return right;
     }
-
-    public void setRight(RBtreeNode right) {
-        this.right = right;
-    }
-
-    public RBtreeNode getParent() {
-        return parent;
-    }
-
-    public void setParent(RBtreeNode parent) {
-        this.parent = parent;
-    }
 }
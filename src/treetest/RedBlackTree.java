@@ -1,318 +1,555 @@
 package treetest;
 
+import treetest.metrics.TreeMetrics;
+import treetest.metrics.TreeShape;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
+import java.util.function.BiConsumer;
 
 /**
- * 红黑树
+ * 红黑树<br/>
+ * <br/>
+ * 存储键值对，关键字不重复(插入已有关键字时替换值)；<br/>
+ * 节点不保存父节点指针：插入、删除时把从根到当前节点的路径记录在path数组中，自底向上修复时从数组中取父节点和祖父节点
  */
-public class RedBlackTree {
+public class RedBlackTree implements OrderedIndex<Integer, Object>, TreeShape {
+    //红黑树的高度不超过2log(n+1)，节点个数不超过int范围时64足够，删除修复时路径最多再增加一个节点
+    private static final int MAX_PATH = 64;
+
     //根节点
     private RBtreeNode root;
+    //节点个数
+    private int size;
+    //插入、删除时从根到当前节点的路径，path[0]为根节点
+    private final RBtreeNode[] path = new RBtreeNode[MAX_PATH];
+    //统计信息，未开启统计时为null
+    private final TreeMetrics metrics;
 
+    public RedBlackTree(){
+        this(false);
+    }
 
     /**
-     * 插入节点
-     * @param data
-     * @return
+     * @param collectMetrics 是否统计旋转次数和查找经过的节点数
+     */
+    public RedBlackTree(boolean collectMetrics){
+        metrics = collectMetrics ? new TreeMetrics(this) : null;
+    }
+
+    /**
+     * @return 统计信息，构造时未开启统计则为null
+     */
+    @Override
+    public TreeMetrics getMetrics(){
+        return metrics;
+    }
+
+    /**
+     * 插入键值对，key已存在时替换value
+     * @param key
+     * @param value
+     * @return 原来的value
      */
-    public RBtreeNode insert(int data){
-        RBtreeNode insert = new RBtreeNode(data);
+    public Object put(int key, Object value){
         if(root == null){
-            root = insert;
-            setBlack(insert);
-        }else{
-            RBtreeNode parent = null;
-            RBtreeNode node = root;
-            while(node != null){
-                parent = node;
-                if(node.getData() >= data){
-                    //左子树
-                    node = node.getLeft();
-                }else{
-                    //右子树
-                    node = node.getRight();
+            root = new RBtreeNode(key, value);
+            root.color = RBtreeNode.Black;
+            size++;
+            return null;
+        }
+        int depth = 0;
+        RBtreeNode node = root;
+        RBtreeNode insert;
+        while(true){
+            path[depth++] = node;
+            if(key < node.key){
+                if(node.left == null){
+                    insert = node.left = new RBtreeNode(key, value);
+                    break;
                 }
-            }
-
-            //跳出循环则说明找到插入位置
-            if(parent.getData() >= data){
-                parent.setLeft(insert);
+                node = node.left;
+            }else if(key > node.key){
+                if(node.right == null){
+                    insert = node.right = new RBtreeNode(key, value);
+                    break;
+                }
+                node = node.right;
             }else{
-                parent.setRight(insert);
+                Object old = node.value;
+                node.value = value;
+                return old;
             }
-            insert.setParent(parent);
-
-            //旋转和调整节点颜色保持红黑树平衡
-            insertFix(insert);
         }
-        return insert;
+        path[depth] = insert;
+        size++;
+
+        //旋转和调整节点颜色保持红黑树平衡
+        insertFix(depth);
+        return null;
     }
 
     /**
      * 旋转和调整节点颜色保持红黑树平衡
-     * @param node 插入节点
+     * @param i 插入节点在path中的下标
      */
-    private void insertFix(RBtreeNode node) {
-        while(node.getParent() != null && isRed(node.getParent())){
-            RBtreeNode parent = node.getParent();
-            RBtreeNode grandFather = parent.getParent();
-            if(grandFather.getLeft() == parent){
+    private void insertFix(int i) {
+        //父节点为红色时，父节点必然不是根节点，因此祖父节点存在
+        while(i >= 2 && isRed(path[i - 1])){
+            RBtreeNode node = path[i];
+            RBtreeNode parent = path[i - 1];
+            RBtreeNode grandFather = path[i - 2];
+            if(grandFather.left == parent){
                 //F为G左儿子的情况
-                RBtreeNode uncle = grandFather.getRight();
-                if(uncle != null && isRed(uncle)){
-                    setBlack(parent);
-                    setBlack(uncle);
-                    setRed(grandFather);
-                    node = grandFather;
+                RBtreeNode uncle = grandFather.right;
+                if(isRed(uncle)){
+                    parent.color = RBtreeNode.Black;
+                    uncle.color = RBtreeNode.Black;
+                    grandFather.color = RBtreeNode.Red;
+                    i -= 2;
                     continue;
                 }
-                if(parent.getRight() == node){
-                    //插入节点为父节点的右子树
-
-                    //左旋
-                    leftRotate(parent);
-
-                    //将旋转后的parent看作插入节点
-                    RBtreeNode tmp = node;
-                    node = parent;
-                    parent = tmp;
+                if(parent.right == node){
+                    //插入节点为父节点的右子树，左旋后将原来的parent看作插入节点
+                    grandFather.left = leftRotate(parent);
+                    parent = node;
                 }
-                setBlack(parent);
-                setRed(grandFather);
-                rightRotate(grandFather);
+                parent.color = RBtreeNode.Black;
+                grandFather.color = RBtreeNode.Red;
+                replaceChild(i >= 3 ? path[i - 3] : null, grandFather, rightRotate(grandFather));
                 break;
             }else{
                 //F为G的右儿子的情况，对称操作
-                RBtreeNode uncle = grandFather.getLeft();
-                if(uncle != null && isRed(uncle)){
-                    setBlack(parent);
-                    setBlack(uncle);
-                    setRed(grandFather);
-                    node = grandFather;
+                RBtreeNode uncle = grandFather.left;
+                if(isRed(uncle)){
+                    parent.color = RBtreeNode.Black;
+                    uncle.color = RBtreeNode.Black;
+                    grandFather.color = RBtreeNode.Red;
+                    i -= 2;
                     continue;
                 }
-                if(parent.getLeft() == node){
+                if(parent.left == node){
                     //插入位置为父节点的左子树
-
-                    //右旋
-                    rightRotate(parent);
-
-                    RBtreeNode tmp = node;
-                    node = parent;
-                    parent = tmp;
+                    grandFather.right = rightRotate(parent);
+                    parent = node;
                 }
-                setBlack(parent);
-                setRed(grandFather);
-                leftRotate(grandFather);
+                parent.color = RBtreeNode.Black;
+                grandFather.color = RBtreeNode.Red;
+                replaceChild(i >= 3 ? path[i - 3] : null, grandFather, leftRotate(grandFather));
                 break;
             }
         }
-        setBlack(root);
+        root.color = RBtreeNode.Black;
     }
 
     /**
      * 删除节点
-     * @param data
-     * @return
+     * @param key
+     * @return 是否存在该节点
      */
-    public RBtreeNode delete(int data){
-        RBtreeNode node = query(data);
-        if(node == null){
-            return null;
-        }
-        deleteNode(node);
-        return node;
-    }
-
-    /**
-     * 查询节点
-     * @param data
-     * @return
-     */
-    public RBtreeNode query(int data){
-        if(root == null){
-            return null;
-        }
+    public boolean delete(int key){
+        int depth = 0;
         RBtreeNode node = root;
-        while(node != null){
-            if(node.getData() == data){
-                return node;
-            }else if(node.getData() >= data){
-                node = node.getLeft();
-            }else {
-                node = node.getRight();
-            }
+        while(node != null && node.key != key){
+            path[depth++] = node;
+            node = key < node.key ? node.left : node.right;
         }
-        return null;
-    }
-
-    private void deleteNode(RBtreeNode node) {
-        if (node == null){
-            return;
+        if(node == null){
+            return false;
         }
-        //替换节点
-        RBtreeNode replaceNode = null;
-        if(node.getLeft() != null && node.getRight() != null){
-            //存在左右子树
-            RBtreeNode tmp = node.getRight();
-            while(tmp != null){
-                replaceNode = tmp;
-                tmp = tmp.getLeft();
+        path[depth] = node;
+        if(node.left != null && node.right != null){
+            //存在左右子树，用后继节点(右子树的最左节点)的键值替换，转为删除后继节点
+            RBtreeNode replaceNode = node.right;
+            path[++depth] = replaceNode;
+            while(replaceNode.left != null){
+                replaceNode = replaceNode.left;
+                path[++depth] = replaceNode;
             }
-            //将替换节点的值放到原本需要删除的节点
-            node.setData(replaceNode.getData());
-            //删除替换节点
+            node.key = replaceNode.key;
+            node.value = replaceNode.value;
             node = replaceNode;
         }
 
-        if(node.getLeft() != null){
-            replaceNode = node.getLeft();
-        }else{
-            replaceNode = node.getRight();
-        }
-        RBtreeNode parent = node.getParent();
-        if(parent == null){
-            root = replaceNode;
-            if(replaceNode != null){
-                replaceNode.setParent(null);
-            }
-        }else{
-            if(parent.getLeft() == node){
-                parent.setLeft(replaceNode);
-            }else{
-                parent.setRight(replaceNode);
-            }
-            if(replaceNode != null){
-                replaceNode.setParent(parent);
-            }
-        }
-        if(isBlack(node)){
+        //此时node至多有一个子树，用它接替node
+        RBtreeNode replaceNode = node.left != null ? node.left : node.right;
+        RBtreeNode parent = depth > 0 ? path[depth - 1] : null;
+        replaceChild(parent, node, replaceNode);
+        size--;
+        if(node.color == RBtreeNode.Black){
             //replaceNode为了保持平衡，多了一个黑色，需修复
-            removeFix(parent, replaceNode);
+            removeFix(depth - 1, replaceNode);
         }
+        return true;
     }
 
     /**
      * 修复
-     * @param parent
-     * @param node 多了一个黑色
+     * @param i 父节点在path中的下标，为-1时node为根节点
+     * @param node 多了一个黑色，可能为null
      */
-    private void removeFix(RBtreeNode parent, RBtreeNode node) {
-        while(isBlack(node) && node != root){
-            if(parent.getLeft() == node){
+    private void removeFix(int i, RBtreeNode node) {
+        while(i >= 0 && isBlack(node)){
+            RBtreeNode parent = path[i];
+            //node为null时，兄弟节点必然存在(黑高至少为1)，因此parent.left为null说明node是左儿子
+            if(parent.left == node){
                 //S是P的左儿子
-                RBtreeNode brother = parent.getRight();
+                RBtreeNode brother = parent.right;
                 if(isRed(brother)){
-                    setBlack(brother);
-                    setRed(parent);
-                    leftRotate(parent);
-                    brother = parent.getRight();
+                    brother.color = RBtreeNode.Black;
+                    parent.color = RBtreeNode.Red;
+                    replaceChild(i > 0 ? path[i - 1] : null, parent, leftRotate(parent));
+                    //brother旋转到parent之上，路径中插入brother
+                    path[i++] = brother;
+                    path[i] = parent;
+                    brother = parent.right;
                 }
-                if(brother == null || (isBlack(brother.getLeft()) && isBlack(brother.getRight()))){
-                    setRed(brother);
+                if(isBlack(brother.left) && isBlack(brother.right)){
+                    brother.color = RBtreeNode.Red;
                     node = parent;
-                    parent = node.getParent();
+                    i--;
                     continue;
                 }
-                if(isRed(brother.getLeft()) && isBlack(brother.getRight())){
-                    setRed(brother);
-                    setBlack(brother.getLeft());
-                    rightRotate(brother);
-                    brother = parent.getRight();
+                if(isBlack(brother.right)){
+                    brother.color = RBtreeNode.Red;
+                    brother.left.color = RBtreeNode.Black;
+                    brother = parent.right = rightRotate(brother);
                 }
-                brother.setColor(parent.isColor());
-                setBlack(parent);
-                setBlack(brother.getRight());
-                leftRotate(parent);
+                brother.color = parent.color;
+                parent.color = RBtreeNode.Black;
+                brother.right.color = RBtreeNode.Black;
+                replaceChild(i > 0 ? path[i - 1] : null, parent, leftRotate(parent));
                 node = root;
+                break;
             }else{
                 //S是P的右儿子
-                RBtreeNode brother = parent.getLeft();
+                RBtreeNode brother = parent.left;
                 if(isRed(brother)){
-                    setBlack(brother);
-                    setRed(parent);
-                    rightRotate(parent);
-                    brother = parent.getLeft();
+                    brother.color = RBtreeNode.Black;
+                    parent.color = RBtreeNode.Red;
+                    replaceChild(i > 0 ? path[i - 1] : null, parent, rightRotate(parent));
+                    path[i++] = brother;
+                    path[i] = parent;
+                    brother = parent.left;
                 }
-                if(brother == null || (isBlack(brother.getLeft()) && isBlack(brother.getRight()))){
-                    setRed(brother);
+                if(isBlack(brother.left) && isBlack(brother.right)){
+                    brother.color = RBtreeNode.Red;
                     node = parent;
-                    parent = node.getParent();
+                    i--;
                     continue;
                 }
-                if(isRed(brother.getRight()) && isBlack(brother.getLeft())){
-                    setBlack(brother.getRight());
-                    setRed(brother);
-                    leftRotate(brother);
-                    brother = parent.getLeft();
+                if(isBlack(brother.left)){
+                    brother.color = RBtreeNode.Red;
+                    brother.right.color = RBtreeNode.Black;
+                    brother = parent.left = leftRotate(brother);
                 }
-                brother.setColor(parent.isColor());
-                setBlack(parent);
-                setBlack(brother.getLeft());
-                rightRotate(parent);
+                brother.color = parent.color;
+                parent.color = RBtreeNode.Black;
+                brother.left.color = RBtreeNode.Black;
+                replaceChild(i > 0 ? path[i - 1] : null, parent, rightRotate(parent));
                 node = root;
+                break;
             }
         }
         if(node != null){
-            setBlack(node);
+            node.color = RBtreeNode.Black;
         }
     }
 
     /**
-     * 左旋
-     * @param node
+     * 查询节点值
+     * @param key
+     * @return
      */
-    private void leftRotate(RBtreeNode node) {
-        RBtreeNode right = node.getRight();
-        RBtreeNode parent = node.getParent();
+    public Object get(int key){
+        RBtreeNode node = root;
+        int visits = 0;
+        while(node != null){
+            visits++;
+            if(key < node.key){
+                node = node.left;
+            }else if(key > node.key){
+                node = node.right;
+            }else{
+                break;
+            }
+        }
+        if(metrics != null){
+            metrics.lookup(visits);
+        }
+        return node == null ? null : node.value;
+    }
 
-        node.setRight(right.getLeft());
-        if(right.getLeft() != null){
-            right.getLeft().setParent(node);
+    /**
+     * 查询节点
+     * @param key
+     * @return
+     */
+    public RBtreeNode query(int key){
+        RBtreeNode node = root;
+        while(node != null && node.key != key){
+            node = key < node.key ? node.left : node.right;
         }
-        node.setParent(right);
+        return node;
+    }
 
-        right.setLeft(node);
-        if(parent == null){
-            root = right;
-            right.setParent(null);
-        }else{
-            right.setParent(parent);
-            if(parent.getLeft() != null && parent.getLeft() == node){
-                parent.setLeft(right);
+    /**
+     * 批量查找，results[i]为keys[i]对应的值，关键字不存在时为null<br/>
+     * 先对关键字排序，再从根节点向下把有序的关键字区间分给左右子树，每个节点只访问一次
+     * @param keys
+     * @param results 长度不小于keys.length
+     */
+    public void getAll(int[] keys, Object[] results){
+        SortedProbes.prepare(keys.length, results);
+        long[] probes = SortedProbes.sort(keys);
+        getAll(root, probes, 0, probes.length, results);
+    }
+
+    /**
+     * 查找probes[from, to)，左子树在循环中处理，只对右子树递归
+     */
+    private void getAll(RBtreeNode node, long[] probes, int from, int to, Object[] results){
+        while(node != null && from < to){
+            int low = SortedProbes.lowerBound(probes, from, to, node.key);
+            int high = SortedProbes.upperBound(probes, low, to, node.key);
+            for(int i = low; i < high; i++){
+                results[SortedProbes.index(probes[i])] = node.value;
+            }
+            getAll(node.right, probes, high, to, results);
+            node = node.left;
+            to = low;
+        }
+    }
+
+    @Override
+    public void getAll(Integer[] keys, Object[] results){
+        getAll(SortedProbes.unbox(keys), results);
+    }
+
+    @Override
+    public Object put(Integer key, Object value){
+        return put((int) key, value);
+    }
+
+    @Override
+    public Object get(Integer key){
+        return get((int) key);
+    }
+
+    @Override
+    public Object remove(Integer key){
+        RBtreeNode node = query(key);
+        if(node == null){
+            return null;
+        }
+        //delete可能会把后继节点的值搬到node中，因此先保存
+        Object old = node.value;
+        delete(key);
+        return old;
+    }
+
+    /**
+     * 小于等于key的最大节点值
+     * @param key
+     * @return
+     */
+    @Override
+    public Integer floor(Integer key){
+        RBtreeNode node = root;
+        RBtreeNode floor = null;
+        while(node != null){
+            if(node.key == key){
+                return key;
+            }else if(node.key > key){
+                node = node.left;
             }else{
-                parent.setRight(right);
+                floor = node;
+                node = node.right;
             }
         }
+        return floor == null ? null : floor.key;
     }
 
     /**
-     * 右旋
-     * @param node
+     * 大于等于key的最小节点值
+     * @param key
+     * @return
+     */
+    @Override
+    public Integer ceiling(Integer key){
+        RBtreeNode node = root;
+        RBtreeNode ceiling = null;
+        while(node != null){
+            if(node.key == key){
+                return key;
+            }else if(node.key > key){
+                ceiling = node;
+                node = node.left;
+            }else{
+                node = node.right;
+            }
+        }
+        return ceiling == null ? null : ceiling.key;
+    }
+
+    /**
+     * 范围查询
+     * @param from 下界(包含)
+     * @param to 上界(包含)
+     * @return
      */
-    private void rightRotate(RBtreeNode node) {
-        RBtreeNode left = node.getLeft();
-        RBtreeNode parent = node.getParent();
+    @Override
+    public List<Object> range(Integer from, Integer to){
+        List<Object> result = new ArrayList<>();
+        range(root, from, to, result);
+        return result;
+    }
 
-        node.setLeft(left.getRight());
-        if(left.getRight() != null){
-            left.getRight().setParent(node);
+    private void range(RBtreeNode node, int from, int to, List<Object> result){
+        if(node == null){
+            return;
+        }
+        if(node.key > from){
+            range(node.left, from, to, result);
+        }
+        if(node.key >= from && node.key <= to){
+            result.add(node.value);
         }
-        node.setParent(left);
+        if(node.key < to){
+            range(node.right, from, to, result);
+        }
+    }
 
-        left.setRight(node);
+    /**
+     * 中序遍历，用显式栈保存尚未访问的祖先节点
+     * @param action
+     */
+    @Override
+    public void forEach(BiConsumer<? super Integer, ? super Object> action){
+        Deque<RBtreeNode> stack = new ArrayDeque<>();
+        RBtreeNode node = root;
+        while(node != null || !stack.isEmpty()){
+            while(node != null){
+                stack.push(node);
+                node = node.left;
+            }
+            node = stack.pop();
+            action.accept(node.key, node.value);
+            node = node.right;
+        }
+    }
+
+    @Override
+    public int size(){
+        return size;
+    }
+
+    /**
+     * 层序遍历计算高度
+     */
+    @Override
+    public int getHeight(){
+        int height = 0;
+        Queue<RBtreeNode> level = new ArrayDeque<>();
+        if(root != null){
+            level.add(root);
+        }
+        while(!level.isEmpty()){
+            height++;
+            for(int i = level.size(); i > 0; i--){
+                RBtreeNode node = level.remove();
+                if(node.left != null){
+                    level.add(node.left);
+                }
+                if(node.right != null){
+                    level.add(node.right);
+                }
+            }
+        }
+        return height;
+    }
+
+    @Override
+    public int getNodeCount(){
+        return size;
+    }
+
+    @Override
+    public double getAverageFill(){
+        return size == 0 ? 0 : 1;
+    }
+
+    /**
+     * 检查是否满足红黑树的性质：根节点为黑色，红色节点的儿子都是黑色，每条路径的黑色节点个数相同
+     * @return
+     */
+    public boolean checkBalance(){
+        return isBlack(root) && blackHeight(root) >= 0;
+    }
+
+    /**
+     * @return 黑高，不满足红黑树性质时返回-1
+     */
+    private int blackHeight(RBtreeNode node){
+        if(node == null){
+            return 1;
+        }
+        if(isRed(node) && (isRed(node.left) || isRed(node.right))){
+            return -1;
+        }
+        int left = blackHeight(node.left);
+        int right = blackHeight(node.right);
+        if(left < 0 || left != right){
+            return -1;
+        }
+        return left + (isBlack(node) ? 1 : 0);
+    }
+
+    /**
+     * 用newChild替换parent的儿子oldChild，parent为null时替换根节点
+     */
+    private void replaceChild(RBtreeNode parent, RBtreeNode oldChild, RBtreeNode newChild) {
         if(parent == null){
-            root = left;
-            left.setParent(null);
+            root = newChild;
+        }else if(parent.left == oldChild){
+            parent.left = newChild;
         }else{
-            left.setParent(parent);
-            if(parent.getLeft() != null && parent.getLeft() == node){
-                parent.setLeft(left);
-            }else{
-                parent.setRight(left);
-            }
+            parent.right = newChild;
+        }
+    }
+
+    /**
+     * 左旋
+     * @param node
+     * @return 旋转后子树的根节点，由调用者接到原来的父节点上
+     */
+    private RBtreeNode leftRotate(RBtreeNode node) {
+        if(metrics != null){
+            metrics.rotation();
+        }
+        RBtreeNode right = node.right;
+        node.right = right.left;
+        right.left = node;
+        return right;
+    }
+
+    /**
+     * 右旋
+     * @param node
+     * @return 旋转后子树的根节点，由调用者接到原来的父节点上
+     */
+    private RBtreeNode rightRotate(RBtreeNode node) {
+        if(metrics != null){
+            metrics.rotation();
         }
+        RBtreeNode left = node.left;
+        node.left = left.right;
+        left.right = node;
+        return left;
     }
 
     /**
@@ -323,7 +560,7 @@ public class RedBlackTree {
         if(node == null){
             return;
         }else{
-            node.setColor(RBtreeNode.Black);
+            node.color = RBtreeNode.Black;
         }
     }
 
@@ -335,7 +572,7 @@ public class RedBlackTree {
         if(node == null){
             return;
         }else{
-            node.setColor(RBtreeNode.Red);
+            node.color = RBtreeNode.Red;
         }
     }
 
@@ -348,7 +585,7 @@ public class RedBlackTree {
         if(node == null){
             return true;
         }else{
-            return node.isColor() == RBtreeNode.Black;
+            return node.color == RBtreeNode.Black;
         }
     }
 
@@ -361,7 +598,7 @@ public class RedBlackTree {
         if(node == null){
             return false;
         }else{
-            return node.isColor() == RBtreeNode.Red;
+            return node.color == RBtreeNode.Red;
         }
     }
 
@@ -381,12 +618,12 @@ public class RedBlackTree {
             if(isRed(poll)){
                 color = "Red";
             }
-            System.out.print(poll.getData()+"(" + color + ") ");
-            if(poll.getLeft() != null){
-                queue.offer(poll.getLeft());
+            System.out.print(poll.key+"(" + color + ") ");
+            if(poll.left != null){
+                queue.offer(poll.left);
             }
-            if(poll.getRight() != null){
-                queue.offer(poll.getRight());
+            if(poll.right != null){
+                queue.offer(poll.right);
             }
         }
     }
@@ -403,9 +640,9 @@ public class RedBlackTree {
         if(isRed(node)){
             color = "Red";
         }
-        System.out.print(node.getData()+"(" + color + ") ");
-        recursivelyPreTraversal(node.getLeft());
-        recursivelyPreTraversal(node.getRight());
+        System.out.print(node.key+"(" + color + ") ");
+        recursivelyPreTraversal(node.left);
+        recursivelyPreTraversal(node.right);
     }
 
     /**
@@ -416,13 +653,13 @@ public class RedBlackTree {
         if(node == null){
             return;
         }
-        recursivelyInTraversal(node.getLeft());
+        recursivelyInTraversal(node.left);
         String color = "Black";
         if(isRed(node)){
             color = "Red";
         }
-        System.out.print(node.getData()+"(" + color + ") ");
-        recursivelyInTraversal(node.getRight());
+        System.out.print(node.key+"(" + color + ") ");
+        recursivelyInTraversal(node.right);
     }
 
     /**
@@ -433,13 +670,13 @@ public class RedBlackTree {
         if(node == null){
             return;
         }
-        recursivelyPostTraversal(node.getLeft());
-        recursivelyPostTraversal(node.getRight());
+        recursivelyPostTraversal(node.left);
+        recursivelyPostTraversal(node.right);
         String color = "Black";
         if(isRed(node)){
             color = "Red";
         }
-        System.out.print(node.getData()+"(" + color + ") ");
+        System.out.print(node.key+"(" + color + ") ");
     }
 }
 
@@ -0,0 +1,132 @@
+package treetest;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * 批量查找(getAll)时对查找关键字排序的工具<br/>
+ * <br/>
+ * int关键字与它在原数组中的下标打包成一个long：高32位为关键字，低32位为下标，
+ * 对long数组排序即按关键字排序，相同关键字按下标排序，排序过程不装箱；<br/>
+ * 其它类型的关键字只能对下标数组排序
+ */
+final class SortedProbes {
+    private SortedProbes() {
+    }
+
+    /**
+     * 返回按关键字升序排列的打包数组
+     */
+    static long[] sort(int[] keys) {
+        long[] probes = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            probes[i] = (long) keys[i] << 32 | i;
+        }
+        Arrays.sort(probes);
+        return probes;
+    }
+
+    static int key(long probe) {
+        return (int) (probe >> 32);
+    }
+
+    static int index(long probe) {
+        return (int) probe;
+    }
+
+    /**
+     * probes[from, to)中第一个关键字大于等于key的位置，不存在时返回to
+     */
+    static int lowerBound(long[] probes, int from, int to, int key) {
+        if (key == Integer.MIN_VALUE) {
+            return from;
+        }
+        // 下标占用低32位且非负，关键字小于key的元素都小于等于(key << 32) - 1
+        return firstAbove(probes, from, to, ((long) key << 32) - 1);
+    }
+
+    /**
+     * probes[from, to)中第一个关键字大于key的位置，不存在时返回to
+     */
+    static int upperBound(long[] probes, int from, int to, int key) {
+        // 关键字为key的元素都小于等于(key << 32 | 0xffffffff)
+        return firstAbove(probes, from, to, (long) key << 32 | 0xffffffffL);
+    }
+
+    /**
+     * probes[from, to)中第一个大于bound的位置
+     */
+    private static int firstAbove(long[] probes, int from, int to, long bound) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (probes[mid] <= bound) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * 返回按关键字升序排列的下标数组<br/>
+     * 关键字都是Integer时拆箱后按打包的long排序，否则对下标数组按关键字排序
+     */
+    static <K extends Comparable<? super K>> int[] order(K[] keys) {
+        int[] order = new int[keys.length];
+        if (allIntegers(keys)) {
+            int[] unboxed = new int[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                unboxed[i] = (Integer) keys[i];
+            }
+            long[] probes = sort(unboxed);
+            for (int i = 0; i < probes.length; i++) {
+                order[i] = index(probes[i]);
+            }
+            return order;
+        }
+        Integer[] boxed = new Integer[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            boxed[i] = i;
+        }
+        Arrays.sort(boxed, Comparator.comparing(i -> keys[i]));
+        for (int i = 0; i < keys.length; i++) {
+            order[i] = boxed[i];
+        }
+        return order;
+    }
+
+    private static boolean allIntegers(Object[] keys) {
+        if (keys instanceof Integer[]) {
+            return true;
+        }
+        for (Object key : keys) {
+            if (!(key instanceof Integer)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 把关键字拆箱，供只提供int版本批量查找的树使用
+     */
+    static int[] unbox(Integer[] keys) {
+        int[] result = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            result[i] = keys[i];
+        }
+        return result;
+    }
+
+    /**
+     * 检查结果数组的长度并清空对应位置，未找到的关键字结果为null
+     */
+    static void prepare(int count, Object[] results) {
+        if (results.length < count) {
+            throw new IllegalArgumentException("Results array too short: "
+                    + results.length + " < " + count);
+        }
+        Arrays.fill(results, 0, count, null);
+    }
+}
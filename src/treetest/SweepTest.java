@@ -0,0 +1,170 @@
+package treetest;
+
+import treetest.sweep.SweepCell;
+import treetest.sweep.SweepReport;
+import treetest.sweep.SweepResult;
+import treetest.workload.KeyOrder;
+import treetest.workload.Operation;
+import treetest.workload.OperationStream;
+import treetest.workload.Workload;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 并行执行TreeTest的各个组合，结果写成CSV/JSON并与基线比较<br/>
+ * <br/>
+ * 用法：SweepTest [负载 A~F] [关键字顺序，逗号分隔] [记录条数，逗号分隔] [线程数] [输出目录] [基线CSV] [阈值%]，
+ * 默认为C UNIFORM,SEQUENTIAL 1000,10000,100000,1000000 CPU个数 sweep 无基线 10；<br/>
+ * 每个(树，关键字顺序，记录条数)组合是一个独立的任务，在自己的线程上新建自己的树，重复若干轮(记录越少轮数越多)，
+ * 每轮的关键字和操作序列与TreeTest相同(种子为seed + 轮次)，取每个关键字插入耗时、每个操作耗时的中位数和最小值；<br/>
+ * 任务在固定大小的线程池中执行，线程数不超过CPU个数，避免多个任务争用同一个CPU使计时失真；
+ * 并行的任务仍会争用缓存和内存带宽，大数据量的组合在线程数为1时结果最稳定；
+ * 正式测量前先用较少的记录把每个组合执行一遍，使各种树的代码都经过JIT编译；<br/>
+ * 结果写入输出目录下的sweep.csv和sweep.json；给出基线时逐个组合比较中位数，有回归时以状态码1退出
+ */
+public class SweepTest {
+    static Workload workload = Workload.C;
+    static List<KeyOrder> keyOrders = Arrays.asList(KeyOrder.UNIFORM, KeyOrder.SEQUENTIAL);
+    static int[] sizes = {1000, 10000, 100000, 1000000};
+    static int threads = Runtime.getRuntime().availableProcessors();
+    static Path output = Paths.get("sweep");
+    static Path baseline;
+    static double threshold = 0.1;
+    static long seed = 42;
+
+    private static final long KEYS_PER_CELL = 2000000; // 每个组合各轮合计插入的关键字个数
+    private static final int MIN_REPEAT = 3;
+    private static final int MAX_REPEAT = 100;
+    private static final int WARMUP_SIZE = 10000;
+
+    /**
+     * 在线程池中执行全部组合，结果按组合的顺序排列
+     */
+    private static SweepReport sweep(List<SweepCell> cells, boolean warmup) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<SweepResult>> futures = new ArrayList<>(Collections.nCopies(cells.size(), null));
+            // 记录多的组合先提交，避免最后只剩一个大组合在运行
+            Integer[] order = new Integer[cells.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingInt((Integer i) -> cells.get(i).getSize()).reversed());
+            for (int i : order) {
+                SweepCell cell = cells.get(i);
+                futures.set(i, executor.submit(() -> measure(cell, warmup ? 1 : repeat(cell.getSize()))));
+            }
+            SweepReport report = new SweepReport();
+            for (int i = 0; i < cells.size(); i++) {
+                try {
+                    report.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Failed to measure " + cells.get(i), e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while measuring " + cells.get(i), e);
+                }
+            }
+            return report;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 一个组合的全部轮次，每轮新建树，树只在当前线程上使用
+     */
+    private static SweepResult measure(SweepCell cell, int repeat) {
+        long[] insertTimes = new long[repeat];
+        long[] opsTimes = new long[repeat];
+        for (int i = 0; i < repeat; i++) {
+            OperationStream stream = workload.stream(cell.getKeyOrder(), cell.getSize(), seed + i);
+            int[] keys = stream.loadKeys();
+            Operation[] operations = stream.next(cell.getSize());
+            OrderedIndex<Integer, Object> tree = TreeTest.structures.get(cell.getStructure()).get();
+
+            long stime = System.nanoTime();
+            for (int key : keys) {
+                tree.put(key, 0);
+            }
+            insertTimes[i] = System.nanoTime() - stime;
+
+            stime = System.nanoTime();
+            for (Operation operation : operations) {
+                operation.apply(tree);
+            }
+            opsTimes[i] = System.nanoTime() - stime;
+        }
+        return SweepResult.of(workload.getName(), cell, insertTimes, opsTimes);
+    }
+
+    private static int repeat(int size) {
+        return (int) Math.max(MIN_REPEAT, Math.min(MAX_REPEAT, KEYS_PER_CELL / size));
+    }
+
+    private static List<SweepCell> cells(int[] sizes) {
+        List<SweepCell> cells = new ArrayList<>();
+        for (String structure : TreeTest.structures.keySet()) {
+            for (KeyOrder keyOrder : keyOrders) {
+                for (int size : sizes) {
+                    cells.add(new SweepCell(structure, keyOrder, size));
+                }
+            }
+        }
+        return cells;
+    }
+
+    public static void main(String[] Args) throws IOException {
+        if (Args.length > 0) {
+            workload = Workload.ycsb(Args[0]);
+        }
+        if (Args.length > 1) {
+            keyOrders = new ArrayList<>();
+            for (String name : Args[1].split(",")) {
+                keyOrders.add(KeyOrder.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+            }
+        }
+        if (Args.length > 2) {
+            sizes = Arrays.stream(Args[2].split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+        }
+        if (Args.length > 3) {
+            int cpus = Runtime.getRuntime().availableProcessors();
+            threads = Math.max(1, Math.min(cpus, Integer.parseInt(Args[3])));
+        }
+        if (Args.length > 4) {
+            output = Paths.get(Args[4]);
+        }
+        if (Args.length > 5) {
+            baseline = Paths.get(Args[5]);
+        }
+        if (Args.length > 6) {
+            threshold = Double.parseDouble(Args[6]) / 100;
+        }
+        List<SweepCell> cells = cells(sizes);
+        System.out.println("workload " + workload + ", key orders " + keyOrders + ", sizes " + Arrays.toString(sizes)
+                + ", " + cells.size() + " cells on " + threads + " thread(s)");
+
+        sweep(cells(new int[]{WARMUP_SIZE}), true); // 预热
+        SweepReport report = sweep(cells, false);
+
+        report.printTable(System.out);
+        report.writeCsv(output.resolve("sweep.csv"));
+        report.writeJson(output.resolve("sweep.json"));
+        System.out.println("written to " + output.toAbsolutePath());
+
+        if (baseline != null) {
+            System.out.println();
+            System.out.println("baseline " + baseline);
+            if (report.compare(SweepReport.readCsv(baseline), threshold, System.out) > 0) {
+                System.exit(1);
+            }
+        }
+    }
+}
@@ -1,43 +1,80 @@
 package treetest;
 
-import java.util.*;
+import treetest.workload.KeyOrder;
+import treetest.workload.Operation;
+import treetest.workload.OperationStream;
+import treetest.workload.Workload;
 
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * 各种树的插入、查找耗时对比<br/>
+ * <br/>
+ * 用法：TreeTest [负载 A~F] [关键字顺序 UNIFORM/SEQUENTIAL/REVERSE/CLUSTERED] [种子]，默认为C UNIFORM 42；<br/>
+ * 每一轮按关键字顺序生成testsize个关键字插入新建的树，再让所有树执行同一个长度为testsize的操作序列(YCSB负载)，
+ * 同样的参数和种子得到同样的关键字和操作
+ */
 public class TreeTest {
-    static AVLTree avl = new AVLTree();
-    static RedBlackTree rbt = new RedBlackTree();
-    static BTree bt4 = new BTree(4);
-    static BTree bt10 = new BTree(10);
-    static BTree bt100 = new BTree(100);
-    static BPlusTree bpt4 = new BPlusTree(4);
-    static BPlusTree bpt10 = new BPlusTree(10);
-    static BPlusTree bpt100 = new BPlusTree(100);
-    static List<Integer> testset;
-    static long t_avl, t_rbt, t_bt4, t_bt10, t_bt100, t_bpt4, t_bpt10, t_bpt100; //time
-    static List<Long> sortlist;
-    static Map<Long, String> sortmap;
+    static Map<String, OrderedIndex<Integer, Object>> trees; // 按输出顺序排列的待测树
+    static final Map<String, Supplier<OrderedIndex<Integer, Object>>> structures = new LinkedHashMap<>(); // 各种树的构造方法
+    static final Map<String, String> description = new HashMap<>();
+    static int[] testset;
+    static Operation[] operations;
+    static Workload workload = Workload.C;
+    static KeyOrder keyOrder = KeyOrder.UNIFORM;
+    static long seed = 42;
+    static Map<String, Long> time;
     static int testsize;
     static int repeat;
     static Map<String, Double> averagetime_insert;
     static Map<String, Double> averagetime_search;
-    static List<String> name;
 
-    private static List<Integer> randomnum(int n) {
-        Random random = new Random();
-        List<Integer> list = new ArrayList<>(n);
-        int rnum;
-        for (int i = 0; i < n; i++) {
-            rnum = random.nextInt();
-            list.add(rnum);
+    static {
+        addtree("AVL", "AVL tree", () -> new AVLTree());
+        addtree("PoolAVL", "array-pooled AVL tree", () -> new PooledAVLTree());
+        addtree("RBt", "RBtree", () -> new RedBlackTree());
+        for (int order : new int[]{4, 10, 100}) {
+            addtree("B(" + order + ")", "B-tree of order " + order, () -> new BTree<>(order / 2)); // BTree的构造参数是度数
+        }
+        for (int order : new int[]{4, 10, 100}) {
+            addtree("B+(" + order + ")", "B+ tree of order " + order, () -> new BPlusTree<>(order));
+        }
+        for (int order : new int[]{4, 10, 100}) {
+            addtree("IntB+(" + order + ")", "int B+ tree of order " + order, () -> new IntBPlusTree<>(order));
         }
+    }
 
-        return list;
+    /**
+     * 新建全部待测树
+     */
+    static void inittrees() {
+        trees = new LinkedHashMap<>(structures.size());
+        time = new HashMap<>(structures.size());
+        for (Map.Entry<String, Supplier<OrderedIndex<Integer, Object>>> entry : structures.entrySet()) {
+            trees.put(entry.getKey(), entry.getValue().get());
+        }
+    }
+
+    private static void addtree(String name, String desc, Supplier<OrderedIndex<Integer, Object>> structure) {
+        structures.put(name, structure);
+        description.put(name, desc);
+    }
+
+    /**
+     * 生成本轮插入的关键字和之后执行的操作，每轮使用不同的种子
+     */
+    private static void generate(int n, int i) {
+        OperationStream stream = workload.stream(keyOrder, n, seed + i);
+        testset = stream.loadKeys();
+        operations = stream.next(n);
     }
 
     private static void initrank() {
         averagetime_insert = new HashMap<>(8);
         averagetime_search = new HashMap<>(8);
 
-        for (String i: name) {
+        for (String i: trees.keySet()) {
             averagetime_insert.put(i, (double) 0);
 
             averagetime_search.put(i, (double) 0);
@@ -47,86 +84,18 @@ public class TreeTest {
     private static void insert(int i) {
         long stime, etime;
 
-        stime = System.nanoTime();
-        AVLNode AVLnode;
-        for (int iterator : testset) {
-            AVLnode = new AVLNode(iterator, 0);
-            avl.insert(AVLnode);
-        }
-        etime = System.nanoTime();
-        t_avl = etime - stime;
-        if (i == repeat - 1) {
-            System.out.println("insert " + testsize + " nodes to AVL tree:             " + t_avl + " ns");
-        }
-
-        stime = System.nanoTime();
-        for (int iterator : testset) {
-            rbt.insert(iterator);
-        }
-        etime = System.nanoTime();
-        t_rbt = etime - stime;
-        if (i == repeat - 1) {
-            System.out.println("insert " + testsize + " nodes to RBtree:               " + t_rbt + " ns");
-        }
-
-        stime = System.nanoTime();
-        for (int iterator : testset) {
-            bt4.insert(iterator);
-        }
-        etime = System.nanoTime();
-        t_bt4 = etime - stime;
-        if (i == repeat - 1) {
-            System.out.println("insert " + testsize + " nodes to B-tree of order 4:    " + t_bt4 + " ns");
-        }
-
-        stime = System.nanoTime();
-        for (int iterator : testset) {
-            bt10.insert(iterator);
-        }
-        etime = System.nanoTime();
-        t_bt10 = etime - stime;
-        if (i == repeat - 1) {
-            System.out.println("insert " + testsize + " nodes to B-tree of order 10:   " + t_bt10 + " ns");
-        }
-
-        stime = System.nanoTime();
-        for (int iterator : testset) {
-            bt100.insert(iterator);
-        }
-        etime = System.nanoTime();
-        t_bt100 = etime - stime;
-        if (i == repeat - 1) {
-            System.out.println("insert " + testsize + " nodes to B-tree of order 100:  " + t_bt100 + " ns");
-        }
-
-        stime = System.nanoTime();
-        for (int iterator : testset) {
-            bpt4.insert(iterator, 0);
-        }
-        etime = System.nanoTime();
-        t_bpt4 = etime - stime;
-        if (i == repeat - 1) {
-            System.out.println("insert " + testsize + " nodes to B+ tree of order 4:   " + t_bpt4 + " ns");
-        }
-
-        stime = System.nanoTime();
-        for (int iterator : testset) {
-            bpt10.insert(iterator, 0);
-        }
-        etime = System.nanoTime();
-        t_bpt10 = etime - stime;
-        if (i == repeat - 1) {
-            System.out.println("insert " + testsize + " nodes to B+ tree of order 10:  " + t_bpt10 + " ns");
-        }
-
-        stime = System.nanoTime();
-        for (int iterator : testset) {
-            bpt100.insert(iterator, 0);
-        }
-        etime = System.nanoTime();
-        t_bpt100 = etime - stime;
-        if (i == repeat - 1) {
-            System.out.println("insert " + testsize + " nodes to B+ tree of order 100: " + t_bpt100 + " ns");
+        for (Map.Entry<String, OrderedIndex<Integer, Object>> entry : trees.entrySet()) {
+            OrderedIndex<Integer, Object> tree = entry.getValue();
+            stime = System.nanoTime();
+            for (int iterator : testset) {
+                tree.put(iterator, 0);
+            }
+            etime = System.nanoTime();
+            time.put(entry.getKey(), etime - stime);
+            if (i == repeat - 1) {
+                System.out.printf("%-56s%d ns%n",
+                        "insert " + testsize + " nodes to " + description.get(entry.getKey()) + ":", etime - stime);
+            }
         }
     }
 
@@ -134,77 +103,27 @@ public class TreeTest {
         if (i == repeat - 1) {
             System.out.println("fast <------------insert------------> slow");
         }
-        sortinit();
-        averagetime(i);
+        rank(i);
     }
 
+    /**
+     * 所有树执行同一个操作序列
+     */
     private static void search(int i) {
-        Random random = new Random();
-        int searchnum = random.nextInt(testsize);
         long stime, etime;
 
-        stime = System.nanoTime();
-        avl.get(searchnum);
-        etime = System.nanoTime();
-        t_avl = etime - stime;
-        if (i == repeat - 1) {
-            System.out.println("search in AVL tree:            " + t_avl + " ns");
-        }
-
-        stime = System.nanoTime();
-        rbt.query(searchnum);
-        etime = System.nanoTime();
-        t_rbt = etime - stime;
-        if (i == repeat - 1) {
-            System.out.println("search in RBtree:              " + t_rbt + " ns");
-        }
-
-        stime = System.nanoTime();
-        bt4.search(searchnum);
-        etime = System.nanoTime();
-        t_bt4 = etime - stime;
-        if (i == repeat - 1) {
-            System.out.println("search in B-tree of order 4:   " + t_bt4 + " ns");
-        }
-
-        stime = System.nanoTime();
-        bt10.search(searchnum);
-        etime = System.nanoTime();
-        t_bt10 = etime - stime;
-        if (i == repeat - 1) {
-            System.out.println("search in B-tree of order 10:  " + t_bt10 + " ns");
-        }
-
-        stime = System.nanoTime();
-        bt100.search(searchnum);
-        etime = System.nanoTime();
-        t_bt100 = etime - stime;
-        if (i == repeat - 1) {
-            System.out.println("search in B-tree of order 100: " + t_bt100 + " ns");
-        }
-
-        stime = System.nanoTime();
-        bpt4.search(searchnum);
-        etime = System.nanoTime();
-        t_bpt4 = etime - stime;
-        if (i == repeat - 1) {
-            System.out.println("search in B+tree of order 4:   " + t_bpt4 + " ns");
-        }
-
-        stime = System.nanoTime();
-        bpt10.search(searchnum);
-        etime = System.nanoTime();
-        t_bpt10 = etime - stime;
-        if (i == repeat - 1) {
-            System.out.println("search in B+tree of order 10:   " + t_bpt10 + " ns");
-        }
-
-        stime = System.nanoTime();
-        bpt100.search(searchnum);
-        etime = System.nanoTime();
-        t_bpt100 = etime - stime;
-        if (i == repeat - 1) {
-            System.out.println("search in B+tree of order 100: " + t_bpt100 + " ns");
+        for (Map.Entry<String, OrderedIndex<Integer, Object>> entry : trees.entrySet()) {
+            OrderedIndex<Integer, Object> tree = entry.getValue();
+            stime = System.nanoTime();
+            for (Operation operation : operations) {
+                operation.apply(tree);
+            }
+            etime = System.nanoTime();
+            time.put(entry.getKey(), etime - stime);
+            if (i == repeat - 1) {
+                System.out.printf("%-56s%d ns%n", "run " + operations.length + " ops of workload " + workload
+                        + " on " + description.get(entry.getKey()) + ":", etime - stime);
+            }
         }
     }
 
@@ -212,125 +131,40 @@ public class TreeTest {
         if (i == repeat - 1) {
             System.out.println("fast <------------search------------> slow");
         }
-        sortinit();
-        averagetime(i);
+        rank(i);
     }
 
-    private static void sortinit() {
-        sortlist = new ArrayList<>(8);
-
-        sortlist.add(t_avl);
-        sortlist.add(t_rbt);
-        sortlist.add(t_bt4);
-        sortlist.add(t_bt10);
-        sortlist.add(t_bt100);
-        sortlist.add(t_bpt4);
-        sortlist.add(t_bpt10);
-        sortlist.add(t_bpt100);
-
-        sortmap = new HashMap<>(8);
-
-        sortmap.put(t_avl, "AVL");
-        sortmap.put(t_rbt, "RBt");
-        sortmap.put(t_bt4, "B(4)");
-        sortmap.put(t_bt10, "B(10)");
-        sortmap.put(t_bt100, "B(100)");
-        sortmap.put(t_bpt4, "B+(4)");
-        sortmap.put(t_bpt10, "B+(10)");
-        sortmap.put(t_bpt100, "B+(100)");
-
-        Collections.sort(sortlist);
-    }
-
-    private static void averagetime(int i) {
-        String name;
-
-        for (long iterator : sortlist) {
-            name = sortmap.get(iterator);
-
-            if (i == repeat - 1) {
-                System.out.print(name + ' ');
-            }
+    /**
+     * 按本轮耗时从快到慢输出各树的名称
+     */
+    private static void rank(int i) {
+        if (i != repeat - 1) {
+            return;
         }
-        if (i == repeat - 1) {
-            System.out.println();
+        List<String> sortlist = new ArrayList<>(trees.keySet());
+        sortlist.sort(Comparator.comparing(time::get));
+        for (String name : sortlist) {
+            System.out.print(name + ' ');
         }
+        System.out.println();
     }
 
-    private static void totaltime_insert() {
-        Double total;
-
-        total = averagetime_insert.get("AVL") + t_avl;
-        averagetime_insert.replace("AVL", total);
-
-        total = averagetime_insert.get("RBt") + t_rbt;
-        averagetime_insert.replace("RBt", total);
-
-        total = averagetime_insert.get("B(4)") + t_bt4;
-        averagetime_insert.replace("B(4)", total);
-
-        total = averagetime_insert.get("B(10)") + t_bt10;
-        averagetime_insert.replace("B(10)", total);
-
-        total = averagetime_insert.get("B(100)") + t_bt100;
-        averagetime_insert.replace("B(100)", total);
-
-        total = averagetime_insert.get("B+(4)") + t_bpt4;
-        averagetime_insert.replace("B+(4)", total);
-
-        total = averagetime_insert.get("B+(10)") + t_bpt10;
-        averagetime_insert.replace("B+(10)", total);
-
-        total = averagetime_insert.get("B+(100)") + t_bpt100;
-        averagetime_insert.replace("B+(100)", total);
-    }
-
-    private static void totaltime_search() {
-        Double total;
-
-        total = averagetime_search.get("AVL") + t_avl;
-        averagetime_search.replace("AVL", total);
-
-        total = averagetime_search.get("RBt") + t_rbt;
-        averagetime_search.replace("RBt", total);
-
-        total = averagetime_search.get("B(4)") + t_bt4;
-        averagetime_search.replace("B(4)", total);
-
-        total = averagetime_search.get("B(10)") + t_bt10;
-        averagetime_search.replace("B(10)", total);
-
-        total = averagetime_search.get("B(100)") + t_bt100;
-        averagetime_search.replace("B(100)", total);
-
-        total = averagetime_search.get("B+(4)") + t_bpt4;
-        averagetime_search.replace("B+(4)", total);
-
-        total = averagetime_search.get("B+(10)") + t_bpt10;
-        averagetime_search.replace("B+(10)", total);
-
-        total = averagetime_search.get("B+(100)") + t_bpt100;
-        averagetime_search.replace("B+(100)", total);
+    private static void totaltime(Map<String, Double> averagetime) {
+        for (String i : trees.keySet()) {
+            averagetime.replace(i, averagetime.get(i) + time.get(i));
+        }
     }
 
     private static void timetoaverage() {
-        for (String i: name) {
+        for (String i: trees.keySet()) {
             averagetime_insert.replace(i, averagetime_insert.get(i) / repeat);
 
-            averagetime_search.replace(i, averagetime_insert.get(i) / repeat);
+            averagetime_search.replace(i, averagetime_search.get(i) / repeat);
         }
     }
 
     private static void test() {
-        name = new ArrayList<>(8);
-        name.add("AVL");
-        name.add("RBt");
-        name.add("B(4)");
-        name.add("B(10)");
-        name.add("B(100)");
-        name.add("B+(4)");
-        name.add("B+(10)");
-        name.add("B+(100)");
+        inittrees();
 
         repeat = 100;
 
@@ -345,12 +179,13 @@ public class TreeTest {
             }
 
             for (int i = 0; i < repeat; i++) {
-                testset = randomnum(testsize);
+                inittrees();
+                generate(testsize, i);
                 insert(i);
-                totaltime_insert();
+                totaltime(averagetime_insert);
                 insertsort(i);
                 search(i);
-                totaltime_search();
+                totaltime(averagetime_search);
                 searchsort(i);
             }
 
@@ -365,6 +200,16 @@ public class TreeTest {
     }
 
     public static void main(String[] Args) {
+        if (Args.length > 0) {
+            workload = Workload.ycsb(Args[0]);
+        }
+        if (Args.length > 1) {
+            keyOrder = KeyOrder.valueOf(Args[1].toUpperCase(Locale.ROOT));
+        }
+        if (Args.length > 2) {
+            seed = Long.parseLong(Args[2]);
+        }
+        System.out.println("workload " + workload + ", key order " + keyOrder + ", seed " + seed);
         test();
     }
 }
@@ -0,0 +1,61 @@
+package treetest;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Node key search with the incubating Vector API.
+ *
+ * <p>
+ * Because node keys are sorted, the insertion point of a key is the number of
+ * node keys less than it. This class compares the key against
+ * {@code SPECIES.length()} node keys per instruction and adds up the lanes
+ * that compare less; the few keys past the last full vector are counted with
+ * a branch-free scalar loop. The whole node is scanned without an early exit:
+ * the loads are independent of each other and of the compares, so on a cold
+ * node they are all in flight at once instead of one dependent cache miss per
+ * binary search step, and no branch depends on the key. A 128-key node takes
+ * eight compares on AVX-512 hardware.
+ *
+ * <p>
+ * Only loaded through {@link IntKeySearch#vector()}.
+ */
+final class VectorIntKeySearch extends IntKeySearch {
+
+    /**
+     * Narrower vectors do not beat a binary search, and without SIMD support
+     * the Vector API falls back to much slower Java code.
+     */
+    private static final int MIN_LANES = 4;
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    private VectorIntKeySearch() {
+    }
+
+    static IntKeySearch create() {
+        return SPECIES.length() >= MIN_LANES ? new VectorIntKeySearch() : null;
+    }
+
+    @Override
+    int indexOf(int[] keys, int n, int key) {
+        int bound = SPECIES.loopBound(n);
+        int index = 0;
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            VectorMask<Integer> less = IntVector.fromArray(SPECIES, keys, i)
+                    .compare(VectorOperators.LT, key);
+            index += less.trueCount();
+        }
+        for (; i < n; i++) {
+            index += keys[i] < key ? 1 : 0;
+        }
+        return found(keys, n, index, key);
+    }
+
+    private static int found(int[] keys, int n, int index, int key) {
+        return index < n && keys[index] == key ? index : -index - 1;
+    }
+}
@@ -0,0 +1,110 @@
+package treetest.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import treetest.OrderedIndex;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 插入和查找时每个操作分配的字节数<br/>
+ * <br/>
+ * 与TreeBenchmark相同，insert每次调用从空树开始插入size个关键字，get每次调用查找一个必然命中的关键字；<br/>
+ * 分配速率由JMH的GC profiler(-prof gc)统计，gc.alloc.rate.norm即每次调用分配的字节数；
+ * 直接运行本类的main方法时自动加上GC profiler，汇总输出每种树insert每个关键字、get每次查找分配的字节数，
+ * 包括装箱的关键字和值、结点、分裂时复制的数组，以及逃逸分析没有消除的临时对象
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AllocationBenchmark {
+    @Param({"AVL", "PooledAVL", "RBt", "B(4)", "B(100)", "B+(4)", "B+(100)", "IntB+(4)", "IntB+(100)"})
+    public String structure;
+
+    @Param({"100000"})
+    public int size;
+
+    private Dataset dataset;
+    private OrderedIndex<Integer, Object> tree;
+    private int probeCursor;
+
+    @Setup
+    public void setUp() {
+        dataset = new Dataset(size);
+        tree = dataset.populate(structure);
+    }
+
+    @Benchmark
+    public OrderedIndex<Integer, Object> insert() {
+        OrderedIndex<Integer, Object> fresh = BenchTrees.create(structure);
+        for (int key : dataset.keys) {
+            fresh.put(key, key);
+        }
+        return fresh;
+    }
+
+    @Benchmark
+    public Object get() {
+        int[] probes = dataset.probes;
+        int key = probes[probeCursor];
+        if (++probeCursor == probes.length) {
+            probeCursor = 0;
+        }
+        return tree.get(key);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(AllocationBenchmark.class.getName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        System.out.println();
+        System.out.printf("%-12s %10s %-8s %14s %14s%n", "tree", "size", "op", "bytes/op", "bytes/key");
+        for (RunResult result : results) {
+            String structure = result.getParams().getParam("structure");
+            int size = Integer.parseInt(result.getParams().getParam("size"));
+            String label = result.getParams().getBenchmark();
+            String op = label.substring(label.lastIndexOf('.') + 1);
+            double bytes = allocationPerOp(result.getSecondaryResults());
+            // insert每次调用插入size个关键字
+            double perKey = op.equals("insert") ? bytes / size : bytes;
+            System.out.printf("%-12s %10d %-8s %14.1f %14.1f%n", structure, size, op, bytes, perKey);
+        }
+    }
+
+    /**
+     * GC profiler的每次调用分配字节数，不同JMH版本的名称前可能带有"·"；<br/>
+     * getSecondaryResults返回原始类型Result的Map，按{@code Map<String, ?>}接收再逐个转换，避免rawtypes警告
+     */
+    private static double allocationPerOp(Map<String, ?> secondary) {
+        for (Map.Entry<String, ?> entry : secondary.entrySet()) {
+            if (entry.getKey().endsWith("gc.alloc.rate.norm")) {
+                return ((Result<?>) entry.getValue()).getScore();
+            }
+        }
+        return Double.NaN;
+    }
+}
@@ -0,0 +1,88 @@
+package treetest.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import treetest.BTree;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BTree度数扫描<br/>
+ * <br/>
+ * 以不同的度数建立同样的树，测量查找延迟，用于找出当前硬件上缓存最友好的扇出；<br/>
+ * 直接运行本类的main方法时，依次对每个度数运行并汇总输出度数、阶数、高度、结点个数和查找延迟
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class BTreeDegreeBenchmark {
+    @Param({"4", "8", "16", "32", "64", "128", "256", "512"})
+    public int degree;
+
+    @Param({"1000000"})
+    public int size;
+
+    private Dataset dataset;
+    private BTree<Integer> tree;
+    private int probeCursor;
+
+    @Setup
+    public void setUp() {
+        dataset = new Dataset(size);
+        tree = build(dataset, degree);
+    }
+
+    @Benchmark
+    public Object get() {
+        int[] probes = dataset.probes;
+        int key = probes[probeCursor];
+        if (++probeCursor == probes.length) {
+            probeCursor = 0;
+        }
+        return tree.get(key);
+    }
+
+    private static BTree<Integer> build(Dataset dataset, int degree) {
+        BTree<Integer> tree = new BTree<>(degree);
+        for (int key : dataset.keys) {
+            tree.put(key, key);
+        }
+        return tree;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(BTreeDegreeBenchmark.class.getName())
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        System.out.println();
+        System.out.printf("%8s %8s %8s %10s %12s%n", "degree", "order", "height", "nodes", "get(ns)");
+        for (RunResult result : results) {
+            int degree = Integer.parseInt(result.getParams().getParam("degree"));
+            int size = Integer.parseInt(result.getParams().getParam("size"));
+            // 结点个数和高度只与度数和数据有关，重新建一棵树统计
+            BTree<Integer> tree = build(new Dataset(size), degree);
+            System.out.printf("%8d %8d %8d %10d %12.1f%n", degree, tree.getOrder(), tree.getHeight(),
+                    tree.getNodeCount(), result.getPrimaryResult().getScore());
+        }
+    }
+}
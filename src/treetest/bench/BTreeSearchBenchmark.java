@@ -0,0 +1,96 @@
+package treetest.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import treetest.BTree;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BTree结点内查找方式的基准测试<br/>
+ * <br/>
+ * linearSearchThreshold为0时结点内总是二分查找，为2147483647时总是顺序查找，8为默认值；<br/>
+ * 直接运行本类的main方法时，汇总输出每种组合的树高度、查找延迟以及每层的查找开销(单次查找耗时 / 高度)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class BTreeSearchBenchmark {
+    @Param({"4", "10", "100"})
+    public int degree;
+
+    @Param({"0", "8", "2147483647"})
+    public int linearSearchThreshold;
+
+    @Param({"1000000"})
+    public int size;
+
+    private Dataset dataset;
+    private BTree<Integer> tree;
+    private int probeCursor;
+
+    @Setup
+    public void setUp() {
+        dataset = new Dataset(size);
+        tree = build(dataset, degree);
+        tree.setLinearSearchThreshold(linearSearchThreshold);
+    }
+
+    @Benchmark
+    public Object get() {
+        int[] probes = dataset.probes;
+        int key = probes[probeCursor];
+        if (++probeCursor == probes.length) {
+            probeCursor = 0;
+        }
+        return tree.get(key);
+    }
+
+    private static BTree<Integer> build(Dataset dataset, int degree) {
+        BTree<Integer> tree = new BTree<>(degree);
+        for (int key : dataset.keys) {
+            tree.put(key, key);
+        }
+        return tree;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(BTreeSearchBenchmark.class.getName())
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        System.out.println();
+        System.out.printf("%8s %10s %8s %12s %12s%n", "degree", "threshold", "height", "get(ns)", "ns/level");
+        Map<String, Integer> heights = new HashMap<>(); // 高度与结点内的查找方式无关，每个度数和数据量只建一次树
+        for (RunResult result : results) {
+            int degree = Integer.parseInt(result.getParams().getParam("degree"));
+            int size = Integer.parseInt(result.getParams().getParam("size"));
+            int height = heights.computeIfAbsent(degree + "/" + size,
+                    k -> build(new Dataset(size), degree).getHeight());
+            double score = result.getPrimaryResult().getScore();
+            System.out.printf("%8d %10s %8d %12.1f %12.1f%n", degree,
+                    result.getParams().getParam("linearSearchThreshold"), height, score, score / height);
+        }
+    }
+}
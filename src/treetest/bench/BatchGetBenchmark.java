@@ -0,0 +1,85 @@
+package treetest.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import treetest.OrderedIndex;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量查找与逐个查找的对比<br/>
+ * <br/>
+ * 每次调用查找batch个随机且必然命中的关键字：loop逐个调用get，每个关键字都从根结点开始；
+ * getAll先对关键字排序再一次遍历，多个关键字共享查找路径，B+树还会沿叶结点链表前进；<br/>
+ * 两者都把结果写入同一个预先分配的数组
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class BatchGetBenchmark {
+    // 预先生成的批次个数，循环使用
+    private static final int BATCHES = 1024;
+
+    @Param({"AVL", "RBt", "B(100)", "B+(100)"})
+    public String structure;
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"16", "256", "4096"})
+    public int batch;
+
+    private OrderedIndex<Integer, Object> tree;
+    private Integer[][] batches;
+    private Object[] results;
+    private int batchCursor;
+
+    @Setup
+    public void setUp() {
+        Dataset dataset = new Dataset(size);
+        tree = dataset.populate(structure);
+        int[] probes = dataset.probes;
+        batches = new Integer[BATCHES][batch];
+        int cursor = 0;
+        for (Integer[] keys : batches) {
+            for (int i = 0; i < batch; i++) {
+                keys[i] = probes[cursor];
+                cursor = cursor + 1 == probes.length ? 0 : cursor + 1;
+            }
+        }
+        results = new Object[batch];
+    }
+
+    @Benchmark
+    public Object[] loop() {
+        Integer[] keys = nextBatch();
+        for (int i = 0; i < keys.length; i++) {
+            results[i] = tree.get(keys[i]);
+        }
+        return results;
+    }
+
+    @Benchmark
+    public Object[] getAll() {
+        tree.getAll(nextBatch(), results);
+        return results;
+    }
+
+    private Integer[] nextBatch() {
+        Integer[] keys = batches[batchCursor];
+        batchCursor = batchCursor + 1 == BATCHES ? 0 : batchCursor + 1;
+        return keys;
+    }
+}
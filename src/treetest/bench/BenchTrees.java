@@ -0,0 +1,60 @@
+package treetest.bench;
+
+import treetest.AVLTree;
+import treetest.BPlusTree;
+import treetest.BTree;
+import treetest.IntBPlusTree;
+import treetest.OrderedIndex;
+import treetest.PooledAVLTree;
+import treetest.RedBlackTree;
+
+/**
+ * 按名称创建待测的树，名称沿用TreeTest中的写法：AVL、RecursiveAVL、PooledAVL、RBt、B(阶数)、B+(阶数)、IntB+(阶数)<br/>
+ * 开启统计(TreeMetrics)的版本只支持AVL、RBt、B(阶数)、B+(阶数)
+ */
+final class BenchTrees {
+    private BenchTrees() {
+    }
+
+    static OrderedIndex<Integer, Object> create(String structure) {
+        return create(structure, false);
+    }
+
+    static OrderedIndex<Integer, Object> create(String structure, boolean collectMetrics) {
+        if (structure.equals("AVL")) {
+            return new AVLTree(collectMetrics);
+        }
+        if (structure.equals("RBt")) {
+            return new RedBlackTree(collectMetrics);
+        }
+        if (structure.startsWith("B+(")) {
+            return new BPlusTree<>(order(structure), collectMetrics);
+        }
+        if (structure.startsWith("B(")) {
+            // BTree的构造参数是度数，阶数为度数的2倍
+            return new BTree<>(order(structure) / 2, collectMetrics);
+        }
+        if (collectMetrics) {
+            throw new IllegalArgumentException("No metrics for structure: " + structure);
+        }
+        if (structure.equals("RecursiveAVL")) {
+            return new RecursiveAVLTree();
+        }
+        if (structure.equals("PooledAVL")) {
+            return new PooledAVLTree();
+        }
+        if (structure.startsWith("IntB+(")) {
+            return new IntBPlusTree<>(order(structure));
+        }
+        throw new IllegalArgumentException("Unknown structure: " + structure);
+    }
+
+    static int order(String structure) {
+        int open = structure.indexOf('(');
+        int close = structure.indexOf(')');
+        if (open < 0 || close < open) {
+            throw new IllegalArgumentException("Missing order in structure: " + structure);
+        }
+        return Integer.parseInt(structure.substring(open + 1, close));
+    }
+}
@@ -0,0 +1,91 @@
+package treetest.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import treetest.BPlusTree;
+import treetest.BTree;
+import treetest.OrderedIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 逐个插入与批量加载的建树开销对比<br/>
+ * <br/>
+ * insert按随机顺序逐个put；bulkLoad加载已排序的数据；sortAndBulkLoad先对随机顺序的数据排序再批量加载
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class BulkLoadBenchmark {
+    @Param({"B(10)", "B(100)", "B+(10)", "B+(100)"})
+    public String structure;
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"1.0", "0.7"})
+    public double fillFactor;
+
+    private Dataset dataset;
+    private List<Map.Entry<Integer, Object>> shuffled;
+    private List<Map.Entry<Integer, Object>> sorted;
+
+    @Setup
+    public void setUp() {
+        dataset = new Dataset(size);
+        shuffled = new ArrayList<>(size);
+        sorted = new ArrayList<>(size);
+        for (int key : dataset.keys) {
+            shuffled.add(Map.entry(key, key));
+        }
+        for (int i = 0; i < size; i++) {
+            sorted.add(Map.entry(2 * i, 2 * i));
+        }
+    }
+
+    @Benchmark
+    public OrderedIndex<Integer, Object> insert() {
+        OrderedIndex<Integer, Object> tree = BenchTrees.create(structure);
+        for (int key : dataset.keys) {
+            tree.put(key, key);
+        }
+        return tree;
+    }
+
+    @Benchmark
+    public OrderedIndex<Integer, Object> bulkLoad() {
+        OrderedIndex<Integer, Object> tree = BenchTrees.create(structure);
+        if (tree instanceof BTree) {
+            ((BTree<Integer>) tree).bulkLoad(sorted.iterator(), fillFactor);
+        } else {
+            ((BPlusTree<Integer, Object>) tree).bulkLoad(sorted.iterator(), fillFactor);
+        }
+        return tree;
+    }
+
+    @Benchmark
+    public OrderedIndex<Integer, Object> sortAndBulkLoad() {
+        OrderedIndex<Integer, Object> tree = BenchTrees.create(structure);
+        if (tree instanceof BTree) {
+            ((BTree<Integer>) tree).sortAndBulkLoad(shuffled, fillFactor);
+        } else {
+            ((BPlusTree<Integer, Object>) tree).sortAndBulkLoad(shuffled, fillFactor);
+        }
+        return tree;
+    }
+}
@@ -0,0 +1,112 @@
+package treetest.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import treetest.BPlusTree;
+import treetest.ConcurrentBPlusTree;
+import treetest.OrderedIndex;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多线程共享一棵树时的吞吐量<br/>
+ * <br/>
+ * ConcurrentB+为乐观锁耦合的并发B+树，SynchronizedB+为用一把全局锁包装的BPlusTree；<br/>
+ * get只做查找，mixed每10次操作中9次查找、1次插入或删除一个不在树中的关键字；<br/>
+ * 线程数由JMH的-t参数指定，直接运行本类的main方法则依次以1、2、4...直至CPU个数的线程数运行，以观察扩展性
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ConcurrentBenchmark {
+    @Param({"ConcurrentB+", "SynchronizedB+"})
+    public String structure;
+
+    @Param({"64"})
+    public int order;
+
+    @Param({"1000000"})
+    public int size;
+
+    private Dataset dataset;
+    private OrderedIndex<Integer, Object> tree;
+
+    /**
+     * 每个线程各自的操作计数
+     */
+    @State(Scope.Thread)
+    public static class Worker {
+        int step;
+        int fresh = -1;
+    }
+
+    @Setup
+    public void setUp() {
+        dataset = new Dataset(size);
+        if (structure.equals("ConcurrentB+")) {
+            tree = new ConcurrentBPlusTree<>(order);
+        } else if (structure.equals("SynchronizedB+")) {
+            tree = new SynchronizedIndex<Integer, Object>(new BPlusTree<>(order));
+        } else {
+            throw new IllegalArgumentException("Unknown structure: " + structure);
+        }
+        for (int key : dataset.keys) {
+            tree.put(key, key);
+        }
+    }
+
+    @Benchmark
+    public Object get() {
+        int[] probes = dataset.probes;
+        return tree.get(probes[ThreadLocalRandom.current().nextInt(probes.length)]);
+    }
+
+    @Benchmark
+    public Object mixed(Worker worker) {
+        int step = worker.step;
+        worker.step = step == 9 ? 0 : step + 1;
+        if (step != 9) {
+            return get();
+        }
+        // 交替插入与删除同一个新关键字，树的大小保持不变
+        if (worker.fresh < 0) {
+            int[] fresh = dataset.fresh;
+            worker.fresh = fresh[ThreadLocalRandom.current().nextInt(fresh.length)];
+            return tree.put(worker.fresh, worker.fresh);
+        }
+        Object removed = tree.remove(worker.fresh);
+        worker.fresh = -1;
+        return removed;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; ; threads = Math.min(threads * 2, cpus)) {
+            Options options = new OptionsBuilder()
+                    .include(ConcurrentBenchmark.class.getName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+            if (threads == cpus) {
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package treetest.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import treetest.BPlusTree;
+import treetest.BPlusTree.RangePolicy;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * B+树范围扫描方式的对比<br/>
+ * <br/>
+ * searchRange把结果收集到列表；cursor和descendingCursor逐个访问不产生结果集合；stream通过Spliterator流式求和
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class CursorScanBenchmark {
+    @Param({"10", "100"})
+    public int order;
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"10", "1000", "100000"})
+    public int span;
+
+    private Dataset dataset;
+    private BPlusTree<Integer, Object> tree;
+    private int probeCursor;
+
+    @Setup
+    public void setUp() {
+        dataset = new Dataset(size);
+        tree = new BPlusTree<>(order);
+        for (int key : dataset.keys) {
+            tree.insert(key, key);
+        }
+    }
+
+    @Benchmark
+    public List<Object> searchRange() {
+        int from = nextProbe();
+        return tree.searchRange(from, RangePolicy.INCLUSIVE, from + 2 * (span - 1), RangePolicy.INCLUSIVE);
+    }
+
+    @Benchmark
+    public long cursor() {
+        int from = nextProbe();
+        BPlusTree<Integer, Object>.Cursor cursor =
+                tree.cursor(from, RangePolicy.INCLUSIVE, from + 2 * (span - 1), RangePolicy.INCLUSIVE);
+        long sum = 0;
+        while (cursor.next()) {
+            sum += cursor.getKey();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long descendingCursor() {
+        int from = nextProbe();
+        BPlusTree<Integer, Object>.Cursor cursor =
+                tree.descendingCursor(from, RangePolicy.INCLUSIVE, from - 2 * (span - 1), RangePolicy.INCLUSIVE);
+        long sum = 0;
+        while (cursor.next()) {
+            sum += cursor.getKey();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long stream() {
+        int from = nextProbe();
+        return tree.stream(from, RangePolicy.INCLUSIVE, from + 2 * (span - 1), RangePolicy.INCLUSIVE)
+                .mapToLong(value -> (Integer) value)
+                .sum();
+    }
+
+    private int nextProbe() {
+        int[] probes = dataset.probes;
+        int key = probes[probeCursor];
+        if (++probeCursor == probes.length) {
+            probeCursor = 0;
+        }
+        return key;
+    }
+}
@@ -0,0 +1,50 @@
+package treetest.bench;
+
+import treetest.OrderedIndex;
+
+import java.util.Random;
+
+/**
+ * 固定种子的测试数据
+ * <p>
+ * keys为树中已有的关键字(偶数)，probes为keys打乱后的查找序列(全部命中)，
+ * fresh为树中不存在的关键字(奇数)，供插入/删除混合负载使用
+ */
+final class Dataset {
+    static final long SEED = 42L;
+
+    final int[] keys;
+    final int[] probes;
+    final int[] fresh;
+
+    Dataset(int size) {
+        Random random = new Random(SEED);
+        keys = new int[size];
+        fresh = new int[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = 2 * i;
+            fresh[i] = 2 * i + 1;
+        }
+        shuffle(keys, random);
+        shuffle(fresh, random);
+        probes = keys.clone();
+        shuffle(probes, random);
+    }
+
+    OrderedIndex<Integer, Object> populate(String structure) {
+        OrderedIndex<Integer, Object> tree = BenchTrees.create(structure);
+        for (int key : keys) {
+            tree.put(key, key);
+        }
+        return tree;
+    }
+
+    private static void shuffle(int[] array, Random random) {
+        for (int i = array.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = array[i];
+            array[i] = array[j];
+            array[j] = tmp;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package treetest.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import treetest.OrderedIndex;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 删除的基准测试<br/>
+ * <br/>
+ * 每次调用前重新建满size个关键字的树(不计时)，调用中按打乱后的顺序删除全部关键字，
+ * 因此单次耗时需要除以size才是每个关键字的删除开销
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class DeleteBenchmark {
+    @Param({"AVL", "PooledAVL", "RBt", "B(4)", "B(10)", "B(100)", "B+(4)", "B+(10)", "B+(100)",
+            "IntB+(4)", "IntB+(10)", "IntB+(100)"})
+    public String structure;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Dataset dataset;
+    private OrderedIndex<Integer, Object> tree;
+
+    @Setup(Level.Trial)
+    public void setUpDataset() {
+        dataset = new Dataset(size);
+    }
+
+    /**
+     * 单次调用要删除size个关键字，远大于Level.Invocation本身的开销
+     */
+    @Setup(Level.Invocation)
+    public void setUpTree() {
+        tree = dataset.populate(structure);
+    }
+
+    @Benchmark
+    public OrderedIndex<Integer, Object> delete() {
+        for (int key : dataset.probes) {
+            tree.remove(key);
+        }
+        return tree;
+    }
+}
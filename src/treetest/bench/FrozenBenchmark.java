@@ -0,0 +1,76 @@
+package treetest.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import treetest.EytzingerIndex;
+import treetest.OrderedIndex;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 只读阶段的查找：可修改的树与冻结后的EytzingerIndex对比<br/>
+ * <br/>
+ * structure为Eytzinger时，先用B+(100)建树再冻结；get每次查找一个必然命中的关键字，
+ * range每次查询一个包含约rangeLength个关键字的区间
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class FrozenBenchmark {
+    @Param({"AVL", "RBt", "B(100)", "B+(100)", "IntB+(100)", "Eytzinger"})
+    public String structure;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"100"})
+    public int rangeLength;
+
+    private Dataset dataset;
+    private OrderedIndex<Integer, Object> tree;
+    private int probeCursor;
+
+    @Setup
+    public void setUp() {
+        dataset = new Dataset(size);
+        if (structure.equals("Eytzinger")) {
+            tree = EytzingerIndex.freeze(dataset.populate("B+(100)"));
+        } else {
+            tree = dataset.populate(structure);
+        }
+    }
+
+    @Benchmark
+    public Object get() {
+        return tree.get(nextProbe());
+    }
+
+    @Benchmark
+    public List<Object> range() {
+        int from = nextProbe();
+        // 关键字为偶数，区间长度乘2才包含rangeLength个关键字
+        return tree.range(from, from + 2 * rangeLength);
+    }
+
+    private int nextProbe() {
+        int[] probes = dataset.probes;
+        int key = probes[probeCursor];
+        if (++probeCursor == probes.length) {
+            probeCursor = 0;
+        }
+        return key;
+    }
+}
@@ -0,0 +1,67 @@
+package treetest.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import treetest.IntBPlusTree;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IntBPlusTree结点内查找方式的基准测试<br/>
+ * <br/>
+ * search为scalar时结点内二分查找，为vector时用Vector API一次比较一整个向量的关键字；<br/>
+ * 子进程带--add-modules jdk.incubator.vector启动，平台不支持时vector这一组参数直接失败，
+ * 不会悄悄退回二分查找、测出和scalar一样的结果
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class IntNodeSearchBenchmark {
+    @Param({"16", "64", "128", "512"})
+    public int branchingFactor;
+
+    @Param({"scalar", "vector"})
+    public String search;
+
+    @Param({"1000000"})
+    public int size;
+
+    private Dataset dataset;
+    private IntBPlusTree<Object> tree;
+    private int probeCursor;
+
+    @Setup
+    public void setUp() {
+        dataset = new Dataset(size);
+        tree = new IntBPlusTree<>(branchingFactor);
+        boolean vector = search.equals("vector");
+        if (tree.setVectorSearch(vector) != vector) {
+            throw new IllegalStateException("Vector search is not available on this platform");
+        }
+        for (int key : dataset.keys) {
+            tree.put(key, key);
+        }
+    }
+
+    @Benchmark
+    public Object get() {
+        int[] probes = dataset.probes;
+        int key = probes[probeCursor];
+        if (++probeCursor == probes.length) {
+            probeCursor = 0;
+        }
+        return tree.get(key);
+    }
+}
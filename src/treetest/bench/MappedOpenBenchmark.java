@@ -0,0 +1,90 @@
+package treetest.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import treetest.MappedPageStore;
+import treetest.OffHeapBPlusTree;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 持久化B+树的启动开销<br/>
+ * <br/>
+ * setup在临时文件中建好size个关键字的树并commit；openAndGet每次调用重新打开该文件并查找一个关键字，
+ * rebuild则是不做持久化时每次启动都要重新插入全部关键字的开销，两者对比即为打开已有文件节省的时间
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+@State(Scope.Benchmark)
+public class MappedOpenBenchmark {
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"4096"})
+    public int pageSize;
+
+    private Dataset dataset;
+    private Path file;
+    private int probeCursor;
+
+    @Setup
+    public void setUp() throws IOException {
+        dataset = new Dataset(size);
+        file = Files.createTempFile("treetest", ".pages");
+        try (MappedPageStore store = MappedPageStore.create(file, pageSize)) {
+            OffHeapBPlusTree tree = OffHeapBPlusTree.open(store);
+            for (int key : dataset.keys) {
+                tree.insert(key, key);
+            }
+            tree.commit();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long openAndGet() throws IOException {
+        try (MappedPageStore store = MappedPageStore.open(file)) {
+            return OffHeapBPlusTree.open(store).search(nextProbe(), -1L);
+        }
+    }
+
+    @Benchmark
+    public long rebuild() {
+        OffHeapBPlusTree tree = new OffHeapBPlusTree();
+        for (int key : dataset.keys) {
+            tree.insert(key, key);
+        }
+        long value = tree.search(nextProbe(), -1L);
+        tree.getPageStore().close();
+        return value;
+    }
+
+    private int nextProbe() {
+        int[] probes = dataset.probes;
+        int key = probes[probeCursor];
+        if (++probeCursor == probes.length) {
+            probeCursor = 0;
+        }
+        return key;
+    }
+}
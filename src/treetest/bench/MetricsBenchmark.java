@@ -0,0 +1,155 @@
+package treetest.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import treetest.OrderedIndex;
+import treetest.metrics.TreeMetrics;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 统计(TreeMetrics)开启与关闭时的开销对比<br/>
+ * <br/>
+ * get每次调用查找一个必然命中的关键字；mixed与TreeBenchmark相同，每10次调用中插入、删除各一次；<br/>
+ * 直接运行本类的main方法时，汇总输出每种组合开启与关闭统计的耗时，以及在开启统计的树上把同样的调用序列执行一遍得到的计数：
+ * 每次查找经过的结点数以及旋转、分裂、合并、借用次数
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class MetricsBenchmark {
+    @Param({"AVL", "RBt", "B(100)", "B+(100)"})
+    public String structure;
+
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    @Param({"1000000"})
+    public int size;
+
+    private Dataset dataset;
+    private OrderedIndex<Integer, Object> tree;
+    private int probeCursor;
+    private int mixedCursor;
+    private int freshCursor;
+
+    @Setup
+    public void setUp() {
+        dataset = new Dataset(size);
+        tree = BenchTrees.create(structure, metrics);
+        for (int key : dataset.keys) {
+            tree.put(key, key);
+        }
+    }
+
+    @Benchmark
+    public Object get() {
+        int[] probes = dataset.probes;
+        int key = probes[probeCursor];
+        if (++probeCursor == probes.length) {
+            probeCursor = 0;
+        }
+        return tree.get(key);
+    }
+
+    @Benchmark
+    public Object mixed() {
+        int step = mixedCursor;
+        mixedCursor = step == 9 ? 0 : step + 1;
+        int[] fresh = dataset.fresh;
+        if (step == 4) {
+            tree.put(fresh[freshCursor], freshCursor);
+            return null;
+        }
+        if (step == 9) {
+            tree.remove(fresh[freshCursor]);
+            if (++freshCursor == fresh.length) {
+                freshCursor = 0;
+            }
+            return null;
+        }
+        return get();
+    }
+
+    /**
+     * 在开启统计的树上把benchmark方法调用calls次，返回这些调用的计数
+     */
+    private static TreeMetrics count(String structure, int size, boolean mixed, int calls) {
+        MetricsBenchmark benchmark = new MetricsBenchmark();
+        benchmark.structure = structure;
+        benchmark.metrics = true;
+        benchmark.size = size;
+        benchmark.setUp();
+        TreeMetrics treeMetrics = benchmark.tree.getMetrics();
+        treeMetrics.reset(); // 不计建树时的分裂和旋转
+        for (int i = 0; i < calls; i++) {
+            if (mixed) {
+                benchmark.mixed();
+            } else {
+                benchmark.get();
+            }
+        }
+        return treeMetrics;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(MetricsBenchmark.class.getName())
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        // 结构/方法/数据量 -> {关闭统计的耗时, 开启统计的耗时}
+        Map<String, double[]> scores = new LinkedHashMap<>();
+        for (RunResult result : results) {
+            String label = result.getPrimaryResult().getLabel();
+            String key = result.getParams().getParam("structure") + "/" + label.substring(label.lastIndexOf('.') + 1)
+                    + "/" + result.getParams().getParam("size");
+            double[] score = scores.computeIfAbsent(key, k -> new double[]{Double.NaN, Double.NaN});
+            score[Boolean.parseBoolean(result.getParams().getParam("metrics")) ? 1 : 0] =
+                    result.getPrimaryResult().getScore();
+        }
+
+        System.out.println();
+        String format = "%-10s %-6s %10s %10s %10s %10s %10s %10s %10s %10s%n";
+        System.out.printf(format, "structure", "op", "off(ns)", "on(ns)", "overhead", "visits", "rotations",
+                "splits", "merges", "borrows");
+        for (Map.Entry<String, double[]> entry : scores.entrySet()) {
+            String[] key = entry.getKey().split("/");
+            String structure = key[0];
+            String op = key[1];
+            int size = Integer.parseInt(key[2]);
+            double[] score = entry.getValue();
+            TreeMetrics treeMetrics = count(structure, size, op.equals("mixed"), size);
+            System.out.printf(format, structure, op, decimal(score[0]), decimal(score[1]),
+                    decimal((score[1] / score[0] - 1) * 100) + "%", decimal(treeMetrics.getAverageNodeVisits()),
+                    treeMetrics.getRotations(), treeMetrics.getSplits(), treeMetrics.getMerges(),
+                    treeMetrics.getBorrows());
+        }
+        System.out.println("(visits per lookup; rotations/splits/merges/borrows over size calls on a metered tree)");
+    }
+
+    private static String decimal(double value) {
+        return Double.isNaN(value) ? "-" : String.format(Locale.ROOT, "%.1f", value);
+    }
+}
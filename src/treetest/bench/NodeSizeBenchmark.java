@@ -0,0 +1,116 @@
+package treetest.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import treetest.BPlusTree;
+import treetest.BTree;
+import treetest.IntBPlusTree;
+import treetest.OrderedIndex;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 结点字节数与查找延迟的关系<br/>
+ * <br/>
+ * 结点容量由目标字节数(关键字数组的大小)换算得到：B树用BTree.degreeFor，B+树用BPlusTree.branchingFactorFor，
+ * IntB+树用IntBPlusTree.branchingFactorFor；<br/>
+ * size的三个取值使整棵树大致分别落在L1/L2、LLC以及超出LLC的范围内(每个关键字连同值和结点开销约几十字节)；<br/>
+ * 直接运行本类的main方法时，汇总输出每种树在各个结点字节数、数据量下的结点容量和查找延迟
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class NodeSizeBenchmark {
+    @Param({"B", "B+", "IntB+"})
+    public String structure;
+
+    @Param({"64", "256", "1024", "4096"})
+    public int nodeBytes;
+
+    @Param({"2000", "100000", "2000000"})
+    public int size;
+
+    private Dataset dataset;
+    private OrderedIndex<Integer, Object> tree;
+    private int probeCursor;
+
+    @Setup
+    public void setUp() {
+        dataset = new Dataset(size);
+        tree = create(structure, nodeBytes);
+        for (int key : dataset.keys) {
+            tree.put(key, key);
+        }
+    }
+
+    @Benchmark
+    public Object get() {
+        int[] probes = dataset.probes;
+        int key = probes[probeCursor];
+        if (++probeCursor == probes.length) {
+            probeCursor = 0;
+        }
+        return tree.get(key);
+    }
+
+    private static OrderedIndex<Integer, Object> create(String structure, int nodeBytes) {
+        if (structure.equals("B")) {
+            return new BTree<>(BTree.degreeFor(nodeBytes));
+        }
+        if (structure.equals("B+")) {
+            return new BPlusTree<>(BPlusTree.branchingFactorFor(nodeBytes));
+        }
+        if (structure.equals("IntB+")) {
+            return new IntBPlusTree<>(IntBPlusTree.branchingFactorFor(nodeBytes));
+        }
+        throw new IllegalArgumentException("Unknown structure: " + structure);
+    }
+
+    /**
+     * 结点最多容纳的关键字个数
+     */
+    private static int keysPerNode(String structure, int nodeBytes) {
+        if (structure.equals("B")) {
+            return 2 * BTree.degreeFor(nodeBytes) - 1;
+        }
+        if (structure.equals("B+")) {
+            return BPlusTree.branchingFactorFor(nodeBytes) - 1;
+        }
+        return IntBPlusTree.branchingFactorFor(nodeBytes) - 1;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(NodeSizeBenchmark.class.getName())
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        System.out.println();
+        System.out.printf("%-8s %10s %10s %10s %12s%n", "tree", "nodeBytes", "keys/node", "size", "get(ns)");
+        for (RunResult result : results) {
+            String structure = result.getParams().getParam("structure");
+            int nodeBytes = Integer.parseInt(result.getParams().getParam("nodeBytes"));
+            System.out.printf("%-8s %10d %10d %10s %12.1f%n", structure, nodeBytes,
+                    keysPerNode(structure, nodeBytes), result.getParams().getParam("size"),
+                    result.getPrimaryResult().getScore());
+        }
+    }
+}
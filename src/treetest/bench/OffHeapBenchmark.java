@@ -0,0 +1,115 @@
+package treetest.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import treetest.BPlusTree;
+import treetest.DirectPageStore;
+import treetest.IntBPlusTree;
+import treetest.OffHeapBPlusTree;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 堆上B+树与堆外B+树(OffHeapBPlusTree)的对比<br/>
+ * <br/>
+ * 三者使用相同的阶数和数据；build每次调用从空树插入size个关键字，get每次调用查找一个必然命中的关键字。
+ * 配合 -prof gc 运行可以比较三者的分配速率和GC次数
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class OffHeapBenchmark {
+    @Param({"B+", "IntB+", "OffHeapB+"})
+    public String structure;
+
+    @Param({"100"})
+    public int order;
+
+    @Param({"1000000"})
+    public int size;
+
+    /**
+     * 堆外B+树的页大小，需足够容纳order阶的节点
+     */
+    @Param({"4096"})
+    public int pageSize;
+
+    private Dataset dataset;
+    private BPlusTree<Integer, Long> bPlusTree;
+    private IntBPlusTree<Long> intBPlusTree;
+    private OffHeapBPlusTree offHeapBPlusTree;
+    private int probeCursor;
+
+    @Setup
+    public void setUp() {
+        dataset = new Dataset(size);
+        build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (offHeapBPlusTree != null) {
+            offHeapBPlusTree.getPageStore().close();
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object build() {
+        if (offHeapBPlusTree != null) {
+            offHeapBPlusTree.getPageStore().close();
+        }
+        bPlusTree = null;
+        intBPlusTree = null;
+        offHeapBPlusTree = null;
+        switch (structure) {
+            case "B+":
+                bPlusTree = new BPlusTree<>(order);
+                for (int key : dataset.keys) {
+                    bPlusTree.insert(key, (long) key);
+                }
+                return bPlusTree;
+            case "IntB+":
+                intBPlusTree = new IntBPlusTree<>(order);
+                for (int key : dataset.keys) {
+                    intBPlusTree.insert(key, (long) key);
+                }
+                return intBPlusTree;
+            case "OffHeapB+":
+                offHeapBPlusTree = new OffHeapBPlusTree(new DirectPageStore(pageSize), order);
+                for (int key : dataset.keys) {
+                    offHeapBPlusTree.insert(key, key);
+                }
+                return offHeapBPlusTree;
+            default:
+                throw new IllegalArgumentException("Unknown structure: " + structure);
+        }
+    }
+
+    @Benchmark
+    public long get() {
+        int[] probes = dataset.probes;
+        int key = probes[probeCursor];
+        if (++probeCursor == probes.length) {
+            probeCursor = 0;
+        }
+        if (offHeapBPlusTree != null) {
+            return offHeapBPlusTree.search(key, -1L);
+        }
+        Long value = bPlusTree != null ? bPlusTree.search(key) : intBPlusTree.search(key);
+        return value != null ? value : -1L;
+    }
+}
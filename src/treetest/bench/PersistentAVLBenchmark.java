@@ -0,0 +1,85 @@
+package treetest.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import treetest.AVLTree;
+import treetest.OrderedIndex;
+import treetest.PersistentAVLTree;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一个写线程持续修改时多个读线程的查找吞吐量<br/>
+ * <br/>
+ * PersistentAVL为路径复制的AVL树，读线程不加锁；SynchronizedAVL为用一把全局锁包装的AVLTree；<br/>
+ * 每组3个读线程执行get，1个写线程交替插入、删除不在树中的关键字，两类线程的吞吐量分别报告
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Group)
+public class PersistentAVLBenchmark {
+    @Param({"PersistentAVL", "SynchronizedAVL"})
+    public String structure;
+
+    @Param({"1000000"})
+    public int size;
+
+    private Dataset dataset;
+    private OrderedIndex<Integer, Object> tree;
+    private int fresh = -1;
+
+    @Setup
+    public void setUp() {
+        dataset = new Dataset(size);
+        if (structure.equals("PersistentAVL")) {
+            tree = new PersistentAVLTree();
+        } else if (structure.equals("SynchronizedAVL")) {
+            tree = new SynchronizedIndex<Integer, Object>(new AVLTree());
+        } else {
+            throw new IllegalArgumentException("Unknown structure: " + structure);
+        }
+        for (int key : dataset.keys) {
+            tree.put(key, key);
+        }
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public Object read() {
+        int[] probes = dataset.probes;
+        return tree.get(probes[ThreadLocalRandom.current().nextInt(probes.length)]);
+    }
+
+    /**
+     * 组内只有一个写线程，因此fresh不需要同步
+     */
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public Object write() {
+        if (fresh < 0) {
+            int[] keys = dataset.fresh;
+            fresh = keys[ThreadLocalRandom.current().nextInt(keys.length)];
+            return tree.put(fresh, fresh);
+        }
+        Object removed = tree.remove(fresh);
+        fresh = -1;
+        return removed;
+    }
+}
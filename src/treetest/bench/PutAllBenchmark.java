@@ -0,0 +1,95 @@
+package treetest.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import treetest.BPlusTree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * B+树逐个插入与批量插入(putAll)的对比<br/>
+ * <br/>
+ * size个关键字被切分为若干个batch大小的批次(HashMap，批次内无序)，每次调用从空树开始依次写入所有批次：
+ * put逐个插入批次中的关键字，putAll每个批次调用一次；<br/>
+ * random的每个批次是随机的关键字，落在不同的叶结点中；clustered的每个批次是一段连续的关键字，
+ * 批次之间的顺序随机，模拟按时间或分区聚集的写入
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class PutAllBenchmark {
+    @Param({"10", "100"})
+    public int order;
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"100", "10000"})
+    public int batch;
+
+    @Param({"random", "clustered"})
+    public String distribution;
+
+    private List<Map<Integer, Object>> batches;
+
+    @Setup
+    public void setUp() {
+        Dataset dataset = new Dataset(size);
+        int[] keys = dataset.keys;
+        if (distribution.equals("clustered")) {
+            keys = keys.clone();
+            Arrays.sort(keys);
+        } else if (!distribution.equals("random")) {
+            throw new IllegalArgumentException("Unknown distribution: " + distribution);
+        }
+        batches = new ArrayList<>((size + batch - 1) / batch);
+        Map<Integer, Object> current = null;
+        for (int key : keys) {
+            if (current == null || current.size() == batch) {
+                current = new HashMap<>(batch * 2);
+                batches.add(current);
+            }
+            current.put(key, key);
+        }
+        Collections.shuffle(batches, new Random(Dataset.SEED));
+    }
+
+    @Benchmark
+    public BPlusTree<Integer, Object> put() {
+        BPlusTree<Integer, Object> tree = new BPlusTree<>(order);
+        for (Map<Integer, Object> entries : batches) {
+            for (Map.Entry<Integer, Object> entry : entries.entrySet()) {
+                tree.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return tree;
+    }
+
+    @Benchmark
+    public BPlusTree<Integer, Object> putAll() {
+        BPlusTree<Integer, Object> tree = new BPlusTree<>(order);
+        for (Map<Integer, Object> entries : batches) {
+            tree.putAll(entries);
+        }
+        return tree;
+    }
+}
@@ -0,0 +1,61 @@
+package treetest.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import treetest.OrderedIndex;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 范围查询的基准测试<br/>
+ * <br/>
+ * 每次调用以一个已有关键字为下界，扫描span个关键字
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class RangeScanBenchmark {
+    @Param({"AVL", "RBt", "B(4)", "B(10)", "B(100)", "B+(4)", "B+(10)", "B+(100)",
+            "IntB+(4)", "IntB+(10)", "IntB+(100)"})
+    public String structure;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"10", "1000"})
+    public int span;
+
+    private Dataset dataset;
+    private OrderedIndex<Integer, Object> tree;
+    private int probeCursor;
+
+    @Setup
+    public void setUp() {
+        dataset = new Dataset(size);
+        tree = dataset.populate(structure);
+    }
+
+    @Benchmark
+    public List<Object> range() {
+        int[] probes = dataset.probes;
+        int from = probes[probeCursor];
+        if (++probeCursor == probes.length) {
+            probeCursor = 0;
+        }
+        // 关键字均为偶数，因此[from, from + 2 * (span - 1)]恰好包含span个关键字(越过最大关键字时除外)
+        return tree.range(from, from + 2 * (span - 1));
+    }
+}
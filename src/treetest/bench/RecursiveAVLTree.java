@@ -0,0 +1,423 @@
+package treetest.bench;
+
+import treetest.AVLNode;
+import treetest.OrderedIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * AVLTree改为迭代实现之前的递归版本，仅作为基准测试中的对照<br/>
+ * <br/>
+ * 插入、删除、查找都逐层递归，size每次都遍历整棵树计数
+ */
+final class RecursiveAVLTree implements OrderedIndex<Integer, Object> {
+    private AVLNode root;
+    private final StringBuilder visualizeBuilder; // 二叉树图形化解析的builder
+
+    RecursiveAVLTree() {
+        visualizeBuilder = new StringBuilder();
+    }
+
+    /**
+     * 平衡调整
+     */
+    private AVLNode reBalance(AVLNode avlNode) {
+        // 获取avlNode的平衡因子
+        int altitudeDiff = getAltitudeDiff(avlNode);
+
+        if (Math.abs(altitudeDiff) > 1) {
+            if (altitudeDiff < 0) { // LL旋转或者RL旋转
+                // avlNode的右子树的平衡因子只可能为-1|0|1
+                if (getAltitudeDiff(avlNode.right) == 1) {
+                    // avlNode的右子树右旋
+                    avlNode.right = rightRevolve(avlNode.right);
+                }
+                // avlNode左旋
+                return leftRevolve(avlNode);
+            } else { // RR旋转或者LR旋转
+                // avlNode的左子树的平衡因子只可能为-1|0|1
+                if (getAltitudeDiff(avlNode.left) == -1) {
+                    // avlNode的左子树左旋
+                    avlNode.left = leftRevolve(avlNode.left);
+                }
+                // avlNode右旋
+                return rightRevolve(avlNode);
+            }
+        }
+        return avlNode;
+    }
+
+    /**
+     * 左旋
+     */
+    private AVLNode leftRevolve(AVLNode avlNode) {
+        // 先保存avlNode的右子树
+        AVLNode right = avlNode.right;
+
+        // avlNode的右指针指向right的左子树
+        avlNode.right = right.left;
+
+        // right的左指针指向avlNode
+        right.left = avlNode;
+
+        // 先更新avlNode的高度
+        resetHeight(avlNode);
+
+        // 再更新right的高度
+        resetHeight(right);
+
+        // 返回right作为调整后的root
+        return right;
+    }
+
+    /**
+     * 右旋
+     */
+    private AVLNode rightRevolve(AVLNode avlNode) {
+        // 保存avlNode的左子树
+        AVLNode left = avlNode.left;
+
+        // avlNode的左指针指向left的右子树
+        avlNode.left = left.right;
+
+        // left的右指针指向avlNode
+        left.right = avlNode;
+
+        // 先更新avlNode的高度
+        resetHeight(avlNode);
+
+        // 再更新left的高度
+        resetHeight(left);
+
+        // 返回left作为调整后的root
+        return left;
+    }
+
+    /**
+     * 获取结点高度差（平衡因子）
+     */
+    private int getAltitudeDiff(AVLNode avlNode) {
+        return (avlNode.left != null ? avlNode.left.height : 0) -
+                (avlNode.right != null ? avlNode.right.height : 0);
+    }
+
+    /**
+     * 插入结点
+     */
+    public void insert(AVLNode newNode) {
+        root = insert(newNode, root);
+    }
+
+    private AVLNode insert(AVLNode newNode, AVLNode root) {
+        if (root == null) {
+            // 找到了正确的位置，直接返回新结点
+            return newNode;
+        }
+        if (root.key > newNode.key) {
+            // 新结点的key比当前结点的小，因此向当前结点的左子树递归
+            root.left = insert(newNode, root.left);
+        } else if (root.key < newNode.key) {
+            // 新结点的key比当前结点的大，因此向当前结点的右子树递归
+            root.right = insert(newNode, root.right);
+        } else {
+            // 两个结点的key相同，因此直接更新value并返回
+            root.value = newNode.value;
+            return root;
+        }
+        resetHeight(root); // 在调整之前，更新当前结点的高度
+        return reBalance(root); // 调整并返回
+    }
+
+    /**
+     * 删除结点
+     */
+    public boolean delete(int key) {
+        if (root == null) {
+            return false;
+        }
+
+        // delete方法返回null的情况：待删除的是唯一一个结点
+        AVLNode delete = delete(key, root);
+
+        // 待删除的结点存在
+        if (delete != null || root.left == null && root.right == null && key == root.key) {
+            root = delete;
+            return true;
+        }
+
+        // 待删除的结点不存在
+        return false;
+    }
+
+    private AVLNode delete(int key, AVLNode avlNode) {
+        if (avlNode == null) { // 待删除的结点不存在
+            return null;
+        }
+        if (avlNode.key > key) {
+            // 对avlNode的左子树递归调用方法
+            avlNode.left = delete(key, avlNode.left);
+        } else if (avlNode.key < key) {
+            // 对avlNode的右子树递归调用方法
+            avlNode.right = delete(key, avlNode.right);
+        } else {
+            if (avlNode.left == null && avlNode.right == null) { // 待删除的结点没有左右子树
+                // 返回空表示删除当前结点（avlNode）
+                return null;
+            } else if (avlNode.right == null) { // 待删除的结点只有左子树
+                // 保存avlNode的左子树
+                AVLNode left = avlNode.left;
+
+                // 清空avlNode的左指针
+                avlNode.left = null;
+
+                // 用avlNode的左子树接替avlNode
+                return left;
+            } else if (avlNode.left == null) { // 待删除的结点只有右子树
+                // 保存avlNode的右子树
+                AVLNode right = avlNode.right;
+
+                // 清空avlNode的右指针
+                avlNode.right = null;
+
+                // 用avlNode的右子树接替avlNode
+                return right;
+            } else { // 待删除的结点有左右子树
+                // 获取左子树的最右结点
+                AVLNode mostRightNodeOfLeftTree = getMostRightNode(avlNode.left);
+
+                // 删除待删除结点的左子树的最右结点，由于此时最右结点没有右子树，因此只涉及两种返回情况：
+                // 1、只有左子树
+                // 2、没有左右子树
+                // 由于可能会发生旋转，因此newRoot不一定等于avlNode
+                AVLNode newRoot = delete(mostRightNodeOfLeftTree.key, avlNode);
+
+                // 将avlNode的数据更新为左子树的最右结点的数据，此时avlNode的高度已在上一步更新
+                avlNode.key = mostRightNodeOfLeftTree.key;
+                avlNode.value = mostRightNodeOfLeftTree.value;
+
+                // 返回调整之后的以原待删除结点为根结点的AVL树的根结点
+                return newRoot;
+            }
+        }
+        resetHeight(avlNode); // 在调整之前，更新当前结点的高度
+        return reBalance(avlNode); // 调整并返回
+    }
+
+    /**
+     * 重新设置给定结点的高度
+     */
+    private void resetHeight(AVLNode avlNode) {
+        avlNode.height = Math.max(
+                avlNode.left == null ? 0 : avlNode.left.height,
+                avlNode.right == null ? 0 : avlNode.right.height
+        ) + 1;
+    }
+
+    /**
+     * 获取给定结点的最右子结点
+     */
+    private AVLNode getMostRightNode(AVLNode avlNode) {
+        return avlNode.right == null ? avlNode : getMostRightNode(avlNode.right);
+    }
+
+    /**
+     * 检查AVL树是否平衡
+     */
+    public boolean checkBalance() {
+        if (root != null) {
+            if (Math.abs(getAltitudeDiff(root)) > 1) {
+                return false;
+            }
+            return checkBalance(root.left) && checkBalance(root.right);
+        }
+        return true;
+    }
+
+    private boolean checkBalance(AVLNode root) {
+        if (root != null) {
+            if (Math.abs(getAltitudeDiff(root)) > 1) {
+                return false;
+            }
+            return checkBalance(root.left) && checkBalance(root.right);
+        }
+        return true;
+    }
+
+    /**
+     * 设置用于二叉树图形化解析的builder
+     * 图形化解析网址：http://mshang.ca/syntree
+     */
+    public String getVisualizeString() {
+        visualizeBuilder.setLength(0);
+        setVisualizeBuilder(root, visualizeBuilder);
+        return visualizeBuilder.toString();
+    }
+
+    private void setVisualizeBuilder(AVLNode avlNode, StringBuilder builder) {
+        if (avlNode == null) {
+            builder.append("[null]");
+            return;
+        }
+        builder.append("[").append(avlNode.key).append("-").append(avlNode.height);
+        setVisualizeBuilder(avlNode.left, builder);
+        setVisualizeBuilder(avlNode.right, builder);
+        builder.append("]");
+    }
+
+    /**
+     * 获取二叉树的结点总数
+     */
+    public int countNodes() {
+        return countNodes(root);
+    }
+
+    private int countNodes(AVLNode avlNode) {
+        if (avlNode == null) {
+            return 0;
+        }
+        return 1 + countNodes(avlNode.left) + countNodes(avlNode.right);
+    }
+
+    /**
+     * 查找结点值
+     */
+    public Object get(int key) {
+        return get(key, root);
+    }
+
+    private Object get(int key, AVLNode root) {
+        if (root == null) {
+            return null;
+        }
+        if (root.key < key) {
+            return get(key, root.right);
+        }
+        if (root.key > key) {
+            return get(key, root.left);
+        }
+        return root.value;
+    }
+
+    @Override
+    public Object put(Integer key, Object value) {
+        AVLNode avlNode = root;
+        while (avlNode != null) {
+            if (avlNode.key < key) {
+                avlNode = avlNode.right;
+            } else if (avlNode.key > key) {
+                avlNode = avlNode.left;
+            } else {
+                // 关键字已存在，直接替换value，树的结构不变
+                Object old = avlNode.value;
+                avlNode.value = value;
+                return old;
+            }
+        }
+        insert(new AVLNode(key, value));
+        return null;
+    }
+
+    @Override
+    public Object get(Integer key) {
+        return get((int) key);
+    }
+
+    @Override
+    public Object remove(Integer key) {
+        Object old = get((int) key);
+        return delete(key) ? old : null;
+    }
+
+    /**
+     * 查找小于等于key的最大关键字
+     */
+    @Override
+    public Integer floor(Integer key) {
+        AVLNode avlNode = root;
+        AVLNode floor = null;
+        while (avlNode != null) {
+            if (avlNode.key > key) {
+                avlNode = avlNode.left;
+            } else if (avlNode.key < key) {
+                // 当前结点是候选，右子树中可能还有更接近key的结点
+                floor = avlNode;
+                avlNode = avlNode.right;
+            } else {
+                return avlNode.key;
+            }
+        }
+        return floor == null ? null : floor.key;
+    }
+
+    /**
+     * 查找大于等于key的最小关键字
+     */
+    @Override
+    public Integer ceiling(Integer key) {
+        AVLNode avlNode = root;
+        AVLNode ceiling = null;
+        while (avlNode != null) {
+            if (avlNode.key < key) {
+                avlNode = avlNode.right;
+            } else if (avlNode.key > key) {
+                // 当前结点是候选，左子树中可能还有更接近key的结点
+                ceiling = avlNode;
+                avlNode = avlNode.left;
+            } else {
+                return avlNode.key;
+            }
+        }
+        return ceiling == null ? null : ceiling.key;
+    }
+
+    /**
+     * 范围查询，只进入可能包含[from, to]中关键字的子树
+     */
+    @Override
+    public List<Object> range(Integer from, Integer to) {
+        List<Object> result = new ArrayList<>();
+        range(root, from, to, result);
+        return result;
+    }
+
+    private void range(AVLNode avlNode, int from, int to, List<Object> result) {
+        if (avlNode == null) {
+            return;
+        }
+        if (avlNode.key > from) {
+            range(avlNode.left, from, to, result);
+        }
+        if (avlNode.key >= from && avlNode.key <= to) {
+            result.add(avlNode.value);
+        }
+        if (avlNode.key < to) {
+            range(avlNode.right, from, to, result);
+        }
+    }
+
+    /**
+     * 递归中序遍历
+     */
+    @Override
+    public void forEach(BiConsumer<? super Integer, ? super Object> action) {
+        forEach(root, action);
+    }
+
+    private void forEach(AVLNode avlNode, BiConsumer<? super Integer, ? super Object> action) {
+        if (avlNode == null) {
+            return;
+        }
+        forEach(avlNode.left, action);
+        action.accept(avlNode.key, avlNode.value);
+        forEach(avlNode.right, action);
+    }
+
+    @Override
+    public int size() {
+        return countNodes();
+    }
+}
+
+
@@ -0,0 +1,66 @@
+package treetest.bench;
+
+import treetest.OrderedIndex;
+import treetest.metrics.TreeMetrics;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * 用一把全局锁包装任意树，作为并发基准测试的对照
+ */
+final class SynchronizedIndex<K extends Comparable<? super K>, V> implements OrderedIndex<K, V> {
+    private final OrderedIndex<K, V> tree;
+
+    SynchronizedIndex(OrderedIndex<K, V> tree) {
+        this.tree = tree;
+    }
+
+    @Override
+    public synchronized V put(K key, V value) {
+        return tree.put(key, value);
+    }
+
+    @Override
+    public synchronized V get(K key) {
+        return tree.get(key);
+    }
+
+    @Override
+    public synchronized V remove(K key) {
+        return tree.remove(key);
+    }
+
+    @Override
+    public synchronized K floor(K key) {
+        return tree.floor(key);
+    }
+
+    @Override
+    public synchronized K ceiling(K key) {
+        return tree.ceiling(key);
+    }
+
+    @Override
+    public synchronized List<V> range(K from, K to) {
+        return tree.range(from, to);
+    }
+
+    @Override
+    public synchronized void forEach(BiConsumer<? super K, ? super V> action) {
+        tree.forEach(action);
+    }
+
+    @Override
+    public synchronized int size() {
+        return tree.size();
+    }
+
+    /**
+     * TreeMetrics本身是线程安全的，不需要加锁
+     */
+    @Override
+    public TreeMetrics getMetrics() {
+        return tree.getMetrics();
+    }
+}
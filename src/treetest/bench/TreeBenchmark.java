@@ -0,0 +1,89 @@
+package treetest.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import treetest.OrderedIndex;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 插入、查找以及混合负载的基准测试<br/>
+ * <br/>
+ * insert每次调用都从空树开始插入size个关键字，因此单次耗时需要除以size才是每个关键字的插入开销；<br/>
+ * get每次调用查找一个必然命中的关键字；<br/>
+ * mixed每10次调用为一组：8次查找、1次插入新关键字、1次删除该关键字，树的大小保持不变；<br/>
+ * RecursiveAVL为AVLTree改为迭代实现之前的递归版本，用于对比
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class TreeBenchmark {
+    @Param({"AVL", "RecursiveAVL", "PooledAVL", "RBt", "B(4)", "B(10)", "B(100)", "B+(4)", "B+(10)", "B+(100)",
+            "IntB+(4)", "IntB+(10)", "IntB+(100)"})
+    public String structure;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Dataset dataset;
+    private OrderedIndex<Integer, Object> tree;
+    private int probeCursor;
+    private int mixedCursor;
+    private int freshCursor;
+
+    @Setup
+    public void setUp() {
+        dataset = new Dataset(size);
+        tree = dataset.populate(structure);
+    }
+
+    @Benchmark
+    public OrderedIndex<Integer, Object> insert() {
+        OrderedIndex<Integer, Object> fresh = BenchTrees.create(structure);
+        for (int key : dataset.keys) {
+            fresh.put(key, key);
+        }
+        return fresh;
+    }
+
+    @Benchmark
+    public Object get() {
+        int[] probes = dataset.probes;
+        int key = probes[probeCursor];
+        if (++probeCursor == probes.length) {
+            probeCursor = 0;
+        }
+        return tree.get(key);
+    }
+
+    @Benchmark
+    public Object mixed() {
+        int step = mixedCursor;
+        mixedCursor = step == 9 ? 0 : step + 1;
+        int[] fresh = dataset.fresh;
+        if (step == 4) {
+            tree.put(fresh[freshCursor], freshCursor);
+            return null;
+        }
+        if (step == 9) {
+            tree.remove(fresh[freshCursor]);
+            if (++freshCursor == fresh.length) {
+                freshCursor = 0;
+            }
+            return null;
+        }
+        return get();
+    }
+}
@@ -0,0 +1,69 @@
+package treetest.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import treetest.OrderedIndex;
+import treetest.workload.KeyOrder;
+import treetest.workload.Operation;
+import treetest.workload.OperationStream;
+import treetest.workload.Workload;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * YCSB负载A~F的基准测试<br/>
+ * <br/>
+ * 每棵树先加载size条记录，再循环执行同一个预先生成的操作序列，每次调用执行一个操作；<br/>
+ * 序列循环一遍后插入操作会变成对已有关键字的更新，序列长度取得足够长，测量期间基本不会循环
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class YcsbBenchmark {
+    private static final int OPERATION_COUNT = 1 << 22;
+
+    @Param({"AVL", "RBt", "B(100)", "B+(100)", "IntB+(100)"})
+    public String structure;
+
+    @Param({"A", "B", "C", "D", "E", "F"})
+    public String workload;
+
+    @Param({"UNIFORM", "SEQUENTIAL"})
+    public String keyOrder;
+
+    @Param({"1000000"})
+    public int size;
+
+    private OrderedIndex<Integer, Object> tree;
+    private Operation[] operations;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        OperationStream stream = Workload.ycsb(workload).stream(KeyOrder.valueOf(keyOrder), size, Dataset.SEED);
+        tree = BenchTrees.create(structure);
+        stream.load(tree);
+        operations = stream.next(OPERATION_COUNT);
+    }
+
+    @Benchmark
+    public Object operation() {
+        Operation operation = operations[cursor];
+        if (++cursor == operations.length) {
+            cursor = 0;
+        }
+        return operation.apply(tree);
+    }
+}
@@ -0,0 +1,77 @@
+package treetest.footprint;
+
+/**
+ * 一棵树的内存占用，按对象的类别分别统计对象个数和字节数<br/>
+ * <br/>
+ * 结构开销(structure)为除装箱的关键字、值以外的全部对象，即树本身为了组织数据额外占用的内存；<br/>
+ * 保留大小(retained)为从树出发能到达的全部对象，即树被回收时能释放的内存(装箱对象被别处共享时会高估)；<br/>
+ * 每个关键字的字节数按树中的关键字个数平均
+ */
+public final class Footprint {
+    public enum Category {
+        NODES("nodes"), // 类名含Node的对象：结点本身，不含它引用的数组
+        ARRAYS("arrays"), // 树和结点直接引用的数组：关键字、值、子结点数组，PooledAVL的结点池
+        LISTS("lists"), // 集合对象及其内部数组，如BPlusTree结点中的ArrayList
+        BOXED("boxed"), // 装箱的关键字和值：Integer、Long等
+        OTHER("other"); // 树对象本身以及其它辅助对象
+
+        private final String label;
+
+        Category(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private final long keys;
+    private final long[] objects = new long[Category.values().length];
+    private final long[] bytes = new long[Category.values().length];
+
+    Footprint(long keys) {
+        this.keys = keys;
+    }
+
+    void add(Category category, long size) {
+        objects[category.ordinal()]++;
+        bytes[category.ordinal()] += size;
+    }
+
+    public long getKeys() {
+        return keys;
+    }
+
+    public long getObjects(Category category) {
+        return objects[category.ordinal()];
+    }
+
+    public long getBytes(Category category) {
+        return bytes[category.ordinal()];
+    }
+
+    public long getObjects() {
+        long sum = 0;
+        for (long count : objects) {
+            sum += count;
+        }
+        return sum;
+    }
+
+    public long getRetainedBytes() {
+        long sum = 0;
+        for (long size : bytes) {
+            sum += size;
+        }
+        return sum;
+    }
+
+    public long getStructureBytes() {
+        return getRetainedBytes() - getBytes(Category.BOXED);
+    }
+
+    public double perKey(long value) {
+        return keys == 0 ? 0 : (double) value / keys;
+    }
+}
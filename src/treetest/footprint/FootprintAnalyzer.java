@@ -0,0 +1,159 @@
+package treetest.footprint;
+
+import treetest.OrderedIndex;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+/**
+ * 遍历树的内部结构，统计从树对象出发能到达的全部对象的个数和浅大小<br/>
+ * <br/>
+ * 通过反射读取各个对象的引用字段，按对象的同一性去重，对象数组逐个元素遍历，不进入Class对象和静态字段；<br/>
+ * 对象在第一次被引用时归类(见Footprint.Category)，数组归入引用它的对象的类别：集合内部的数组算作lists，
+ * 结点引用的数组算作arrays；<br/>
+ * JDK的类(如ArrayList)在没有--add-opens时不能读取私有字段，内部数组的容量无从得知，按元素个数估算会与实际相差很多，
+ * 因此遇到这样的对象时抛出IllegalStateException，提示需要的--add-opens参数
+ * (统计B+树时为--add-opens java.base/java.util=ALL-UNNAMED)；
+ * 只有StringBuilder例外，它的容量可以通过公开API得到；<br/>
+ * 使用显式栈遍历，B+树叶结点之间的链表很长也不会栈溢出；非线程安全，遍历期间树不能被修改
+ */
+public final class FootprintAnalyzer {
+    private static final Field[] OPAQUE = new Field[0]; // 私有字段无法读取
+
+    // 每个类的浅大小和引用字段
+    private static final ClassValue<ClassInfo> CLASS_INFO = new ClassValue<ClassInfo>() {
+        @Override
+        protected ClassInfo computeValue(Class<?> type) {
+            return new ClassInfo(type);
+        }
+    };
+
+    private final Footprint footprint;
+    private final Map<Object, Footprint.Category> seen = new IdentityHashMap<>();
+    private final Deque<Object> pending = new ArrayDeque<>();
+
+    private FootprintAnalyzer(long keys) {
+        footprint = new Footprint(keys);
+    }
+
+    public static Footprint analyze(OrderedIndex<?, ?> tree) {
+        return analyze(tree, tree.size());
+    }
+
+    /**
+     * @param root 开始遍历的对象，归入other
+     * @param keys 计算每个关键字的字节数时使用的关键字个数
+     */
+    public static Footprint analyze(Object root, long keys) {
+        FootprintAnalyzer analyzer = new FootprintAnalyzer(keys);
+        analyzer.seen.put(root, Footprint.Category.OTHER);
+        analyzer.pending.push(root);
+        analyzer.walk();
+        return analyzer.footprint;
+    }
+
+    private void walk() {
+        while (!pending.isEmpty()) {
+            Object object = pending.pop();
+            Footprint.Category category = seen.get(object);
+            Class<?> type = object.getClass();
+            if (type.isArray()) {
+                footprint.add(category, ObjectLayout.shallowSize(object));
+                if (!type.getComponentType().isPrimitive()) {
+                    for (Object element : (Object[]) object) {
+                        discover(element, category);
+                    }
+                }
+                continue;
+            }
+            ClassInfo info = CLASS_INFO.get(type);
+            footprint.add(category, info.size);
+            if (info.references == OPAQUE) {
+                opaque(object, category);
+                continue;
+            }
+            for (Field field : info.references) {
+                try {
+                    discover(field.get(object), category);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("Cannot read " + field, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 第一次遇到的对象按引用它的对象的类别归类，加入待遍历的栈
+     */
+    private void discover(Object object, Footprint.Category parent) {
+        if (object == null || object instanceof Class || seen.containsKey(object)) {
+            return;
+        }
+        seen.put(object, classify(object, parent));
+        pending.push(object);
+    }
+
+    private static Footprint.Category classify(Object object, Footprint.Category parent) {
+        Class<?> type = object.getClass();
+        if (type.isArray()) {
+            return parent == Footprint.Category.LISTS ? Footprint.Category.LISTS : Footprint.Category.ARRAYS;
+        }
+        if (object instanceof Collection || object instanceof Map) {
+            return Footprint.Category.LISTS;
+        }
+        if (object instanceof Number && type.getName().startsWith("java.lang.")
+                || object instanceof Character || object instanceof Boolean) {
+            return Footprint.Category.BOXED;
+        }
+        if (type.getSimpleName().contains("Node")) {
+            return Footprint.Category.NODES;
+        }
+        return Footprint.Category.OTHER;
+    }
+
+    /**
+     * 无法读取私有字段的JDK对象：StringBuilder按容量计入内部数组(Latin1编码)，其它对象无法准确统计
+     */
+    private void opaque(Object object, Footprint.Category category) {
+        if (object instanceof StringBuilder) {
+            footprint.add(category, ObjectLayout.arraySize(byte.class, ((StringBuilder) object).capacity()));
+            return;
+        }
+        throw new IllegalStateException("Cannot read the fields of " + object.getClass().getName()
+                + ", run with " + addOpens(object.getClass()));
+    }
+
+    /**
+     * 使type的私有字段可以反射读取的虚拟机参数
+     */
+    public static String addOpens(Class<?> type) {
+        return "--add-opens " + type.getModule().getName() + "/" + type.getPackageName() + "=ALL-UNNAMED";
+    }
+
+    private static final class ClassInfo {
+        final long size;
+        final Field[] references; // 非静态的引用类型字段，包括父类的；无法读取时为OPAQUE
+
+        ClassInfo(Class<?> type) {
+            size = ObjectLayout.instanceSize(type);
+            references = references(type);
+        }
+
+        private static Field[] references(Class<?> type) {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive()) {
+                        continue;
+                    }
+                    if (!field.trySetAccessible()) {
+                        return OPAQUE;
+                    }
+                    fields.add(field);
+                }
+            }
+            return fields.toArray(new Field[0]);
+        }
+    }
+}
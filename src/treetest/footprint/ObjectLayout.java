@@ -0,0 +1,103 @@
+package treetest.footprint;
+
+import treetest.NodeSizing;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * HotSpot 64位虚拟机上对象的浅大小(shallow size)：对象头 + 全部实例字段(包括父类的)，按对象对齐字节数向上取整<br/>
+ * <br/>
+ * 对象头：开启压缩类指针时12字节，否则16字节；引用宽度与NodeSizing相同(开启压缩指针时4字节)；<br/>
+ * 数组：对象头 + 长度4字节，元素为8字节宽时起始位置对齐到8，再加上元素所占字节；<br/>
+ * JDK 15之后字段按宽度紧密排列，可以填入对象头后面的空隙，父类字段之后也不再补齐，
+ * 因此字段宽度直接相加与实际布局一致(个别需要补齐的类最多相差几个字节)
+ */
+public final class ObjectLayout {
+    public static final int HEADER_BYTES = vmFlag("UseCompressedClassPointers", true) ? 12 : 16;
+    public static final int ALIGNMENT = vmIntOption("ObjectAlignmentInBytes", 8);
+
+    private ObjectLayout() {
+    }
+
+    /**
+     * 类的实例的浅大小，不能用于数组
+     */
+    public static long instanceSize(Class<?> type) {
+        long bytes = HEADER_BYTES;
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    bytes += fieldBytes(field.getType());
+                }
+            }
+        }
+        return align(bytes);
+    }
+
+    /**
+     * 长度为length的数组的大小
+     * @param componentType 元素类型
+     */
+    public static long arraySize(Class<?> componentType, int length) {
+        int width = fieldBytes(componentType);
+        long base = HEADER_BYTES + Integer.BYTES;
+        if (width == 8) {
+            base = (base + 7) & ~7L;
+        }
+        return align(base + (long) width * length);
+    }
+
+    /**
+     * 对象本身占用的字节数，不包括它引用的对象
+     */
+    public static long shallowSize(Object object) {
+        Class<?> type = object.getClass();
+        if (type.isArray()) {
+            return arraySize(type.getComponentType(), Array.getLength(object));
+        }
+        return instanceSize(type);
+    }
+
+    /**
+     * 字段或数组元素的宽度
+     */
+    public static int fieldBytes(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return NodeSizing.REFERENCE_BYTES;
+        }
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        return 1;
+    }
+
+    public static String describe() {
+        return "header " + HEADER_BYTES + " bytes, reference " + NodeSizing.REFERENCE_BYTES + " bytes, alignment "
+                + ALIGNMENT + " bytes";
+    }
+
+    private static long align(long bytes) {
+        return (bytes + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    /**
+     * 无法读取虚拟机参数时按默认值处理
+     */
+    private static boolean vmFlag(String name, boolean defaultValue) {
+        String value = NodeSizing.vmOption(name);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    private static int vmIntOption(String name, int defaultValue) {
+        String value = NodeSizing.vmOption(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+}
@@ -0,0 +1,126 @@
+package treetest.latency;
+
+import java.util.Arrays;
+
+/**
+ * 对数分桶的延迟直方图，与HdrHistogram的分桶方式相同<br/>
+ * <br/>
+ * 小于128的值每个值一个桶；更大的值按最高位分成若干段，每段[2^k, 2^(k+1))再等分为64个桶，
+ * 因此任何值落入的桶的宽度都不超过值的1/64，百分位的相对误差在1.6%以内；<br/>
+ * 覆盖整个非负long范围只需3712个桶，记录一次只是几次位运算和一次数组自增，不分配对象；<br/>
+ * 最小值、最大值和总和单独精确记录；非线程安全，每个线程使用自己的直方图，需要时用add合并
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // 每段的桶数
+    private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS; // 小于该值时每个值一个桶
+    private static final int BUCKETS = bucketIndex(Long.MAX_VALUE) + 1;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    /**
+     * 记录一个值
+     * @param value 延迟(纳秒)，负数按0处理
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts[bucketIndex(value)]++;
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * 把other的记录合并进来
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return 最小值，没有记录时为0
+     */
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * 百分位值：不超过它的记录至少占percentile%<br/>
+     * 返回所在桶的上界(不超过记录的最大值)，因此不会低估尾部延迟
+     * @param percentile 0~100
+     * @return 没有记录时为0
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Illegal percentile: " + percentile);
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.max(Math.min(bucketHighest(i), max), min);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * 值为v的桶：v >= 128时取最高位下面的6位作为段内序号，shift为去掉的低位数
+     */
+    private static int bucketIndex(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    /**
+     * 桶中的最大值
+     */
+    private static long bucketHighest(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long top = (index & SUB_BUCKETS - 1) + SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+}
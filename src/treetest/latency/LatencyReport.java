@@ -0,0 +1,119 @@
+package treetest.latency;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 各种树、各种操作的延迟直方图，按加入的先后顺序输出<br/>
+ * <br/>
+ * 控制台输出为表格；文件输出为CSV(每行一种树的一种操作)和JSON(同样内容的对象数组)，单位都是纳秒
+ */
+public final class LatencyReport {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p999"};
+
+    private final Map<String, Map<String, LatencyHistogram>> histograms = new LinkedHashMap<>();
+
+    /**
+     * 取得某种树某种操作的直方图，不存在时创建
+     */
+    public LatencyHistogram histogram(String structure, String operation) {
+        return histograms.computeIfAbsent(structure, s -> new LinkedHashMap<>())
+                .computeIfAbsent(operation, o -> new LatencyHistogram());
+    }
+
+    public void printTable(PrintStream out) {
+        String format = "%-12s%-20s%10s%10s%10s%10s%10s%10s%12s%n";
+        out.printf(format, "structure", "operation", "count", "mean", "p50", "p90", "p99", "p99.9", "max");
+        for (Map.Entry<String, Map<String, LatencyHistogram>> structure : histograms.entrySet()) {
+            for (Map.Entry<String, LatencyHistogram> operation : structure.getValue().entrySet()) {
+                LatencyHistogram histogram = operation.getValue();
+                out.printf(format, structure.getKey(), operation.getKey(), histogram.getCount(),
+                        String.format(Locale.ROOT, "%.1f", histogram.getMean()),
+                        histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(90),
+                        histogram.getValueAtPercentile(99), histogram.getValueAtPercentile(99.9), histogram.getMax());
+            }
+        }
+        out.println("(ns)");
+    }
+
+    public void writeCsv(Path file) throws IOException {
+        try (PrintWriter out = open(file)) {
+            out.print("structure,operation,count,mean_ns,min_ns");
+            for (String name : PERCENTILE_NAMES) {
+                out.print(',' + name + "_ns");
+            }
+            out.println(",max_ns");
+            for (Map.Entry<String, Map<String, LatencyHistogram>> structure : histograms.entrySet()) {
+                for (Map.Entry<String, LatencyHistogram> operation : structure.getValue().entrySet()) {
+                    LatencyHistogram histogram = operation.getValue();
+                    out.print(csv(structure.getKey()) + ',' + csv(operation.getKey()) + ',' + histogram.getCount()
+                            + ',' + String.format(Locale.ROOT, "%.1f", histogram.getMean()) + ',' + histogram.getMin());
+                    for (double percentile : PERCENTILES) {
+                        out.print(',');
+                        out.print(histogram.getValueAtPercentile(percentile));
+                    }
+                    out.println("," + histogram.getMax());
+                }
+            }
+        }
+    }
+
+    public void writeJson(Path file) throws IOException {
+        try (PrintWriter out = open(file)) {
+            out.println('[');
+            boolean first = true;
+            for (Map.Entry<String, Map<String, LatencyHistogram>> structure : histograms.entrySet()) {
+                for (Map.Entry<String, LatencyHistogram> operation : structure.getValue().entrySet()) {
+                    LatencyHistogram histogram = operation.getValue();
+                    if (!first) {
+                        out.println(',');
+                    }
+                    first = false;
+                    out.print("  {\"structure\": " + json(structure.getKey())
+                            + ", \"operation\": " + json(operation.getKey())
+                            + ", \"count\": " + histogram.getCount()
+                            + ", \"mean_ns\": " + String.format(Locale.ROOT, "%.1f", histogram.getMean())
+                            + ", \"min_ns\": " + histogram.getMin());
+                    for (int i = 0; i < PERCENTILES.length; i++) {
+                        out.print(", \"" + PERCENTILE_NAMES[i] + "_ns\": " + histogram.getValueAtPercentile(PERCENTILES[i]));
+                    }
+                    out.print(", \"max_ns\": " + histogram.getMax() + '}');
+                }
+            }
+            out.println();
+            out.println(']');
+        }
+    }
+
+    private static PrintWriter open(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        return new PrintWriter(writer);
+    }
+
+    /**
+     * 名称中含逗号或引号时加引号，如B+(100)不需要
+     */
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String json(String value) {
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+}
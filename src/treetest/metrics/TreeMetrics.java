@@ -0,0 +1,170 @@
+package treetest.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 树的内部工作计数：旋转、分裂、合并、借用(从兄弟结点移动关键字)次数，以及查找(get)次数和经过的结点数<br/>
+ * <br/>
+ * 只有构造树时开启了统计才会创建，未开启时树中的计数点只是一次对null的判断；<br/>
+ * 计数器为LongAdder，多个线程同时计数(如ConcurrentBenchmark中被锁保护的树在不同线程上执行)时分散到不同的单元，不互相争用；<br/>
+ * 高度、结点个数、平均填充率在读取时由树计算，树正在被其它线程修改时读到的可能是中间状态；<br/>
+ * register后可以在JConsole等工具中查看，ObjectName为treetest:type=TreeMetrics,name=名称
+ */
+public final class TreeMetrics implements TreeMetricsMXBean {
+    private final TreeShape shape;
+    private final LongAdder rotations = new LongAdder();
+    private final LongAdder splits = new LongAdder();
+    private final LongAdder merges = new LongAdder();
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder nodeVisits = new LongAdder();
+    private ObjectName objectName; // 已注册时的名称
+
+    public TreeMetrics(TreeShape shape) {
+        this.shape = shape;
+    }
+
+    public void rotation() {
+        rotations.increment();
+    }
+
+    public void split() {
+        splits.increment();
+    }
+
+    /**
+     * 一次分裂出多个结点时按新增的结点数计
+     */
+    public void split(int count) {
+        splits.add(count);
+    }
+
+    public void merge() {
+        merges.increment();
+    }
+
+    public void borrow() {
+        borrows.increment();
+    }
+
+    /**
+     * 一次查找
+     * @param visits 从根结点开始经过的结点数(包括找到关键字或确定不存在的结点)
+     */
+    public void lookup(int visits) {
+        lookups.increment();
+        nodeVisits.add(visits);
+    }
+
+    @Override
+    public long getRotations() {
+        return rotations.sum();
+    }
+
+    @Override
+    public long getSplits() {
+        return splits.sum();
+    }
+
+    @Override
+    public long getMerges() {
+        return merges.sum();
+    }
+
+    @Override
+    public long getBorrows() {
+        return borrows.sum();
+    }
+
+    @Override
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    @Override
+    public long getNodeVisits() {
+        return nodeVisits.sum();
+    }
+
+    @Override
+    public double getAverageNodeVisits() {
+        long count = lookups.sum();
+        return count == 0 ? 0 : (double) nodeVisits.sum() / count;
+    }
+
+    @Override
+    public int getHeight() {
+        return shape.getHeight();
+    }
+
+    @Override
+    public int getNodeCount() {
+        return shape.getNodeCount();
+    }
+
+    @Override
+    public double getAverageFill() {
+        return shape.getAverageFill();
+    }
+
+    /**
+     * 计数清零，树的形状不受影响
+     */
+    @Override
+    public void reset() {
+        rotations.reset();
+        splits.reset();
+        merges.reset();
+        borrows.reset();
+        lookups.reset();
+        nodeVisits.reset();
+    }
+
+    /**
+     * 注册到平台MBeanServer
+     * @param name ObjectName中name属性的值，如AVL、B+(100)，会按需加引号
+     * @return 注册的ObjectName
+     */
+    public synchronized ObjectName register(String name) {
+        if (objectName != null) {
+            throw new IllegalStateException("Already registered as " + objectName);
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = new ObjectName("treetest:type=TreeMetrics,name=" + ObjectName.quote(name));
+            server.registerMBean(this, objectName);
+            this.objectName = objectName;
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Cannot register metrics as " + name, e);
+        }
+    }
+
+    /**
+     * 从平台MBeanServer注销，未注册时不做任何事
+     */
+    public synchronized void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot unregister " + objectName, e);
+        } finally {
+            objectName = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("height %d, nodes %d, fill %.2f, rotations %d, splits %d, merges %d, borrows %d, "
+                        + "lookups %d, visits/lookup %.2f",
+                getHeight(), getNodeCount(), getAverageFill(), getRotations(), getSplits(), getMerges(), getBorrows(),
+                getLookups(), getAverageNodeVisits());
+    }
+}
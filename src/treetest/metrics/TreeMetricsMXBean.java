@@ -0,0 +1,28 @@
+package treetest.metrics;
+
+/**
+ * TreeMetrics通过JMX公开的属性和操作，在JConsole、VisualVM中位于treetest域下
+ */
+public interface TreeMetricsMXBean {
+    long getRotations();
+
+    long getSplits();
+
+    long getMerges();
+
+    long getBorrows();
+
+    long getLookups();
+
+    long getNodeVisits();
+
+    double getAverageNodeVisits();
+
+    int getHeight();
+
+    int getNodeCount();
+
+    double getAverageFill();
+
+    void reset();
+}
@@ -0,0 +1,22 @@
+package treetest.metrics;
+
+/**
+ * 树的形状，供TreeMetrics在读取指标时计算<br/>
+ * 结点个数和平均填充率可能需要遍历整棵树，不应在热路径上调用
+ */
+public interface TreeShape {
+    /**
+     * @return 树的高度(层数)，只有根结点时为1
+     */
+    int getHeight();
+
+    /**
+     * @return 结点个数
+     */
+    int getNodeCount();
+
+    /**
+     * @return 平均每个结点使用的关键字位置占容量的比例，二叉树的每个结点恰好一个关键字，为1；空树为0
+     */
+    double getAverageFill();
+}
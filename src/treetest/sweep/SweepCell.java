@@ -0,0 +1,45 @@
+package treetest.sweep;
+
+import treetest.workload.KeyOrder;
+
+/**
+ * 一次测量的参数组合：哪种树、按什么顺序插入多少条记录，不同的组合互不依赖，可以并行执行
+ */
+public final class SweepCell {
+    private final String structure;
+    private final KeyOrder keyOrder;
+    private final int size;
+
+    public SweepCell(String structure, KeyOrder keyOrder, int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Illegal size: " + size);
+        }
+        this.structure = structure;
+        this.keyOrder = keyOrder;
+        this.size = size;
+    }
+
+    public String getStructure() {
+        return structure;
+    }
+
+    public KeyOrder getKeyOrder() {
+        return keyOrder;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * 与基线比较时用来对应同一组合的键
+     */
+    String key() {
+        return structure + '/' + keyOrder + '/' + size;
+    }
+
+    @Override
+    public String toString() {
+        return structure + ' ' + keyOrder + ' ' + size;
+    }
+}
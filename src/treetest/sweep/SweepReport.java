@@ -0,0 +1,226 @@
+package treetest.sweep;
+
+import treetest.workload.KeyOrder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * 各个组合的测量结果，按组合的先后顺序输出<br/>
+ * <br/>
+ * 控制台输出为表格；文件输出为CSV(每行一个组合)和JSON(同样内容的对象数组)，单位都是纳秒，
+ * 同样的参数多次运行得到的文件行序相同，可以直接diff；<br/>
+ * 之前写出的CSV可以读回作为基线，compare按组合对应，中位数变慢超过阈值的记为回归
+ */
+public final class SweepReport {
+    private static final String[] COLUMNS = {"workload", "structure", "key_order", "size", "repeats",
+            "insert_ns_per_key", "insert_min_ns_per_key", "ops_ns_per_op", "ops_min_ns_per_op"};
+
+    private final List<SweepResult> results = new ArrayList<>();
+
+    public void add(SweepResult result) {
+        results.add(result);
+    }
+
+    public List<SweepResult> getResults() {
+        return Collections.unmodifiableList(results);
+    }
+
+    public void printTable(PrintStream out) {
+        String format = "%-12s%-12s%10s%8s%14s%14s%14s%14s%n";
+        out.printf(format, "structure", "order", "size", "repeats", "insert/key", "insert min", "op", "op min");
+        for (SweepResult result : results) {
+            SweepCell cell = result.getCell();
+            out.printf(format, cell.getStructure(), cell.getKeyOrder(), cell.getSize(), result.getRepeats(),
+                    decimal(result.getInsertMedian()), decimal(result.getInsertMin()),
+                    decimal(result.getOpsMedian()), decimal(result.getOpsMin()));
+        }
+        out.println("(ns, median and min over repeats)");
+    }
+
+    public void writeCsv(Path file) throws IOException {
+        try (PrintWriter out = open(file)) {
+            out.println(String.join(",", COLUMNS));
+            for (SweepResult result : results) {
+                SweepCell cell = result.getCell();
+                out.println(csv(result.getWorkload()) + ',' + csv(cell.getStructure()) + ',' + cell.getKeyOrder()
+                        + ',' + cell.getSize() + ',' + result.getRepeats()
+                        + ',' + decimal(result.getInsertMedian()) + ',' + decimal(result.getInsertMin())
+                        + ',' + decimal(result.getOpsMedian()) + ',' + decimal(result.getOpsMin()));
+            }
+        }
+    }
+
+    public void writeJson(Path file) throws IOException {
+        try (PrintWriter out = open(file)) {
+            out.println('[');
+            for (int i = 0; i < results.size(); i++) {
+                SweepResult result = results.get(i);
+                SweepCell cell = result.getCell();
+                out.print("  {\"workload\": " + json(result.getWorkload())
+                        + ", \"structure\": " + json(cell.getStructure())
+                        + ", \"key_order\": " + json(cell.getKeyOrder().name())
+                        + ", \"size\": " + cell.getSize()
+                        + ", \"repeats\": " + result.getRepeats()
+                        + ", \"insert_ns_per_key\": " + decimal(result.getInsertMedian())
+                        + ", \"insert_min_ns_per_key\": " + decimal(result.getInsertMin())
+                        + ", \"ops_ns_per_op\": " + decimal(result.getOpsMedian())
+                        + ", \"ops_min_ns_per_op\": " + decimal(result.getOpsMin()) + '}');
+                out.println(i == results.size() - 1 ? "" : ",");
+            }
+            out.println(']');
+        }
+    }
+
+    /**
+     * 读回writeCsv写出的文件，按表头找列，列的先后顺序不影响
+     */
+    public static SweepReport readCsv(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        if (lines.isEmpty()) {
+            throw new IOException("Empty baseline: " + file);
+        }
+        List<String> header = split(lines.get(0));
+        int[] index = new int[COLUMNS.length];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            index[i] = header.indexOf(COLUMNS[i]);
+            if (index[i] < 0) {
+                throw new IOException("Missing column " + COLUMNS[i] + " in " + file);
+            }
+        }
+        SweepReport report = new SweepReport();
+        for (int line = 1; line < lines.size(); line++) {
+            if (lines.get(line).isEmpty()) {
+                continue;
+            }
+            List<String> fields = split(lines.get(line));
+            try {
+                SweepCell cell = new SweepCell(fields.get(index[1]), KeyOrder.valueOf(fields.get(index[2])),
+                        Integer.parseInt(fields.get(index[3])));
+                report.add(new SweepResult(fields.get(index[0]), cell, Integer.parseInt(fields.get(index[4])),
+                        Double.parseDouble(fields.get(index[5])), Double.parseDouble(fields.get(index[6])),
+                        Double.parseDouble(fields.get(index[7])), Double.parseDouble(fields.get(index[8]))));
+            } catch (RuntimeException e) {
+                throw new IOException("Malformed line " + (line + 1) + " in " + file, e);
+            }
+        }
+        return report;
+    }
+
+    /**
+     * 与基线逐个组合比较插入和操作耗时的中位数，输出变化百分比<br/>
+     * 负载不同的结果不比较；基线中没有的组合标记为new
+     * @param threshold 相对变化的阈值，如0.1表示变慢超过10%记为回归、变快超过10%记为改进
+     * @return 回归的组合个数
+     */
+    public int compare(SweepReport baseline, double threshold, PrintStream out) {
+        Map<String, SweepResult> base = new HashMap<>();
+        for (SweepResult result : baseline.results) {
+            base.put(result.getWorkload() + '/' + result.getCell().key(), result);
+        }
+        String format = "%-12s%-12s%10s%14s%14s%10s%14s%14s%10s  %s%n";
+        out.printf(format, "structure", "order", "size", "insert base", "insert", "change", "op base", "op", "change",
+                "status");
+        int regressions = 0;
+        for (SweepResult result : results) {
+            SweepCell cell = result.getCell();
+            SweepResult before = base.get(result.getWorkload() + '/' + cell.key());
+            if (before == null) {
+                out.printf(format, cell.getStructure(), cell.getKeyOrder(), cell.getSize(), "-",
+                        decimal(result.getInsertMedian()), "-", "-", decimal(result.getOpsMedian()), "-", "new");
+                continue;
+            }
+            double insertChange = change(before.getInsertMedian(), result.getInsertMedian());
+            double opsChange = change(before.getOpsMedian(), result.getOpsMedian());
+            String status;
+            if (insertChange > threshold || opsChange > threshold) {
+                status = "REGRESSION";
+                regressions++;
+            } else if (insertChange < -threshold || opsChange < -threshold) {
+                status = "improved";
+            } else {
+                status = "ok";
+            }
+            out.printf(format, cell.getStructure(), cell.getKeyOrder(), cell.getSize(),
+                    decimal(before.getInsertMedian()), decimal(result.getInsertMedian()), percent(insertChange),
+                    decimal(before.getOpsMedian()), decimal(result.getOpsMedian()), percent(opsChange), status);
+        }
+        out.println(regressions + " regression(s) beyond " + percent(threshold));
+        return regressions;
+    }
+
+    /**
+     * 相对基线的变化，正数为变慢
+     */
+    private static double change(double before, double after) {
+        return before == 0 ? 0 : after / before - 1;
+    }
+
+    private static String percent(double value) {
+        return String.format(Locale.ROOT, "%+.1f%%", value * 100);
+    }
+
+    private static String decimal(double value) {
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
+
+    private static PrintWriter open(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        return new PrintWriter(writer);
+    }
+
+    /**
+     * 名称中含逗号或引号时加引号，如B+(100)不需要
+     */
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * 按逗号拆分一行CSV，处理csv方法加的引号
+     */
+    private static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String json(String value) {
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+}
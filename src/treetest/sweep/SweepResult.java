@@ -0,0 +1,81 @@
+package treetest.sweep;
+
+import java.util.Arrays;
+
+/**
+ * 一个组合重复测量的结果：插入每个关键字、执行每个操作的耗时(纳秒)，取各轮的中位数和最小值
+ */
+public final class SweepResult {
+    private final String workload;
+    private final SweepCell cell;
+    private final int repeats;
+    private final double insertMedian;
+    private final double insertMin;
+    private final double opsMedian;
+    private final double opsMin;
+
+    public SweepResult(String workload, SweepCell cell, int repeats, double insertMedian, double insertMin,
+                       double opsMedian, double opsMin) {
+        this.workload = workload;
+        this.cell = cell;
+        this.repeats = repeats;
+        this.insertMedian = insertMedian;
+        this.insertMin = insertMin;
+        this.opsMedian = opsMedian;
+        this.opsMin = opsMin;
+    }
+
+    /**
+     * @param insertTimes 每轮插入全部关键字的耗时(纳秒)
+     * @param opsTimes 每轮执行全部操作的耗时(纳秒)，操作个数与关键字个数相同
+     */
+    public static SweepResult of(String workload, SweepCell cell, long[] insertTimes, long[] opsTimes) {
+        int size = cell.getSize();
+        return new SweepResult(workload, cell, insertTimes.length,
+                median(insertTimes) / size, (double) min(insertTimes) / size,
+                median(opsTimes) / size, (double) min(opsTimes) / size);
+    }
+
+    public String getWorkload() {
+        return workload;
+    }
+
+    public SweepCell getCell() {
+        return cell;
+    }
+
+    public int getRepeats() {
+        return repeats;
+    }
+
+    public double getInsertMedian() {
+        return insertMedian;
+    }
+
+    public double getInsertMin() {
+        return insertMin;
+    }
+
+    public double getOpsMedian() {
+        return opsMedian;
+    }
+
+    public double getOpsMin() {
+        return opsMin;
+    }
+
+    private static double median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2.0;
+    }
+
+    private static long min(long[] values) {
+        long min = Long.MAX_VALUE;
+        for (long value : values) {
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+}
@@ -0,0 +1,76 @@
+package treetest.workload;
+
+/**
+ * 记录的关键字，即第i个插入的记录使用的关键字<br/>
+ * <br/>
+ * 关键字由记录序号和种子直接算出，不需要保存已插入的关键字，序号不同的记录关键字一定不同；<br/>
+ * UNIFORM用种子和一个int上的双射打乱序号，关键字均匀分布在整个int范围内、插入顺序随机；<br/>
+ * SEQUENTIAL、REVERSE按关键字升序、降序插入；<br/>
+ * CLUSTERED每64个连续关键字为一簇，簇内按升序插入，簇的位置和先后顺序随机，模拟按时间或前缀聚集写入的关键字
+ */
+public enum KeyOrder {
+    UNIFORM {
+        @Override
+        public int key(long index, long seed) {
+            return mix((int) index ^ (int) seed, -1);
+        }
+
+        @Override
+        public long spacing(int recordCount) {
+            return Math.max(1L, (1L << 32) / Math.max(recordCount, 1));
+        }
+    },
+    SEQUENTIAL {
+        @Override
+        public int key(long index, long seed) {
+            return (int) index;
+        }
+    },
+    REVERSE {
+        @Override
+        public int key(long index, long seed) {
+            return Integer.MAX_VALUE - (int) index;
+        }
+    },
+    CLUSTERED {
+        @Override
+        public int key(long index, long seed) {
+            int cluster = mix((int) (index >>> CLUSTER_BITS) ^ (int) seed, CLUSTER_MASK);
+            return cluster << CLUSTER_BITS | (int) index & (1 << CLUSTER_BITS) - 1;
+        }
+    };
+
+    private static final int CLUSTER_BITS = 6; // 每簇64个关键字
+    private static final int CLUSTER_MASK = -1 >>> CLUSTER_BITS;
+
+    /**
+     * @param index 记录序号，从0开始，不超过2^32
+     * @param seed
+     * @return 记录的关键字
+     */
+    public abstract int key(long index, long seed);
+
+    /**
+     * 相邻两个关键字之差的估计值，范围查询按它把记录条数换算为关键字区间的长度
+     * @param recordCount 当前记录条数
+     * @return
+     */
+    public long spacing(int recordCount) {
+        return 1;
+    }
+
+    /**
+     * [0, mask]上的双射：乘奇数和右移异或在模2^k下都是可逆的
+     * @param x
+     * @param mask 2^k - 1
+     * @return
+     */
+    private static int mix(int x, int mask) {
+        int shift = Integer.bitCount(mask) / 2;
+        x = x * 0x9e3779b9 & mask;
+        x ^= x >>> shift;
+        x = x * 0x85ebca6b & mask;
+        x ^= x >>> shift;
+        return x;
+    }
+}
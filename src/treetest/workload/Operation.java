@@ -0,0 +1,63 @@
+package treetest.workload;
+
+import treetest.OrderedIndex;
+
+/**
+ * 操作序列中的一个操作<br/>
+ * <br/>
+ * 关键字在生成时就装箱，执行时各种树拿到的是同一个Integer对象，装箱开销不计入树的耗时
+ */
+public final class Operation {
+    public enum Type {
+        READ, UPDATE, INSERT, SCAN, READ_MODIFY_WRITE
+    }
+
+    private final Type type;
+    private final Integer key;
+    private final Integer endKey; // 只有SCAN使用，范围的上界(包含)
+
+    Operation(Type type, Integer key, Integer endKey) {
+        this.type = type;
+        this.key = key;
+        this.endKey = endKey;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Integer getKey() {
+        return key;
+    }
+
+    public Integer getEndKey() {
+        return endKey;
+    }
+
+    /**
+     * 在树上执行操作，写入的值就是关键字本身
+     * @param index
+     * @return 读到的值或范围查询的结果，供调用者消费以免被JIT优化掉
+     */
+    public Object apply(OrderedIndex<Integer, Object> index) {
+        switch (type) {
+            case READ:
+                return index.get(key);
+            case UPDATE:
+            case INSERT:
+                return index.put(key, key);
+            case SCAN:
+                return index.range(key, endKey);
+            case READ_MODIFY_WRITE:
+                index.get(key);
+                return index.put(key, key);
+            default:
+                throw new AssertionError(type);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return type == Type.SCAN ? type + " [" + key + ", " + endKey + "]" : type + " " + key;
+    }
+}
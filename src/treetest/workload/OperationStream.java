@@ -0,0 +1,122 @@
+package treetest.workload;
+
+import treetest.OrderedIndex;
+
+import java.util.Random;
+
+/**
+ * 一个负载的操作序列<br/>
+ * <br/>
+ * 先用loadKeys()取得加载阶段的关键字插入每棵树，之后每次next()生成一个操作；<br/>
+ * 读、更新、范围查询只选择已经插入的记录，因此总能命中；插入操作使用下一个记录序号，记录条数随之增加；<br/>
+ * 范围查询的长度在[1, MAX_SCAN_LENGTH]中均匀选择，按KeyOrder.spacing换算为关键字区间
+ */
+public final class OperationStream {
+    private static final Operation.Type[] TYPES = Operation.Type.values();
+
+    private final Workload workload;
+    private final KeyOrder keyOrder;
+    private final int loadCount;
+    private final long seed;
+    private final Random random;
+    private final RequestDistribution.Chooser chooser;
+    private final double[] cumulative; // 操作类型比例的前缀和
+    private final Operation.Type lastType; // 比例不为0的最后一种操作，前缀和的舍入误差落到它上面
+    private long recordCount;
+
+    OperationStream(Workload workload, KeyOrder keyOrder, int recordCount, long seed) {
+        if (recordCount <= 0) {
+            throw new IllegalArgumentException("Illegal record count: " + recordCount);
+        }
+        this.workload = workload;
+        this.keyOrder = keyOrder;
+        this.loadCount = recordCount;
+        this.recordCount = recordCount;
+        this.seed = seed;
+        random = new Random(seed);
+        chooser = workload.getRequestDistribution().newChooser();
+        cumulative = new double[TYPES.length];
+        Operation.Type last = null;
+        double sum = 0;
+        for (int i = 0; i < TYPES.length; i++) {
+            double proportion = workload.getProportion(TYPES[i]);
+            if (proportion > 0) {
+                last = TYPES[i];
+            }
+            sum += proportion;
+            cumulative[i] = sum;
+        }
+        lastType = last;
+    }
+
+    public Workload getWorkload() {
+        return workload;
+    }
+
+    public KeyOrder getKeyOrder() {
+        return keyOrder;
+    }
+
+    /**
+     * @return 加载阶段的关键字，按插入顺序排列
+     */
+    public int[] loadKeys() {
+        int[] keys = new int[loadCount];
+        for (int i = 0; i < loadCount; i++) {
+            keys[i] = keyOrder.key(i, seed);
+        }
+        return keys;
+    }
+
+    /**
+     * 把加载阶段的关键字插入树中，值为关键字本身
+     */
+    public void load(OrderedIndex<Integer, Object> index) {
+        for (int key : loadKeys()) {
+            index.put(key, key);
+        }
+    }
+
+    public Operation next() {
+        Operation.Type type = nextType();
+        if (type == Operation.Type.INSERT) {
+            return new Operation(type, keyOrder.key(recordCount++, seed), null);
+        }
+        int key = keyOrder.key(chooser.next(random, recordCount), seed);
+        if (type != Operation.Type.SCAN) {
+            return new Operation(type, key, null);
+        }
+        long length = 1 + random.nextInt(Workload.MAX_SCAN_LENGTH);
+        long end = Math.min((long) key + (length - 1) * keyOrder.spacing((int) Math.min(recordCount, Integer.MAX_VALUE)),
+                Integer.MAX_VALUE);
+        return new Operation(type, key, (int) end);
+    }
+
+    /**
+     * 连续生成count个操作
+     */
+    public Operation[] next(int count) {
+        Operation[] operations = new Operation[count];
+        for (int i = 0; i < count; i++) {
+            operations[i] = next();
+        }
+        return operations;
+    }
+
+    /**
+     * @return 当前的记录条数，即加载的条数加上已生成的插入操作数
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    private Operation.Type nextType() {
+        double u = random.nextDouble();
+        for (int i = 0; i < TYPES.length; i++) {
+            if (u < cumulative[i]) {
+                return TYPES[i];
+            }
+        }
+        return lastType;
+    }
+}
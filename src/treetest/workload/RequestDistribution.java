@@ -0,0 +1,70 @@
+package treetest.workload;
+
+import java.util.Random;
+
+/**
+ * 读、更新、范围查询选择哪一条已有记录<br/>
+ * <br/>
+ * UNIFORM：每条记录概率相同；<br/>
+ * ZIPFIAN：少数热点记录占大部分访问，按Zipf分布选出排名后用散列映射到记录序号，热点分散在整个关键字范围内
+ *      (YCSB的scrambled zipfian)，之后插入的记录按插入顺序排在已有记录之后；<br/>
+ * LATEST：越晚插入的记录越热，排名0为最后插入的记录，对应YCSB的workload D
+ */
+public enum RequestDistribution {
+    UNIFORM {
+        @Override
+        public Chooser newChooser() {
+            return (random, count) -> (long) (random.nextDouble() * count);
+        }
+    },
+    ZIPFIAN {
+        @Override
+        public Chooser newChooser() {
+            ZipfianGenerator zipfian = new ZipfianGenerator(ZipfianGenerator.DEFAULT_THETA);
+            long[] scrambled = new long[1]; // 第一次调用时的记录条数，这些记录的排名散列到它们之中
+            return (random, count) -> {
+                if (scrambled[0] == 0) {
+                    scrambled[0] = count;
+                }
+                long rank = zipfian.next(random, count);
+                // 之后插入的记录排在后面，散列的范围固定不变，插入新记录时热点记录不会变化
+                return rank < scrambled[0] ? Long.remainderUnsigned(fnv(rank), scrambled[0]) : rank;
+            };
+        }
+    },
+    LATEST {
+        @Override
+        public Chooser newChooser() {
+            ZipfianGenerator zipfian = new ZipfianGenerator(ZipfianGenerator.DEFAULT_THETA);
+            return (random, count) -> count - 1 - zipfian.next(random, count);
+        }
+    };
+
+    /**
+     * 记录选择器，Zipf分布的选择器带有缓存的zeta值，每个操作序列单独创建
+     */
+    @FunctionalInterface
+    public interface Chooser {
+        /**
+         * @param random
+         * @param count 当前记录条数
+         * @return 记录序号，在[0, count)之间
+         */
+        long next(Random random, long count);
+    }
+
+    public abstract Chooser newChooser();
+
+    /**
+     * 64位FNV-1a散列，把相邻的排名打散
+     */
+    private static long fnv(long value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < Long.BYTES; i++) {
+            hash ^= value & 0xff;
+            hash *= 0x100000001b3L;
+            value >>>= 8;
+        }
+        return hash;
+    }
+}
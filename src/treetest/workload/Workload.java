@@ -0,0 +1,103 @@
+package treetest.workload;
+
+import java.util.Locale;
+
+/**
+ * 负载定义：各种操作的比例和选择记录的分布<br/>
+ * <br/>
+ * A~F为YCSB的标准负载：<br/>
+ * A 读50% 更新50%，zipfian；B 读95% 更新5%，zipfian；C 只读，zipfian；<br/>
+ * D 读95% 插入5%，latest；E 范围查询95% 插入5%，zipfian，每次查询1~100条；F 读50% 读-改-写50%，zipfian；<br/>
+ * 其它组合可以直接构造，例如只读、均匀分布的负载为new Workload("read", 1, 0, 0, 0, 0, RequestDistribution.UNIFORM)
+ */
+public final class Workload {
+    public static final int MAX_SCAN_LENGTH = 100;
+
+    public static final Workload A = new Workload("A", 0.5, 0.5, 0, 0, 0, RequestDistribution.ZIPFIAN);
+    public static final Workload B = new Workload("B", 0.95, 0.05, 0, 0, 0, RequestDistribution.ZIPFIAN);
+    public static final Workload C = new Workload("C", 1, 0, 0, 0, 0, RequestDistribution.ZIPFIAN);
+    public static final Workload D = new Workload("D", 0.95, 0, 0.05, 0, 0, RequestDistribution.LATEST);
+    public static final Workload E = new Workload("E", 0, 0, 0.05, 0.95, 0, RequestDistribution.ZIPFIAN);
+    public static final Workload F = new Workload("F", 0.5, 0, 0, 0, 0.5, RequestDistribution.ZIPFIAN);
+
+    private final String name;
+    private final double[] proportions; // 按Operation.Type的顺序
+    private final RequestDistribution requestDistribution;
+
+    /**
+     * 各比例只需非负，会按总和归一化
+     */
+    public Workload(String name, double read, double update, double insert, double scan, double readModifyWrite,
+                    RequestDistribution requestDistribution) {
+        proportions = new double[]{read, update, insert, scan, readModifyWrite};
+        double sum = 0;
+        for (double proportion : proportions) {
+            if (!(proportion >= 0)) {
+                throw new IllegalArgumentException("Illegal proportion: " + proportion);
+            }
+            sum += proportion;
+        }
+        if (sum == 0) {
+            throw new IllegalArgumentException("Workload " + name + " has no operations");
+        }
+        for (int i = 0; i < proportions.length; i++) {
+            proportions[i] /= sum;
+        }
+        this.name = name;
+        this.requestDistribution = requestDistribution;
+    }
+
+    /**
+     * @param name A~F，不区分大小写
+     * @return YCSB的标准负载
+     */
+    public static Workload ycsb(String name) {
+        switch (name.toUpperCase(Locale.ROOT)) {
+            case "A":
+                return A;
+            case "B":
+                return B;
+            case "C":
+                return C;
+            case "D":
+                return D;
+            case "E":
+                return E;
+            case "F":
+                return F;
+            default:
+                throw new IllegalArgumentException("Unknown YCSB workload: " + name);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return 该类操作占的比例，所有类型之和为1
+     */
+    public double getProportion(Operation.Type type) {
+        return proportions[type.ordinal()];
+    }
+
+    public RequestDistribution getRequestDistribution() {
+        return requestDistribution;
+    }
+
+    /**
+     * 创建操作序列，种子相同时得到的加载关键字和操作完全相同
+     * @param keyOrder 记录的关键字
+     * @param recordCount 加载阶段插入的记录条数
+     * @param seed
+     * @return
+     */
+    public OperationStream stream(KeyOrder keyOrder, int recordCount, long seed) {
+        return new OperationStream(this, keyOrder, recordCount, seed);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,66 @@
+package treetest.workload;
+
+import java.util.Random;
+
+/**
+ * Zipf分布的排名生成器，排名0出现的概率最高<br/>
+ * <br/>
+ * 算法来自Gray等人的"Quickly Generating Billion-Record Synthetic Databases"，与YCSB相同：
+ * 预先计算zeta(n) = Σ 1/i^theta (i = 1..n)，之后每次只需一个随机数和一次pow；<br/>
+ * 记录条数增加时只累加新增的项，不必从头计算zeta
+ */
+final class ZipfianGenerator {
+    static final double DEFAULT_THETA = 0.99; // YCSB的默认值
+
+    private final double theta;
+    private final double alpha;
+    private final double zeta2;
+    private long n;
+    private double zetan;
+    private double eta;
+
+    ZipfianGenerator(double theta) {
+        if (!(theta > 0 && theta < 1)) {
+            throw new IllegalArgumentException("Illegal theta: " + theta);
+        }
+        this.theta = theta;
+        alpha = 1 / (1 - theta);
+        zeta2 = 1 + Math.pow(0.5, theta);
+    }
+
+    /**
+     * @param random
+     * @param count 排名的范围[0, count)
+     * @return
+     */
+    long next(Random random, long count) {
+        if (count != n) {
+            resize(count);
+        }
+        double u = random.nextDouble();
+        double uz = u * zetan;
+        if (uz < 1) {
+            return 0;
+        }
+        if (uz < zeta2) {
+            return 1;
+        }
+        long rank = (long) (n * Math.pow(eta * u - eta + 1, alpha));
+        return Math.min(rank, n - 1);
+    }
+
+    private void resize(long count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Illegal count: " + count);
+        }
+        if (count < n) {
+            n = 0;
+            zetan = 0;
+        }
+        for (long i = n + 1; i <= count; i++) {
+            zetan += 1 / Math.pow(i, theta);
+        }
+        n = count;
+        eta = (1 - Math.pow(2.0 / n, 1 - theta)) / (1 - zeta2 / zetan);
+    }
+}
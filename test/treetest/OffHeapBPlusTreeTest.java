@@ -0,0 +1,87 @@
+package treetest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapBPlusTreeTest {
+
+    private static final int PAGE_SIZE = 256;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void reopenReturnsCommittedTree() throws IOException {
+        Path file = dir.resolve("tree.pages");
+        try (MappedPageStore store = MappedPageStore.create(file, PAGE_SIZE)) {
+            OffHeapBPlusTree tree = new OffHeapBPlusTree(store);
+            for (int key = 0; key < 10000; key++)
+                tree.insert(key, 10L * key);
+            tree.commit();
+        }
+        try (MappedPageStore store = MappedPageStore.open(file)) {
+            OffHeapBPlusTree tree = OffHeapBPlusTree.open(store);
+            assertEquals(10000, tree.size());
+            for (int key = 0; key < 10000; key++)
+                assertEquals(10L * key, tree.get(key));
+        }
+    }
+
+    @Test
+    void reopenAfterUncommittedWritesIsRejected() throws IOException {
+        Path file = dir.resolve("tree.pages");
+        try (MappedPageStore store = MappedPageStore.create(file, PAGE_SIZE)) {
+            OffHeapBPlusTree tree = new OffHeapBPlusTree(store);
+            for (int key = 0; key < 10000; key++)
+                tree.insert(key, key);
+            tree.commit();
+            // splits, merges and frees pages that the committed root still reaches
+            for (int key = 0; key < 10000; key += 2)
+                tree.delete(key);
+            for (int key = 10000; key < 20000; key++)
+                tree.insert(key, key);
+        }
+        IOException e = assertThrows(IOException.class, () -> MappedPageStore.open(file));
+        assertTrue(e.getMessage().contains("modified after its last commit"), e.getMessage());
+    }
+
+    @Test
+    void recommitAfterFurtherWritesReopens() throws IOException {
+        Path file = dir.resolve("tree.pages");
+        try (MappedPageStore store = MappedPageStore.create(file, PAGE_SIZE)) {
+            OffHeapBPlusTree tree = new OffHeapBPlusTree(store);
+            for (int key = 0; key < 1000; key++)
+                tree.insert(key, key);
+            tree.commit();
+            for (int key = 0; key < 1000; key += 2)
+                tree.delete(key);
+            tree.commit();
+        }
+        try (MappedPageStore store = MappedPageStore.open(file)) {
+            OffHeapBPlusTree tree = OffHeapBPlusTree.open(store);
+            assertEquals(500, tree.size());
+            assertNull(tree.get(0));
+            assertEquals(999L, tree.get(999));
+        }
+    }
+
+    @Test
+    void putAndRemoveReturnPreviousValue() {
+        OffHeapBPlusTree tree = new OffHeapBPlusTree(new DirectPageStore(PAGE_SIZE));
+        for (int key = 0; key < 10000; key++)
+            assertNull(tree.put(key, (long) key));
+        for (int key = 0; key < 10000; key++)
+            assertEquals(key, tree.put(key, key + 1L));
+        for (int key = 0; key < 10000; key += 2)
+            assertEquals(key + 1L, tree.remove(key));
+        assertNull(tree.remove(0));
+        assertEquals(5000, tree.size());
+        for (int key = 1; key < 10000; key += 2)
+            assertEquals(key + 1L, tree.get(key));
+    }
+}